@@ -78,6 +78,7 @@ import io.parsingdata.metal.expression.value.reference.Ref;
 import io.parsingdata.metal.expression.value.reference.Ref.DefinitionRef;
 import io.parsingdata.metal.expression.value.reference.Ref.NameRef;
 import io.parsingdata.metal.expression.value.reference.Self;
+import io.parsingdata.metal.token.ByteClass;
 import io.parsingdata.metal.token.Cho;
 import io.parsingdata.metal.token.Def;
 import io.parsingdata.metal.token.DefUntil;
@@ -85,6 +86,7 @@ import io.parsingdata.metal.token.Post;
 import io.parsingdata.metal.token.Pre;
 import io.parsingdata.metal.token.Rep;
 import io.parsingdata.metal.token.RepN;
+import io.parsingdata.metal.token.Scan;
 import io.parsingdata.metal.token.Seq;
 import io.parsingdata.metal.token.Tie;
 import io.parsingdata.metal.token.Token;
@@ -195,6 +197,12 @@ public final class Shorthand {
     /** @see While */ public static Token whl(final String name, final Token token, final Expression predicate) { return whl(name, token, predicate, null); }
     /** @see While */ public static Token whl(final Token token, final Expression predicate, final Encoding encoding) { return whl(NO_NAME, token, predicate, encoding); }
     /** @see While */ public static Token whl(final Token token, final Expression predicate) { return whl(NO_NAME, token, predicate); }
+    /** @see Scan */ public static Token scan(final String name, final Encoding encoding, final ByteClass[]... units) { return new Scan(name, encoding, units); }
+    /** @see Scan */ public static Token scan(final String name, final ByteClass[]... units) { return scan(name, (Encoding)null, units); }
+    /** @see Scan */ public static Token scan(final String name, final ByteClass byteClass) { return scan(name, unit(byteClass)); }
+    /** @see Scan */ public static ByteClass[] unit(final ByteClass... byteClasses) { return byteClasses; }
+    /** @see ByteClass */ public static ByteClass byteClass(final int... values) { return ByteClass.of(values); }
+    /** @see ByteClass */ public static ByteClass byteRange(final int from, final int to) { return ByteClass.range(from, to); }
 
     /** "OPTional": denotes an optional token that succeeds regardless of whether its nested token successfully parses. Instantiates a {@link Cho} with {@code token1 = token} and {@code token2 = EMPTY}. */
     public static Token opt(final String name, final Token token, final Encoding encoding) { return cho(name, encoding, token, EMPTY); }
@@ -26,6 +26,7 @@ import java.util.Optional;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
+import io.parsingdata.metal.data.InflatedSource;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.data.Slice;
 import io.parsingdata.metal.encoding.Encoding;
@@ -76,6 +77,23 @@ public final class Util {
         return argument;
     }
 
+    public static long checkNotNegative(final long argument, final String name) {
+        if (argument < 0) {
+            throw new IllegalArgumentException(format("Argument %s may not be negative.", name));
+        }
+        return argument;
+    }
+
+    /**
+     * Return the argument as a <code>long</code> if it is not negative and small
+     * enough for the sum of two such values to fit in a <code>long</code>.
+     * @param argument the value to convert
+     * @return the value as a <code>long</code>, or <code>-1</code> if it does not fit
+     */
+    public static long toSafeLong(final BigInteger argument) {
+        return argument.signum() >= 0 && argument.bitLength() < Long.SIZE - 2 ? argument.longValue() : -1;
+    }
+
     public static String format(final String format, final Object... args) {
         return String.format(Locale.ENGLISH, format, args);
     }
@@ -112,6 +130,28 @@ public final class Util {
         };
     }
 
+    /**
+     * Inflates raw DEFLATE data lazily. Unlike {@link #inflate(ValueExpression)},
+     * the result is not materialized in memory: it is backed by an
+     * {@link InflatedSource} that decompresses the requested parts on demand.
+     * Its length is only determined when it is required. Data that is found
+     * to be invalid beyond its start (for example corrupt or truncated) makes
+     * the result fail as a whole, as with {@link #inflate(ValueExpression)}:
+     * no data is available from it and it behaves as {@link
+     * io.parsingdata.metal.expression.value.NotAValue#NOT_A_VALUE}. Reads
+     * from it that precede the discovery of the error do succeed.
+     * @param target the expression that yields the compressed data
+     * @return an expression that yields the inflated data, or NOT_A_VALUE if the data does not start with a valid block
+     */
+    public static ValueExpression lazyInflate(final ValueExpression target) {
+        return new UnaryValueExpression(target) {
+            @Override
+            public Optional<Value> eval(final Value value, final ParseState parseState, final Encoding encoding) {
+                return new InflatedSource(value.slice()).toValue(encoding);
+            }
+        };
+    }
+
     public static Optional<ParseState> success(final ParseState parseState) {
         return Optional.of(parseState);
     }
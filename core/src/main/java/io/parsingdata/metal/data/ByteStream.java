@@ -19,6 +19,7 @@ package io.parsingdata.metal.data;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 public interface ByteStream {
 
@@ -26,4 +27,59 @@ public interface ByteStream {
 
     boolean isAvailable(BigInteger offset, BigInteger length);
 
+    /**
+     * Return the data specified by the offset and length as a {@link ByteBuffer}.
+     * <p>
+     * The default implementation wraps the result of
+     * {@link #read(BigInteger, int)}. Implementations that keep their data in
+     * memory may override it to return a view on that data instead. The
+     * returned buffer must not be modified by the caller.
+     * @param offset the offset to start reading the data from
+     * @param length the number of bytes to return
+     * @return a {@link ByteBuffer} positioned at the start of the data
+     * @throws IOException if the data cannot be read
+     */
+    default ByteBuffer readBuffer(final BigInteger offset, final int length) throws IOException {
+        return ByteBuffer.wrap(read(offset, length));
+    }
+
+    /**
+     * Variant of {@link #read(BigInteger, int)} for offsets that fit in a
+     * <code>long</code>. The default implementation delegates to the
+     * {@link BigInteger} variant. Implementations may override it to avoid
+     * allocating {@link BigInteger} instances.
+     * @param offset the offset to start reading the data from
+     * @param length the number of bytes to return
+     * @return the data
+     * @throws IOException if the data cannot be read
+     */
+    default byte[] read(final long offset, final int length) throws IOException {
+        return read(BigInteger.valueOf(offset), length);
+    }
+
+    /**
+     * Variant of {@link #isAvailable(BigInteger, BigInteger)} for offsets and
+     * lengths that fit in a <code>long</code>. The default implementation
+     * delegates to the {@link BigInteger} variant.
+     * @param offset the offset of the data
+     * @param length the length of the data
+     * @return <code>true</code> if the data is available
+     */
+    default boolean isAvailable(final long offset, final long length) {
+        return isAvailable(BigInteger.valueOf(offset), BigInteger.valueOf(length));
+    }
+
+    /**
+     * Variant of {@link #readBuffer(BigInteger, int)} for offsets that fit in
+     * a <code>long</code>. The default implementation delegates to the
+     * {@link BigInteger} variant.
+     * @param offset the offset to start reading the data from
+     * @param length the number of bytes to return
+     * @return a {@link ByteBuffer} positioned at the start of the data
+     * @throws IOException if the data cannot be read
+     */
+    default ByteBuffer readBuffer(final long offset, final int length) throws IOException {
+        return readBuffer(BigInteger.valueOf(offset), length);
+    }
+
 }
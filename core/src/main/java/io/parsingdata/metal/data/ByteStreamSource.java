@@ -20,10 +20,12 @@ package io.parsingdata.metal.data;
 import static io.parsingdata.metal.Util.checkNotNegative;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.Util.toSafeLong;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import io.parsingdata.metal.Util;
@@ -32,8 +34,11 @@ public class ByteStreamSource extends Source {
 
     public final ByteStream input;
 
+    private final long size; // Cached, not part of equals. Negative if the size of the input is unknown.
+
     ByteStreamSource(final ByteStream input) {
         this.input = checkNotNull(input, "input");
+        size = input instanceof SizedByteStream ? ((SizedByteStream) input).size() : -1;
     }
 
     @Override
@@ -48,9 +53,69 @@ public class ByteStreamSource extends Source {
         }
     }
 
+    @Override
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        try {
+            return input.readBuffer(offset, length.intValueExact()).asReadOnlyBuffer();
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
     @Override
     protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
-        return input.isAvailable(checkNotNegative(offset, "offset"), checkNotNegative(length, "length"));
+        checkNotNegative(offset, "offset");
+        checkNotNegative(length, "length");
+        if (size >= 0) {
+            final long longOffset = toSafeLong(offset);
+            final long longLength = toSafeLong(length);
+            if (longOffset < 0 || longLength < 0) {
+                return offset.add(length).compareTo(BigInteger.valueOf(size)) <= 0;
+            }
+            return isAvailableInSize(longOffset, longLength);
+        }
+        return input.isAvailable(offset, length);
+    }
+
+    @Override
+    protected byte[] getData(final long offset, final long length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        try {
+            return input.read(offset, Math.toIntExact(length));
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    protected ByteBuffer getBuffer(final long offset, final long length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        try {
+            return input.readBuffer(offset, Math.toIntExact(length)).asReadOnlyBuffer();
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    @Override
+    protected boolean isAvailable(final long offset, final long length) {
+        checkNotNegative(offset, "offset");
+        checkNotNegative(length, "length");
+        if (size >= 0) {
+            return isAvailableInSize(offset, length);
+        }
+        return input.isAvailable(offset, length);
+    }
+
+    private boolean isAvailableInSize(final long offset, final long length) {
+        return offset <= size && length <= size - offset;
     }
 
     @Override
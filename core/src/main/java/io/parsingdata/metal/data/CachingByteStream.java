@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.Util.toSafeLong;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import io.parsingdata.metal.Util;
+
+/**
+ * A {@link ByteStream} that decorates another {@link ByteStream} with a
+ * read-ahead page cache.
+ * <p>
+ * The underlying stream is read in aligned pages of <code>pageSize</code>
+ * bytes. At most <code>maxPages</code> pages are kept in memory, evicting the
+ * least recently used page when the cache is full. This way, many small
+ * sequential reads (such as the fields of a header) result in a single read on
+ * the underlying stream. Availability checks that fall within the part of the
+ * stream that is already known to be available are answered without consulting
+ * the underlying stream.
+ * <p>
+ * Reads that are larger than the capacity of the cache are passed through to
+ * the underlying stream directly. Access to the cache is synchronized.
+ */
+public class CachingByteStream implements ByteStream {
+
+    public static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_PAGES = 64;
+
+    public final ByteStream input;
+    public final int pageSize;
+    public final int maxPages;
+
+    private final Map<Long, byte[]> pages; // Private because it is mutable.
+    private long availableEnd = 0; // Cached, not part of equals.
+    private long streamEnd = -1; // Cached, not part of equals. Only set when the end of the stream is encountered.
+
+    public CachingByteStream(final ByteStream input) {
+        this(input, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public CachingByteStream(final ByteStream input, final int pageSize, final int maxPages) {
+        this.input = checkNotNull(input, "input");
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException(format("Argument pageSize must be positive, but is %d.", pageSize));
+        }
+        if (maxPages <= 0) {
+            throw new IllegalArgumentException(format("Argument maxPages must be positive, but is %d.", maxPages));
+        }
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public byte[] read(final BigInteger offset, final int length) throws IOException {
+        if (!isAvailable(offset, BigInteger.valueOf(length))) {
+            throw new IOException(format("Data to read is not available (offset=%s;length=%d;input=%s).", offset, length, input));
+        }
+        return read(offset.longValueExact(), length);
+    }
+
+    @Override
+    public synchronized byte[] read(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available (offset=%d;length=%d;input=%s).", offset, length, input));
+        }
+        if ((long) length > (long) pageSize * maxPages) {
+            return input.read(offset, length);
+        }
+        final byte[] data = new byte[length];
+        long position = offset;
+        int copied = 0;
+        while (copied < length) {
+            final byte[] page = getPage(position / pageSize);
+            final int pageOffset = (int) (position % pageSize);
+            final int count = Math.min(length - copied, page.length - pageOffset);
+            if (count <= 0) {
+                throw new IOException(format("Data to read is not available (offset=%d;length=%d;input=%s).", position, length - copied, input));
+            }
+            System.arraycopy(page, pageOffset, data, copied, count);
+            copied += count;
+            position += count;
+        }
+        return data;
+    }
+
+    @Override
+    public ByteBuffer readBuffer(final BigInteger offset, final int length) throws IOException {
+        if (!isAvailable(offset, BigInteger.valueOf(length))) {
+            throw new IOException(format("Data to read is not available (offset=%s;length=%d;input=%s).", offset, length, input));
+        }
+        return readBuffer(offset.longValueExact(), length);
+    }
+
+    @Override
+    public synchronized ByteBuffer readBuffer(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available (offset=%d;length=%d;input=%s).", offset, length, input));
+        }
+        if (length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        if ((long) length > (long) pageSize * maxPages) {
+            return input.readBuffer(offset, length);
+        }
+        final int pageOffset = (int) (offset % pageSize);
+        if (pageOffset + length > pageSize) {
+            return ByteBuffer.wrap(read(offset, length));
+        }
+        final byte[] page = getPage(offset / pageSize);
+        if (pageOffset + length > page.length) {
+            throw new IOException(format("Data to read is not available (offset=%d;length=%d;input=%s).", offset, length, input));
+        }
+        return ByteBuffer.wrap(page, pageOffset, length).slice().asReadOnlyBuffer();
+    }
+
+    private byte[] getPage(final long index) throws IOException {
+        final byte[] cached = pages.get(index);
+        if (cached != null) {
+            return cached;
+        }
+        final long pageOffset = index * pageSize;
+        final byte[] page = input.read(pageOffset, getPageLength(pageOffset));
+        pages.put(index, page);
+        return page;
+    }
+
+    private int getPageLength(final long pageOffset) {
+        if (isAvailable(pageOffset, pageSize)) {
+            return pageSize;
+        }
+        // Last page of the stream: find the amount of available bytes.
+        int low = 0;
+        int high = pageSize - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (input.isAvailable(pageOffset, middle)) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        streamEnd = pageOffset + low;
+        availableEnd = Math.max(availableEnd, streamEnd);
+        return low;
+    }
+
+    @Override
+    public boolean isAvailable(final BigInteger offset, final BigInteger length) {
+        final long longOffset = toSafeLong(offset);
+        final long longLength = toSafeLong(length);
+        if (longOffset < 0 || longLength < 0) {
+            return input.isAvailable(offset, length);
+        }
+        return isAvailable(longOffset, longLength);
+    }
+
+    @Override
+    public synchronized boolean isAvailable(final long offset, final long length) {
+        if (offset < 0 || length < 0) {
+            return input.isAvailable(offset, length);
+        }
+        if (offset <= availableEnd && length <= availableEnd - offset) {
+            return true;
+        }
+        if (streamEnd >= 0 && (offset > streamEnd || length > streamEnd - offset)) {
+            return false;
+        }
+        final boolean available = input.isAvailable(offset, length);
+        if (available) {
+            availableEnd = Math.max(availableEnd, offset + length);
+        }
+        return available;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + input + ";" + pageSize + ";" + maxPages + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Objects.equals(input, ((CachingByteStream)obj).input)
+            && pageSize == ((CachingByteStream)obj).pageSize
+            && maxPages == ((CachingByteStream)obj).maxPages;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), input, pageSize, maxPages);
+    }
+
+}
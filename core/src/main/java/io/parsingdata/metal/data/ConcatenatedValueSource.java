@@ -25,10 +25,13 @@ import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNegative;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.Util.toSafeLong;
 import static io.parsingdata.metal.data.Selection.reverse;
 import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -41,9 +44,14 @@ public class ConcatenatedValueSource extends Source {
     public final ImmutableList<Value> values;
     public final BigInteger length;
 
+    private final long longLength; // Cached, not part of equals. Negative if length does not fit in a long.
+    private final FragmentIndex index; // Cached, not part of equals.
+
     private ConcatenatedValueSource(final ImmutableList<Value> values, final BigInteger length) {
         this.values = checkNotNull(values, "values");
         this.length = checkNotNegative(length, "length");
+        longLength = toSafeLong(length);
+        index = FragmentIndex.create(values, longLength);
     }
 
     public static Optional<ConcatenatedValueSource> create(final ImmutableList<Value> inputValues) {
@@ -74,9 +82,32 @@ public class ConcatenatedValueSource extends Source {
         if (!isAvailable(offset, length)) {
             throw new IllegalStateException(format("Data to read is not available (offset=%d;length=%d;source=%s).", offset, length, this));
         }
+        if (index != FragmentIndex.UNINDEXED) {
+            return getData(offset.longValueExact(), length.longValueExact());
+        }
         return getData(values, ZERO, ZERO, offset, length, new byte[length.intValueExact()]).computeResult();
     }
 
+    @Override
+    protected byte[] getData(final long offset, final long length) {
+        if (index == FragmentIndex.UNINDEXED) {
+            return super.getData(offset, length);
+        }
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available (offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        final byte[] output = new byte[Math.toIntExact(length)];
+        int copied = 0;
+        for (int fragment = index.find(offset); copied < output.length; fragment++) {
+            final long localOffset = offset + copied - index.starts[fragment];
+            final int count = (int) Math.min(output.length - copied, index.starts[fragment + 1] - index.starts[fragment] - localOffset);
+            final byte[] data = index.sources[fragment].getData(index.sourceOffsets[fragment] + localOffset, count);
+            System.arraycopy(data, 0, output, copied, count);
+            copied += count;
+        }
+        return output;
+    }
+
     private Trampoline<byte[]> getData(final ImmutableList<Value> values, final BigInteger currentOffset, final BigInteger currentDest, final BigInteger offset, final BigInteger length, final byte[] output) {
         if (length.compareTo(ZERO) <= 0) {
             return complete(() -> output);
@@ -92,11 +123,139 @@ public class ConcatenatedValueSource extends Source {
         return intermediate(() -> getData(values.tail, nextOffset, currentDest.add(valueOf(data.length)), offset, length.subtract(valueOf(data.length)), output));
     }
 
+    @Override
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available (offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        if (index != FragmentIndex.UNINDEXED) {
+            return getBuffer(offset.longValueExact(), length.longValueExact());
+        }
+        if (length.compareTo(ZERO) == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        return getBuffer(values, ZERO, offset, length).computeResult();
+    }
+
+    @Override
+    protected ByteBuffer getBuffer(final long offset, final long length) {
+        if (index == FragmentIndex.UNINDEXED) {
+            return super.getBuffer(offset, length);
+        }
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available (offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        if (length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        final int fragment = index.find(offset);
+        if (offset + length <= index.starts[fragment + 1]) {
+            // The requested data is contained in a single fragment, so a view on its source can be returned.
+            return index.sources[fragment].getBuffer(index.sourceOffsets[fragment] + offset - index.starts[fragment], length);
+        }
+        return ByteBuffer.wrap(getData(offset, length)).asReadOnlyBuffer();
+    }
+
+    private Trampoline<ByteBuffer> getBuffer(final ImmutableList<Value> values, final BigInteger currentOffset, final BigInteger offset, final BigInteger length) {
+        final BigInteger nextOffset = currentOffset.add(values.head.slice().length);
+        if (nextOffset.compareTo(offset) <= 0) {
+            return intermediate(() -> getBuffer(values.tail, nextOffset, offset, length));
+        }
+        if (offset.add(length).compareTo(nextOffset) <= 0) {
+            // The requested data is contained in a single value, so a view on that value can be returned.
+            return complete(() -> values.head.slice().getBuffer(offset.subtract(currentOffset), length));
+        }
+        return complete(() -> ByteBuffer.wrap(getData(offset, length)).asReadOnlyBuffer());
+    }
+
     @Override
     protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
         return checkNotNegative(length, "length").add(checkNotNegative(offset, "offset")).compareTo(this.length) <= 0;
     }
 
+    @Override
+    protected boolean isAvailable(final long offset, final long length) {
+        if (longLength < 0) {
+            return super.isAvailable(offset, length);
+        }
+        return checkNotNegative(offset, "offset") <= longLength
+            && checkNotNegative(length, "length") <= longLength - offset;
+    }
+
+    /**
+     * Index of the data in this source, built from the values by coalescing
+     * adjacent ranges of the same underlying source into fragments. For every
+     * fragment, its start offset in this source (a prefix sum, with the total
+     * length as the final element), its source and its offset in that source
+     * are stored, so that the fragment containing an offset is found through
+     * binary search.
+     */
+    private static final class FragmentIndex {
+
+        static final FragmentIndex UNINDEXED = new FragmentIndex(new long[0], new Source[0], new long[0]);
+
+        final long[] starts;
+        final Source[] sources;
+        final long[] sourceOffsets;
+
+        private FragmentIndex(final long[] starts, final Source[] sources, final long[] sourceOffsets) {
+            this.starts = starts;
+            this.sources = sources;
+            this.sourceOffsets = sourceOffsets;
+        }
+
+        static FragmentIndex create(final ImmutableList<Value> values, final long totalLength) {
+            if (totalLength < 0) {
+                return UNINDEXED;
+            }
+            final long[] starts = new long[(int) values.size + 1];
+            final Source[] sources = new Source[(int) values.size];
+            final long[] sourceOffsets = new long[(int) values.size];
+            int count = 0;
+            long end = 0;
+            for (ImmutableList<Value> current = values; !current.isEmpty(); current = current.tail) {
+                final Slice slice = current.head.slice();
+                final long sliceOffset = toSafeLong(slice.offset);
+                final long sliceLength = toSafeLong(slice.length);
+                if (sliceOffset < 0 || sliceLength < 0) {
+                    return UNINDEXED;
+                }
+                if (sliceLength == 0) {
+                    continue;
+                }
+                if (count > 0 && sources[count - 1] == slice.source && sourceOffsets[count - 1] + (end - starts[count - 1]) == sliceOffset) {
+                    end += sliceLength;
+                    continue;
+                }
+                starts[count] = end;
+                sources[count] = slice.source;
+                sourceOffsets[count] = sliceOffset;
+                count++;
+                end += sliceLength;
+            }
+            starts[count] = end;
+            return new FragmentIndex(Arrays.copyOf(starts, count + 1), Arrays.copyOf(sources, count), Arrays.copyOf(sourceOffsets, count));
+        }
+
+        /**
+         * @return the index of the fragment that contains the byte at the given offset
+         */
+        int find(final long offset) {
+            int low = 0;
+            int high = sources.length - 1;
+            while (low < high) {
+                final int middle = (low + high + 1) >>> 1;
+                if (starts[middle] <= offset) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "(" + values + "(" + length + "))";
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
+
+import java.util.Objects;
+
+import io.parsingdata.metal.ImmutableObject;
+import io.parsingdata.metal.Util;
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.expression.value.ValueExpression;
+
+/**
+ * The result of evaluating a {@link ValueExpression} in a {@link ParseState}.
+ * <p>
+ * The <code>dataExpression</code> is evaluated at most once, on first use.
+ * A single instance is shared by all {@link DataExpressionSource}s that read
+ * from the results of the same evaluation (such as all iterations of a
+ * {@link io.parsingdata.metal.token.Tie}), so that each of them can access its
+ * value by index without evaluating the expression again.
+ */
+public class DataExpressionEvaluation extends ImmutableObject {
+
+    public final ValueExpression dataExpression;
+    public final ParseState parseState;
+    public final Encoding encoding;
+
+    private ImmutableList<Value> results; // Cached, not part of equals.
+    private Value[] indexedResults; // Cached, not part of equals. Private because array content is mutable.
+
+    public DataExpressionEvaluation(final ValueExpression dataExpression, final ParseState parseState, final Encoding encoding) {
+        this.dataExpression = checkNotNull(dataExpression, "dataExpression");
+        this.parseState = checkNotNull(parseState, "parseState");
+        this.encoding = checkNotNull(encoding, "encoding");
+    }
+
+    public synchronized ImmutableList<Value> getResults() {
+        if (results == null) {
+            results = dataExpression.eval(parseState, encoding);
+        }
+        return results;
+    }
+
+    public Value getValue(final int index) {
+        final Value[] values = getIndexedResults();
+        if (values.length <= index) {
+            throw new IllegalStateException(format("ValueExpression dataExpression yields %d result(s) (expected at least %d).", values.length, index + 1));
+        }
+        if (values[index].equals(NOT_A_VALUE)) {
+            throw new IllegalStateException(format("ValueExpression dataExpression yields NOT_A_VALUE at index %d.", index));
+        }
+        return values[index];
+    }
+
+    private synchronized Value[] getIndexedResults() {
+        if (indexedResults == null) {
+            final ImmutableList<Value> values = getResults();
+            indexedResults = new Value[(int) values.size];
+            int index = 0;
+            for (ImmutableList<Value> current = values; !current.isEmpty(); current = current.tail) {
+                indexedResults[index++] = current.head;
+            }
+        }
+        return indexedResults;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + dataExpression + "(" + parseState + "," + encoding + "))";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Objects.equals(dataExpression, ((DataExpressionEvaluation)obj).dataExpression)
+            && Objects.equals(parseState, ((DataExpressionEvaluation)obj).parseState)
+            && Objects.equals(encoding, ((DataExpressionEvaluation)obj).encoding);
+    }
+
+    @Override
+    public int immutableHashCode() {
+        return Objects.hash(getClass(), dataExpression, parseState, encoding);
+    }
+
+}
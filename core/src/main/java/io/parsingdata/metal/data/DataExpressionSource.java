@@ -17,17 +17,15 @@
 
 package io.parsingdata.metal.data;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNegative;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.format;
-import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.Optional;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.value.Value;
@@ -40,52 +38,61 @@ public class DataExpressionSource extends Source {
     public final ParseState parseState;
     public final Encoding encoding;
 
-    public byte[] cache = null;
+    private final DataExpressionEvaluation evaluation; // Not part of equals, because it is derived from the fields above.
 
     public DataExpressionSource(final ValueExpression dataExpression, final int index, final ParseState parseState, final Encoding encoding) {
-        this.dataExpression = checkNotNull(dataExpression, "dataExpression");
+        this(new DataExpressionEvaluation(dataExpression, parseState, encoding), index);
+    }
+
+    public DataExpressionSource(final DataExpressionEvaluation evaluation, final int index) {
+        this.evaluation = checkNotNull(evaluation, "evaluation");
+        this.dataExpression = evaluation.dataExpression;
         this.index = index;
-        this.parseState = checkNotNull(parseState, "parseState");
-        this.encoding = checkNotNull(encoding, "encoding");
+        this.parseState = evaluation.parseState;
+        this.encoding = evaluation.encoding;
     }
 
     @Override
     protected byte[] getData(final BigInteger offset, final BigInteger length) {
-        checkNotNegative(offset, "offset");
-        final byte[] data = getValue();
-        if (checkNotNegative(length, "length").add(offset).compareTo(BigInteger.valueOf(data.length)) > 0) {
+        final Value value = evaluation.getValue(index);
+        final Optional<Source> lazySource = value.lazySource();
+        if (lazySource.isPresent()) {
+            return lazySource.get().getData(offset, length);
+        }
+        final Slice slice = value.slice();
+        if (!isAvailable(slice, offset, length)) {
             throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
         }
-        final byte[] outputData = new byte[length.intValueExact()];
-        System.arraycopy(data, offset.intValueExact(), outputData, 0, outputData.length);
-        return outputData;
+        return slice.getData(offset, length);
     }
 
     @Override
-    protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
-        return checkNotNegative(offset, "offset").add(checkNotNegative(length, "length")).compareTo(BigInteger.valueOf(getValue().length)) <= 0;
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        final Value value = evaluation.getValue(index);
+        final Optional<Source> lazySource = value.lazySource();
+        if (lazySource.isPresent()) {
+            return lazySource.get().getBuffer(offset, length);
+        }
+        final Slice slice = value.slice();
+        if (!isAvailable(slice, offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        return slice.getBuffer(offset, length);
     }
 
-    private synchronized byte[] getValue() {
-        if (cache == null) {
-            final ImmutableList<Value> results = dataExpression.eval(parseState, encoding);
-            if (results.size <= index) {
-                throw new IllegalStateException(format("ValueExpression dataExpression yields %d result(s) (expected at least %d).", results.size, index+1));
-            }
-            final Value cacheValue = getValueAtIndex(results, index, 0).computeResult();
-            if (cacheValue.equals(NOT_A_VALUE)) {
-                throw new IllegalStateException(format("ValueExpression dataExpression yields NOT_A_VALUE at index %d.", index));
-            }
-            cache = cacheValue.value();
+    @Override
+    protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
+        final Value value = evaluation.getValue(index);
+        final Optional<Source> lazySource = value.lazySource();
+        if (lazySource.isPresent()) {
+            // Answered by the source, so the length of the value is not required.
+            return lazySource.get().isAvailable(offset, length);
         }
-        return cache;
+        return isAvailable(value.slice(), offset, length);
     }
 
-    private Trampoline<Value> getValueAtIndex(final ImmutableList<Value> results, final int index, final int current) {
-        if (index == current) {
-            return complete(() -> results.head);
-        }
-        return intermediate(() -> getValueAtIndex(results.tail, index, current + 1));
+    private boolean isAvailable(final Slice slice, final BigInteger offset, final BigInteger length) {
+        return checkNotNegative(offset, "offset").add(checkNotNegative(length, "length")).compareTo(slice.length) <= 0;
     }
 
     @Override
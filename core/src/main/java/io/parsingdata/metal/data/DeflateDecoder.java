@@ -0,0 +1,526 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ZERO;
+
+import static io.parsingdata.metal.Util.format;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Decoder for raw DEFLATE data (RFC 1951) that can be suspended and resumed
+ * at block boundaries.
+ * <p>
+ * Unlike {@link java.util.zip.Inflater}, the complete state of this decoder at
+ * a block boundary is small and explicit: the position in the input in bits,
+ * the position in the output and the last 32 KiB of output (the window that
+ * back-references may refer to). This allows {@link InflatedSource} to record
+ * checkpoints and to resume decoding from them.
+ * <p>
+ * Huffman codes of up to {@link #TABLE_BITS} bits are decoded with a single
+ * table lookup. Longer codes are decoded using the canonical code counts, as
+ * in the reference decoder <code>puff</code> by Mark Adler. Stored blocks are
+ * copied from the input in bulk.
+ */
+final class DeflateDecoder {
+
+    static final int WINDOW_SIZE = 1 << 15;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_BITS = 15;
+    static final int TABLE_BITS = 9;
+    private static final int MAX_LITERAL_CODES = 286;
+    private static final int MAX_DISTANCE_CODES = 30;
+    private static final int FIXED_LITERAL_CODES = 288;
+
+    private static final int[] LENGTH_BASE = { 3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+    private static final int[] LENGTH_EXTRA = { 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final int[] DISTANCE_BASE = { 1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577 };
+    private static final int[] DISTANCE_EXTRA = { 0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+    private static final int[] CODE_LENGTH_ORDER = { 16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+    private static final Huffman FIXED_LITERALS;
+    private static final Huffman FIXED_DISTANCES;
+
+    static {
+        final int[] lengths = new int[FIXED_LITERAL_CODES];
+        for (int symbol = 0; symbol < FIXED_LITERAL_CODES; symbol++) {
+            lengths[symbol] = symbol < 144 ? 8 : symbol < 256 ? 9 : symbol < 280 ? 7 : 8;
+        }
+        FIXED_LITERALS = new Huffman(lengths, 0, FIXED_LITERAL_CODES);
+        final int[] distanceLengths = new int[MAX_DISTANCE_CODES];
+        Arrays.fill(distanceLengths, 5);
+        FIXED_DISTANCES = new Huffman(distanceLengths, 0, MAX_DISTANCE_CODES);
+    }
+
+    private enum State { BLOCK_HEADER, STORED, HUFFMAN, DONE }
+
+    private final Slice input;
+    private final byte[] inputBuffer = new byte[INPUT_BUFFER_SIZE];
+    private BigInteger inputBufferOffset;
+    private int inputBufferLength;
+    private int inputBufferPosition;
+    private long bitBuffer;
+    private int bitCount;
+    private long bytesConsumed;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private long outputPosition;
+
+    private State state = State.BLOCK_HEADER;
+    private boolean lastBlock;
+    private int storedRemaining;
+    private Huffman literals;
+    private Huffman distances;
+    private int copyLength;
+    private int copyDistance;
+
+    DeflateDecoder(final Slice input) {
+        this.input = input;
+        inputBufferOffset = ZERO;
+    }
+
+    /**
+     * Resume decoding at a block boundary described by a checkpoint.
+     */
+    DeflateDecoder(final Slice input, final Checkpoint checkpoint) {
+        this.input = input;
+        bytesConsumed = checkpoint.bitPosition >>> 3;
+        inputBufferOffset = BigInteger.valueOf(bytesConsumed);
+        outputPosition = checkpoint.outputPosition;
+        lastBlock = checkpoint.lastBlock;
+        final byte[] history = checkpoint.window;
+        for (int i = 0; i < history.length; i++) {
+            window[(int) ((outputPosition - history.length + i) & WINDOW_MASK)] = history[i];
+        }
+        final int skipBits = (int) (checkpoint.bitPosition & 7);
+        if (skipBits != 0) {
+            bits(skipBits);
+        }
+    }
+
+    long outputPosition() {
+        return outputPosition;
+    }
+
+    boolean isDone() {
+        return state == State.DONE;
+    }
+
+    boolean isAtBlockBoundary() {
+        return state == State.BLOCK_HEADER && copyLength == 0;
+    }
+
+    Checkpoint checkpoint() {
+        final int historyLength = (int) Math.min(outputPosition, WINDOW_SIZE);
+        final byte[] history = new byte[historyLength];
+        for (int i = 0; i < historyLength; i++) {
+            history[i] = window[(int) ((outputPosition - historyLength + i) & WINDOW_MASK)];
+        }
+        return new Checkpoint(bytesConsumed * 8 - bitCount, outputPosition, lastBlock, history);
+    }
+
+    /**
+     * Copy already decoded data that is still in the window.
+     * @return <code>true</code> if the requested range was available in the window
+     */
+    boolean copyFromWindow(final long offset, final byte[] output, final int outputOffset, final int length) {
+        if (offset < outputPosition - Math.min(outputPosition, WINDOW_SIZE) || offset + length > outputPosition) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            output[outputOffset + i] = window[(int) ((offset + i) & WINDOW_MASK)];
+        }
+        return true;
+    }
+
+    /**
+     * Decode up to <code>length</code> bytes into <code>output</code>. Decoding
+     * stops early at the end of a block, so that the caller can record a
+     * checkpoint there.
+     * @return the number of decoded bytes, or <code>-1</code> at the end of the data
+     */
+    int read(final byte[] output, final int outputOffset, final int length) {
+        int produced = 0;
+        while (produced < length) {
+            if (copyLength > 0) {
+                final int count = Math.min(copyLength, length - produced);
+                for (int i = 0; i < count; i++) {
+                    emit(window[(int) ((outputPosition - copyDistance) & WINDOW_MASK)], output, outputOffset + produced++);
+                }
+                copyLength -= count;
+                continue;
+            }
+            switch (state) {
+                case BLOCK_HEADER:
+                    if (produced > 0) {
+                        return produced;
+                    }
+                    readBlockHeader();
+                    if (state == State.DONE) {
+                        return -1;
+                    }
+                    break;
+                case STORED:
+                    if (storedRemaining == 0) {
+                        state = State.BLOCK_HEADER;
+                        break;
+                    }
+                    produced += copyStored(output, outputOffset + produced, length - produced);
+                    break;
+                case HUFFMAN:
+                    decodeSymbol(output, outputOffset, produced);
+                    if (copyLength == 0 && state == State.HUFFMAN) {
+                        produced++;
+                    }
+                    break;
+                default:
+                    return produced == 0 ? -1 : produced;
+            }
+        }
+        return produced;
+    }
+
+    private void decodeSymbol(final byte[] output, final int outputOffset, final int produced) {
+        final int symbol = literals.decode(this);
+        if (symbol < 256) {
+            emit((byte) symbol, output, outputOffset + produced);
+            return;
+        }
+        if (symbol == 256) {
+            state = State.BLOCK_HEADER;
+            return;
+        }
+        final int lengthIndex = symbol - 257;
+        if (lengthIndex >= LENGTH_BASE.length) {
+            throw invalid("invalid literal/length symbol");
+        }
+        final int length = LENGTH_BASE[lengthIndex] + bits(LENGTH_EXTRA[lengthIndex]);
+        final int distanceSymbol = distances.decode(this);
+        if (distanceSymbol >= MAX_DISTANCE_CODES) {
+            throw invalid("invalid distance symbol");
+        }
+        final int distance = DISTANCE_BASE[distanceSymbol] + bits(DISTANCE_EXTRA[distanceSymbol]);
+        if (distance > outputPosition) {
+            throw invalid("distance too far back");
+        }
+        copyLength = length;
+        copyDistance = distance;
+    }
+
+    /**
+     * Copy stored data, first from the bits already read and then directly
+     * from the input buffer.
+     * @return the number of copied bytes
+     */
+    private int copyStored(final byte[] output, final int outputOffset, final int length) {
+        if (bitCount >= 8) {
+            emit((byte) bits(8), output, outputOffset);
+            storedRemaining--;
+            return 1;
+        }
+        if (inputBufferPosition == inputBufferLength && !refill()) {
+            throw invalid("unexpected end of input");
+        }
+        final int count = Math.min(Math.min(storedRemaining, length), inputBufferLength - inputBufferPosition);
+        System.arraycopy(inputBuffer, inputBufferPosition, output, outputOffset, count);
+        int copied = 0;
+        while (copied < count) {
+            final int windowIndex = (int) (outputPosition & WINDOW_MASK);
+            final int part = Math.min(count - copied, WINDOW_SIZE - windowIndex);
+            System.arraycopy(inputBuffer, inputBufferPosition + copied, window, windowIndex, part);
+            outputPosition += part;
+            copied += part;
+        }
+        inputBufferPosition += count;
+        bytesConsumed += count;
+        storedRemaining -= count;
+        return count;
+    }
+
+    private void emit(final byte value, final byte[] output, final int index) {
+        window[(int) (outputPosition & WINDOW_MASK)] = value;
+        output[index] = value;
+        outputPosition++;
+    }
+
+    private void readBlockHeader() {
+        if (lastBlock) {
+            state = State.DONE;
+            return;
+        }
+        lastBlock = bits(1) == 1;
+        final int type = bits(2);
+        switch (type) {
+            case 0:
+                readStoredHeader();
+                break;
+            case 1:
+                literals = FIXED_LITERALS;
+                distances = FIXED_DISTANCES;
+                state = State.HUFFMAN;
+                break;
+            case 2:
+                readDynamicTables();
+                state = State.HUFFMAN;
+                break;
+            default:
+                throw invalid("invalid block type");
+        }
+    }
+
+    private void readStoredHeader() {
+        bits(bitCount & 7); // Discard the remaining bits of the current byte.
+        final int length = bits(16);
+        final int complement = bits(16);
+        if (length != (~complement & 0xffff)) {
+            throw invalid("stored block length does not match its complement");
+        }
+        storedRemaining = length;
+        state = State.STORED;
+    }
+
+    private void readDynamicTables() {
+        final int literalCount = bits(5) + 257;
+        final int distanceCount = bits(5) + 1;
+        final int codeLengthCount = bits(4) + 4;
+        if (literalCount > MAX_LITERAL_CODES || distanceCount > MAX_DISTANCE_CODES) {
+            throw invalid("too many length or distance codes");
+        }
+        final int[] lengths = new int[MAX_LITERAL_CODES + MAX_DISTANCE_CODES];
+        for (int i = 0; i < codeLengthCount; i++) {
+            lengths[CODE_LENGTH_ORDER[i]] = bits(3);
+        }
+        final Huffman codeLengths = new Huffman(lengths, 0, CODE_LENGTH_ORDER.length);
+        if (codeLengths.incomplete) {
+            throw invalid("incomplete code length code");
+        }
+        Arrays.fill(lengths, 0, CODE_LENGTH_ORDER.length, 0);
+        int index = 0;
+        while (index < literalCount + distanceCount) {
+            int symbol = codeLengths.decode(this);
+            if (symbol < 16) {
+                lengths[index++] = symbol;
+                continue;
+            }
+            int length = 0;
+            if (symbol == 16) {
+                if (index == 0) {
+                    throw invalid("repeated length without a previous length");
+                }
+                length = lengths[index - 1];
+                symbol = 3 + bits(2);
+            } else if (symbol == 17) {
+                symbol = 3 + bits(3);
+            } else {
+                symbol = 11 + bits(7);
+            }
+            if (index + symbol > literalCount + distanceCount) {
+                throw invalid("too many code lengths");
+            }
+            while (symbol-- > 0) {
+                lengths[index++] = length;
+            }
+        }
+        if (lengths[256] == 0) {
+            throw invalid("missing end-of-block code");
+        }
+        literals = new Huffman(lengths, 0, literalCount);
+        distances = new Huffman(lengths, literalCount, distanceCount);
+    }
+
+    int bits(final int count) {
+        while (bitCount < count) {
+            if (inputBufferPosition == inputBufferLength && !refill()) {
+                throw invalid("unexpected end of input");
+            }
+            bitBuffer |= (long) nextByte() << bitCount;
+            bitCount += 8;
+        }
+        final int value = (int) (bitBuffer & ((1L << count) - 1));
+        bitBuffer >>>= count;
+        bitCount -= count;
+        return value;
+    }
+
+    /**
+     * Read bits ahead without consuming them, as far as the input allows.
+     * @return the next <code>count</code> bits, padded with zeros beyond the end of the input
+     */
+    private int peekBits(final int count) {
+        while (bitCount < count && (inputBufferPosition < inputBufferLength || refill())) {
+            bitBuffer |= (long) nextByte() << bitCount;
+            bitCount += 8;
+        }
+        return (int) (bitBuffer & ((1L << count) - 1));
+    }
+
+    private void dropBits(final int count) {
+        if (count > bitCount) {
+            throw invalid("unexpected end of input");
+        }
+        bitBuffer >>>= count;
+        bitCount -= count;
+    }
+
+    private int nextByte() {
+        bytesConsumed++;
+        return inputBuffer[inputBufferPosition++] & 0xff;
+    }
+
+    /**
+     * @return <code>false</code> if the end of the input has been reached
+     */
+    private boolean refill() {
+        inputBufferOffset = inputBufferOffset.add(BigInteger.valueOf(inputBufferLength));
+        final byte[] data = input.getData(inputBufferOffset, BigInteger.valueOf(INPUT_BUFFER_SIZE));
+        System.arraycopy(data, 0, inputBuffer, 0, data.length);
+        inputBufferLength = data.length;
+        inputBufferPosition = 0;
+        return data.length > 0;
+    }
+
+    private InvalidDataException invalid(final String reason) {
+        return new InvalidDataException(format("Invalid deflate data at input bit %d: %s.", bytesConsumed * 8 - bitCount, reason));
+    }
+
+    /**
+     * Thrown when the input is not valid DEFLATE data, as opposed to errors
+     * reading the input itself, which are propagated unchanged.
+     */
+    static final class InvalidDataException extends IllegalStateException {
+
+        InvalidDataException(final String message) {
+            super(message);
+        }
+
+    }
+
+    /**
+     * The state of a {@link DeflateDecoder} at a block boundary.
+     */
+    static final class Checkpoint {
+
+        final long bitPosition;
+        final long outputPosition;
+        final boolean lastBlock;
+        final byte[] window;
+
+        Checkpoint(final long bitPosition, final long outputPosition, final boolean lastBlock, final byte[] window) {
+            this.bitPosition = bitPosition;
+            this.outputPosition = outputPosition;
+            this.lastBlock = lastBlock;
+            this.window = window;
+        }
+
+    }
+
+    /**
+     * A canonical Huffman code, represented by the number of codes of each
+     * length and the symbols ordered by code. Codes of up to
+     * {@link #TABLE_BITS} bits are also stored in a table indexed by the next
+     * {@link #TABLE_BITS} bits of input, with each entry holding the symbol
+     * and the length of its code (zero if the code is longer).
+     */
+    private static final class Huffman {
+
+        final int[] counts = new int[MAX_BITS + 1];
+        final int[] symbols;
+        final int[] table = new int[1 << TABLE_BITS];
+        final boolean incomplete;
+
+        Huffman(final int[] lengths, final int offset, final int count) {
+            symbols = new int[count];
+            for (int symbol = 0; symbol < count; symbol++) {
+                counts[lengths[offset + symbol]]++;
+            }
+            int left = 1;
+            for (int length = 1; length <= MAX_BITS; length++) {
+                left <<= 1;
+                left -= counts[length];
+                if (left < 0) {
+                    throw new InvalidDataException("Invalid deflate data: over-subscribed Huffman code.");
+                }
+            }
+            incomplete = left > 0;
+            final int[] offsets = new int[MAX_BITS + 1];
+            for (int length = 1; length < MAX_BITS; length++) {
+                offsets[length + 1] = offsets[length] + counts[length];
+            }
+            for (int symbol = 0; symbol < count; symbol++) {
+                if (lengths[offset + symbol] != 0) {
+                    symbols[offsets[lengths[offset + symbol]]++] = symbol;
+                }
+            }
+            fillTable(lengths, offset, count);
+        }
+
+        // Codes are assigned in order of symbol per length (RFC 1951, 3.2.2) and read starting at their most significant bit.
+        private void fillTable(final int[] lengths, final int offset, final int count) {
+            final int[] nextCode = new int[MAX_BITS + 1];
+            int code = 0;
+            for (int length = 1; length <= MAX_BITS; length++) {
+                code = (code + (length == 1 ? 0 : counts[length - 1])) << 1;
+                nextCode[length] = code;
+            }
+            for (int symbol = 0; symbol < count; symbol++) {
+                final int length = lengths[offset + symbol];
+                if (length == 0) {
+                    continue;
+                }
+                final int reversed = Integer.reverse(nextCode[length]++) >>> (Integer.SIZE - length);
+                if (length <= TABLE_BITS) {
+                    for (int index = reversed; index < table.length; index += 1 << length) {
+                        table[index] = symbol << 4 | length;
+                    }
+                }
+            }
+        }
+
+        int decode(final DeflateDecoder decoder) {
+            final int entry = table[decoder.peekBits(TABLE_BITS)];
+            if (entry != 0) {
+                decoder.dropBits(entry & 0xf);
+                return entry >>> 4;
+            }
+            return decodeLong(decoder);
+        }
+
+        private int decodeLong(final DeflateDecoder decoder) {
+            int code = 0;
+            int first = 0;
+            int index = 0;
+            for (int length = 1; length <= MAX_BITS; length++) {
+                code |= decoder.bits(1);
+                final int count = counts[length];
+                if (code - count < first) {
+                    return symbols[index + (code - first)];
+                }
+                index += count;
+                first += count;
+                first <<= 1;
+                code <<= 1;
+            }
+            throw decoder.invalid("invalid Huffman code");
+        }
+
+    }
+
+}
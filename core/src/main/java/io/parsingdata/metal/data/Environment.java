@@ -19,7 +19,6 @@ package io.parsingdata.metal.data;
 
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.token.Token.NO_NAME;
-import static io.parsingdata.metal.token.Token.SEPARATOR;
 
 import io.parsingdata.metal.data.callback.Callbacks;
 import io.parsingdata.metal.encoding.Encoding;
@@ -28,12 +27,18 @@ import io.parsingdata.metal.token.Token;
 public class Environment {
 
     public final String scope;
+    public final ScopeName scopeName;
     public final ParseState parseState;
     public final Callbacks callbacks;
     public final Encoding encoding;
 
     public Environment(final String scope, final ParseState parseState, final Callbacks callbacks, final Encoding encoding) {
-        this.scope = checkNotNull(scope, "scope");
+        this(ScopeName.of(checkNotNull(scope, "scope")), parseState, callbacks, encoding);
+    }
+
+    private Environment(final ScopeName scopeName, final ParseState parseState, final Callbacks callbacks, final Encoding encoding) {
+        this.scopeName = scopeName;
+        this.scope = scopeName.toString();
         this.parseState = checkNotNull(parseState, "parseState");
         this.callbacks = checkNotNull(callbacks, "callbacks");
         this.encoding = checkNotNull(encoding, "encoding");
@@ -52,11 +57,11 @@ public class Environment {
     }
 
     public Environment withParseState(final ParseState parseState) {
-        return new Environment(scope, parseState, callbacks, encoding);
+        return new Environment(scopeName, parseState, callbacks, encoding);
     }
 
     public Environment withEncoding(final Encoding encoding) {
-        return new Environment(scope, parseState, callbacks, encoding);
+        return new Environment(scopeName, parseState, callbacks, encoding);
     }
 
     public Environment addBranch(final Token token) {
@@ -68,7 +73,7 @@ public class Environment {
     }
 
     public Environment extendScope(final String name) {
-        return new Environment(scope + (scope.isEmpty() || name.isEmpty() ? NO_NAME : SEPARATOR) + name, parseState, callbacks, encoding);
+        return new Environment(scopeName.extend(name), parseState, callbacks, encoding);
     }
 
 }
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.Util.toSafeLong;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.token.Token;
+
+/**
+ * A compact, read-only representation of a finished {@link ParseGraph}.
+ * <p>
+ * Every item in the graph (a graph, a {@link ParseValue} or a
+ * {@link ParseReference}) is identified by its index. Items are numbered in
+ * pre-order and in order of addition, so the root graph has index
+ * <code>0</code> and the items inside a graph directly follow it. All
+ * properties of the items are stored in primitive arrays (columns). Names,
+ * definitions, sources and encodings are interned and stored as indices into
+ * a table of distinct instances. Offsets and lengths are stored as
+ * <code>long</code>s. The tree structure is stored as the index of the parent
+ * of every item and the index directly after the last descendant of every
+ * item.
+ * <p>
+ * A {@link ParseValue} is only created when requested through
+ * {@link #value(int)}. For a reference, {@link #offset(int)} returns its
+ * location.
+ */
+public class FrozenParseGraph {
+
+    public static final int NO_ITEM = -1;
+
+    private static final byte GRAPH = 0;
+    private static final byte VALUE = 1;
+    private static final byte REFERENCE = 2;
+
+    public final int size;
+
+    private final byte[] kinds;
+    private final int[] parents;
+    private final int[] ends;
+    private final int[] definitions;
+    private final int[] names;
+    private final int[] sources;
+    private final int[] encodings;
+    private final long[] offsets;
+    private final long[] lengths;
+
+    private final Token[] definitionTable;
+    private final ScopeName[] nameTable;
+    private final Source[] sourceTable;
+    private final Encoding[] encodingTable;
+
+    private FrozenParseGraph(final Builder builder) {
+        size = builder.size;
+        kinds = Arrays.copyOf(builder.kinds, size);
+        parents = Arrays.copyOf(builder.parents, size);
+        ends = Arrays.copyOf(builder.ends, size);
+        definitions = Arrays.copyOf(builder.definitions, size);
+        names = Arrays.copyOf(builder.names, size);
+        sources = Arrays.copyOf(builder.sources, size);
+        encodings = Arrays.copyOf(builder.encodings, size);
+        offsets = Arrays.copyOf(builder.offsets, size);
+        lengths = Arrays.copyOf(builder.lengths, size);
+        definitionTable = builder.definitionTable.instances.toArray(new Token[0]);
+        nameTable = builder.nameTable.instances.toArray(new ScopeName[0]);
+        sourceTable = builder.sourceTable.instances.toArray(new Source[0]);
+        encodingTable = builder.encodingTable.instances.toArray(new Encoding[0]);
+    }
+
+    /**
+     * Convert a {@link ParseGraph} into its frozen representation. Offsets
+     * and lengths that do not fit in a <code>long</code> are not supported.
+     * @param graph the graph to freeze
+     * @return the frozen representation of the graph
+     */
+    public static FrozenParseGraph freeze(final ParseGraph graph) {
+        checkNotNull(graph, "graph");
+        final Builder builder = new Builder();
+        final Deque<Frame> frames = new ArrayDeque<>();
+        frames.push(new Frame(builder.addGraph(graph, NO_ITEM), graph));
+        while (!frames.isEmpty()) {
+            final Frame frame = frames.peek();
+            if (frame.next == frame.items.length) {
+                builder.ends[frame.index] = builder.size;
+                frames.pop();
+                continue;
+            }
+            final ParseItem item = frame.items[frame.next++];
+            if (item.isGraph()) {
+                frames.push(new Frame(builder.addGraph(item.asGraph(), frame.index), item.asGraph()));
+            } else if (item.isValue()) {
+                builder.addValue(item.asValue(), frame.index);
+            } else {
+                builder.addReference(item.asReference(), frame.index);
+            }
+        }
+        return new FrozenParseGraph(builder);
+    }
+
+    public boolean isGraph(final int item) {
+        return kinds[checkItem(item)] == GRAPH;
+    }
+
+    public boolean isValue(final int item) {
+        return kinds[checkItem(item)] == VALUE;
+    }
+
+    public boolean isReference(final int item) {
+        return kinds[checkItem(item)] == REFERENCE;
+    }
+
+    /**
+     * @return the index of the graph containing the item, or {@link #NO_ITEM} for the root
+     */
+    public int parent(final int item) {
+        return parents[checkItem(item)];
+    }
+
+    /**
+     * @return the index of the first item added to a graph, or {@link #NO_ITEM} if there is none
+     */
+    public int firstChild(final int item) {
+        return item + 1 < ends[checkItem(item)] ? item + 1 : NO_ITEM;
+    }
+
+    /**
+     * @return the index of the item added to the same graph directly after this item, or {@link #NO_ITEM} if there is none
+     */
+    public int nextSibling(final int item) {
+        final int parent = parent(item);
+        return parent != NO_ITEM && ends[item] < ends[parent] ? ends[item] : NO_ITEM;
+    }
+
+    public Token definition(final int item) {
+        return definitionTable[definitions[checkItem(item)]];
+    }
+
+    public String name(final int item) {
+        return nameTable[names[checkValue(item)]].toString();
+    }
+
+    public Encoding encoding(final int item) {
+        return encodingTable[encodings[checkValue(item)]];
+    }
+
+    public Source source(final int item) {
+        if (isGraph(item)) {
+            throw new IllegalArgumentException(format("Item %d is a graph and has no source.", item));
+        }
+        return sourceTable[sources[item]];
+    }
+
+    /**
+     * @return the offset of a value, or the location of a reference
+     */
+    public long offset(final int item) {
+        if (isGraph(item)) {
+            throw new IllegalArgumentException(format("Item %d is a graph and has no offset.", item));
+        }
+        return offsets[item];
+    }
+
+    public long length(final int item) {
+        return lengths[checkValue(item)];
+    }
+
+    /**
+     * Create the {@link ParseValue} stored at the provided index.
+     */
+    public ParseValue value(final int item) {
+        final Slice slice = Slice.createFromSource(source(checkValue(item)), BigInteger.valueOf(offsets[item]), BigInteger.valueOf(lengths[item]))
+            .orElseThrow(() -> new IllegalStateException(format("Data of item %d is no longer available.", item)));
+        return new ParseValue(nameTable[names[item]], definition(item), slice, encoding(item));
+    }
+
+    /**
+     * @return the indices of all values matching the provided name (as in {@link ParseValue#matches(String)}), in order of addition
+     */
+    public int[] values(final String name) {
+        final ScopeName scopeName = ScopeName.of(checkNotNull(name, "name"));
+        final boolean[] matching = new boolean[nameTable.length];
+        for (int i = 0; i < nameTable.length; i++) {
+            matching[i] = nameTable[i].matches(scopeName);
+        }
+        return select(item -> kinds[item] == VALUE && matching[names[item]]);
+    }
+
+    /**
+     * @return the indices of all values with the provided definition, in order of addition
+     */
+    public int[] values(final Token definition) {
+        checkNotNull(definition, "definition");
+        final int id = Arrays.asList(definitionTable).indexOf(definition);
+        return select(item -> kinds[item] == VALUE && definitions[item] == id);
+    }
+
+    private int[] select(final IntPredicate predicate) {
+        int[] result = new int[16];
+        int count = 0;
+        for (int item = 0; item < size; item++) {
+            if (predicate.test(item)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = item;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int checkItem(final int item) {
+        if (item < 0 || item >= size) {
+            throw new IndexOutOfBoundsException(format("Item %d out of range for %d item(s).", item, size));
+        }
+        return item;
+    }
+
+    private int checkValue(final int item) {
+        if (!isValue(item)) {
+            throw new IllegalArgumentException(format("Item %d is not a value.", item));
+        }
+        return item;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(size:" + size + ";names:" + nameTable.length + ";definitions:" + definitionTable.length + ")";
+    }
+
+    /**
+     * A graph being frozen, with its items in order of addition.
+     */
+    private static final class Frame {
+
+        final int index;
+        final ParseItem[] items;
+        int next;
+
+        Frame(final int index, final ParseGraph graph) {
+            this.index = index;
+            items = new ParseItem[(int) graph.size];
+            int position = items.length;
+            for (ParseGraph current = graph; !current.isEmpty(); current = current.tail) {
+                items[--position] = current.head;
+            }
+        }
+
+    }
+
+    private static final class Builder {
+
+        int size;
+        byte[] kinds = new byte[16];
+        int[] parents = new int[16];
+        int[] ends = new int[16];
+        int[] definitions = new int[16];
+        int[] names = new int[16];
+        int[] sources = new int[16];
+        int[] encodings = new int[16];
+        long[] offsets = new long[16];
+        long[] lengths = new long[16];
+
+        final Table<Token> definitionTable = new Table<>();
+        final Table<ScopeName> nameTable = new Table<>();
+        final Table<Source> sourceTable = new Table<>();
+        final Table<Encoding> encodingTable = new Table<>();
+
+        int addGraph(final ParseGraph graph, final int parent) {
+            return add(GRAPH, parent, graph.definition, NO_ITEM, NO_ITEM, NO_ITEM, 0, 0);
+        }
+
+        void addValue(final ParseValue value, final int parent) {
+            final int item = add(VALUE, parent, value.definition, nameTable.intern(value.scopeName), sourceTable.intern(value.slice().source), encodingTable.intern(value.encoding()), toLong(value.slice().offset), toLong(value.slice().length));
+            ends[item] = item + 1;
+        }
+
+        void addReference(final ParseReference reference, final int parent) {
+            final int item = add(REFERENCE, parent, reference.definition, NO_ITEM, sourceTable.intern(reference.source), NO_ITEM, toLong(reference.location), 0);
+            ends[item] = item + 1;
+        }
+
+        private int add(final byte kind, final int parent, final Token definition, final int name, final int source, final int encoding, final long offset, final long length) {
+            if (size == kinds.length) {
+                final int capacity = size * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                definitions = Arrays.copyOf(definitions, capacity);
+                names = Arrays.copyOf(names, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+                encodings = Arrays.copyOf(encodings, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            kinds[size] = kind;
+            parents[size] = parent;
+            definitions[size] = definitionTable.intern(definition);
+            names[size] = name;
+            sources[size] = source;
+            encodings[size] = encoding;
+            offsets[size] = offset;
+            lengths[size] = length;
+            return size++;
+        }
+
+        private static long toLong(final BigInteger value) {
+            final long result = toSafeLong(value);
+            if (result < 0) {
+                throw new IllegalArgumentException(format("Offset or length %d is too large to freeze.", value));
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Distinct instances of a type, each identified by its index.
+     */
+    private static final class Table<T> {
+
+        final List<T> instances = new ArrayList<>();
+        private final Map<T, Integer> ids = new HashMap<>();
+
+        int intern(final T instance) {
+            return ids.computeIfAbsent(instance, key -> {
+                instances.add(instance);
+                return instances.size() - 1;
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import io.parsingdata.metal.ImmutableObject;
+import io.parsingdata.metal.Util;
+
+/**
+ * A persistent hash map, implemented as a hash array mapped trie (HAMT).
+ * <p>
+ * Every node branches 32 ways on the next 5 bits of the hash of a key and
+ * only stores the occupied branches, as indicated by a bitmap. Adding an
+ * entry copies only the nodes on the path to the entry, so {@link #put} takes
+ * time logarithmic in the size of the map and all previous versions of the
+ * map remain valid. Keys with equal hashes are stored together in a
+ * collision node. Keys and values may not be <code>null</code>.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class ImmutableHashMap<K, V> extends ImmutableObject {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    public final int size;
+
+    public ImmutableHashMap() {
+        this(new BitmapNode(0, new Object[0]), 0);
+    }
+
+    private ImmutableHashMap(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(final K key) {
+        return (V) root.get(checkNotNull(key, "key"), key.hashCode(), 0);
+    }
+
+    public V getOrDefault(final K key, final V defaultValue) {
+        final V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public ImmutableHashMap<K, V> put(final K key, final V value) {
+        final Entry entry = new Entry(checkNotNull(key, "key"), checkNotNull(value, "value"));
+        return new ImmutableHashMap<>(root.put(entry, 0), get(key) == null ? size + 1 : size);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(final BiConsumer<K, V> action) {
+        root.forEach(entry -> action.accept((K) entry.key, (V) entry.value));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!Util.notNullAndSameClass(this, obj) || size != ((ImmutableHashMap<?, ?>)obj).size) {
+            return false;
+        }
+        final boolean[] equal = { true };
+        root.forEach(entry -> equal[0] &= entry.value.equals(((ImmutableHashMap<?, ?>)obj).root.get(entry.key, entry.hash, 0)));
+        return equal[0];
+    }
+
+    @Override
+    public int immutableHashCode() {
+        final int[] hash = { 0 };
+        root.forEach(entry -> hash[0] += entry.key.hashCode() ^ entry.value.hashCode());
+        return Objects.hash(getClass(), hash[0]);
+    }
+
+    private static final class Entry {
+
+        final Object key;
+        final Object value;
+        final int hash;
+
+        Entry(final Object key, final Object value) {
+            this.key = key;
+            this.value = value;
+            hash = key.hashCode();
+        }
+
+    }
+
+    private interface Node {
+
+        Object get(Object key, int hash, int shift);
+
+        Node put(Entry entry, int shift);
+
+        void forEach(Consumer<Entry> action);
+
+    }
+
+    /**
+     * A node that stores the occupied branches of a 32-way branch, each of
+     * which is either an {@link Entry} or a child {@link Node}.
+     */
+    private static final class BitmapNode implements Node {
+
+        private final int bitmap;
+        private final Object[] branches;
+
+        BitmapNode(final int bitmap, final Object[] branches) {
+            this.bitmap = bitmap;
+            this.branches = branches;
+        }
+
+        @Override
+        public Object get(final Object key, final int hash, final int shift) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final Object branch = branches[index(bit)];
+            if (branch instanceof Node) {
+                return ((Node) branch).get(key, hash, shift + BITS);
+            }
+            return ((Entry) branch).key.equals(key) ? ((Entry) branch).value : null;
+        }
+
+        @Override
+        public Node put(final Entry entry, final int shift) {
+            final int bit = bit(entry.hash, shift);
+            final int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                final Object[] newBranches = new Object[branches.length + 1];
+                System.arraycopy(branches, 0, newBranches, 0, index);
+                newBranches[index] = entry;
+                System.arraycopy(branches, index, newBranches, index + 1, branches.length - index);
+                return new BitmapNode(bitmap | bit, newBranches);
+            }
+            final Object branch = branches[index];
+            final Object newBranch;
+            if (branch instanceof Node) {
+                newBranch = ((Node) branch).put(entry, shift + BITS);
+            } else if (((Entry) branch).key.equals(entry.key)) {
+                newBranch = entry;
+            } else {
+                newBranch = merge((Entry) branch, entry, shift + BITS);
+            }
+            final Object[] newBranches = branches.clone();
+            newBranches[index] = newBranch;
+            return new BitmapNode(bitmap, newBranches);
+        }
+
+        @Override
+        public void forEach(final Consumer<Entry> action) {
+            for (final Object branch : branches) {
+                if (branch instanceof Node) {
+                    ((Node) branch).forEach(action);
+                } else {
+                    action.accept((Entry) branch);
+                }
+            }
+        }
+
+        private int index(final int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bit(final int hash, final int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private static Node merge(final Entry first, final Entry second, final int shift) {
+            if (first.hash == second.hash) {
+                return new CollisionNode(first.hash, new Entry[] { first, second });
+            }
+            final int firstBit = bit(first.hash, shift);
+            final int secondBit = bit(second.hash, shift);
+            if (firstBit == secondBit) {
+                return new BitmapNode(firstBit, new Object[] { merge(first, second, shift + BITS) });
+            }
+            return new BitmapNode(firstBit | secondBit, Integer.compareUnsigned(firstBit, secondBit) < 0 ? new Object[] { first, second } : new Object[] { second, first });
+        }
+
+    }
+
+    /**
+     * A node that stores entries of which the keys have equal hashes.
+     */
+    private static final class CollisionNode implements Node {
+
+        private final int hash;
+        private final Entry[] entries;
+
+        CollisionNode(final int hash, final Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        public Object get(final Object key, final int hash, final int shift) {
+            for (final Entry entry : entries) {
+                if (entry.key.equals(key)) {
+                    return entry.value;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Node put(final Entry entry, final int shift) {
+            if (entry.hash != hash) {
+                return new BitmapNode(BitmapNode.bit(hash, shift), new Object[] { this }).put(entry, shift);
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].key.equals(entry.key)) {
+                    final Entry[] newEntries = entries.clone();
+                    newEntries[i] = entry;
+                    return new CollisionNode(hash, newEntries);
+                }
+            }
+            final Entry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newEntries[entries.length] = entry;
+            return new CollisionNode(hash, newEntries);
+        }
+
+        @Override
+        public void forEach(final Consumer<Entry> action) {
+            for (final Entry entry : entries) {
+                action.accept(entry);
+            }
+        }
+
+    }
+
+}
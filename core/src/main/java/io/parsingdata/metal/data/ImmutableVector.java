@@ -0,0 +1,247 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import io.parsingdata.metal.ImmutableObject;
+import io.parsingdata.metal.Util;
+
+/**
+ * A persistent vector with random access, implemented as a 32-way radix tree.
+ * <p>
+ * Elements are stored in leaves of 32 elements. Index <code>i</code> is
+ * located by using each subsequent 5 bits of <code>i</code> (most significant
+ * first) to select a branch, so {@link #get(long)} takes time logarithmic in
+ * the size of the vector. The last (partial) leaf is kept outside of the tree
+ * as the tail, so most calls to {@link #add(Object)} only copy the tail.
+ * Adding a full tail to the tree copies only the nodes on the path to it. All
+ * previous versions of the vector remain valid. Elements may not be
+ * <code>null</code>.
+ * <p>
+ * Unlike {@link ImmutableList}, which adds elements at its head, index
+ * <code>0</code> of a vector is the element that was added first.
+ *
+ * @param <T> type of the elements
+ */
+public class ImmutableVector<T> extends ImmutableObject {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+    public final long size;
+
+    public ImmutableVector() {
+        this(0, BITS, EMPTY_NODE, new Object[0]);
+    }
+
+    private ImmutableVector(final long size, final int shift, final Object[] root, final Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Create a vector with the elements of a list, in order of addition to
+     * the list. The head of the list becomes the last element of the vector.
+     */
+    public static <T> ImmutableVector<T> create(final ImmutableList<T> list) {
+        checkNotNull(list, "list");
+        if (list.size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(format("List of size %d is too large to convert to a vector.", list.size));
+        }
+        final Object[] elements = new Object[(int) list.size];
+        int index = elements.length - 1;
+        for (ImmutableList<T> current = list; !current.isEmpty(); current = current.tail) {
+            elements[index--] = current.head;
+        }
+        return fromArray(elements);
+    }
+
+    /**
+     * Builds the tree bottom-up, filling every leaf and node completely, which
+     * is the same shape that repeated calls to {@link #add(Object)} produce.
+     */
+    private static <T> ImmutableVector<T> fromArray(final Object[] elements) {
+        if (elements.length == 0) {
+            return new ImmutableVector<>();
+        }
+        final int tailOffset = tailOffset(elements.length);
+        Object[] nodes = new Object[tailOffset >>> BITS];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = Arrays.copyOfRange(elements, i << BITS, (i + 1) << BITS);
+        }
+        int shift = BITS;
+        while (nodes.length > WIDTH) {
+            final Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = Arrays.copyOfRange(nodes, i << BITS, (i + 1) << BITS);
+            }
+            nodes = parents;
+            shift += BITS;
+        }
+        return new ImmutableVector<>(elements.length, shift, Arrays.copyOf(nodes, WIDTH), Arrays.copyOfRange(elements, tailOffset, elements.length));
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(final long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(format("Index %d out of range for %d element(s).", index, size));
+        }
+        final int position = (int) index;
+        return (T) leafFor(position)[position & MASK];
+    }
+
+    private Object[] leafFor(final int index) {
+        if (index >= tailOffset((int) size)) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    public ImmutableVector<T> add(final T element) {
+        checkNotNull(element, "element");
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException(format("Vector of size %d can not grow any further.", size));
+        }
+        if (size - tailOffset((int) size) < WIDTH) {
+            final Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new ImmutableVector<>(size + 1, shift, root, newTail);
+        }
+        // The tail is full, so it is moved into the tree, which grows a level if it is full as well.
+        if ((size >>> BITS) > (1L << shift)) {
+            final Object[] newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            return new ImmutableVector<>(size + 1, shift + BITS, newRoot, new Object[] { element });
+        }
+        return new ImmutableVector<>(size + 1, shift, pushTail(shift, root), new Object[] { element });
+    }
+
+    /**
+     * Append all elements of the provided vector, in order. Takes time
+     * proportional to the size of that vector times the logarithm of the size
+     * of the result.
+     */
+    public ImmutableVector<T> add(final ImmutableVector<T> vector) {
+        checkNotNull(vector, "vector");
+        if (isEmpty()) {
+            return vector;
+        }
+        ImmutableVector<T> result = this;
+        for (long i = 0; i < vector.size; i++) {
+            result = result.add(vector.get(i));
+        }
+        return result;
+    }
+
+    private Object[] pushTail(final int level, final Object[] parent) {
+        final int branch = (((int) size - 1) >>> level) & MASK;
+        final Object[] node = parent.clone();
+        if (level == BITS) {
+            node[branch] = tail;
+        } else {
+            final Object[] child = (Object[]) parent[branch];
+            node[branch] = child == null ? newPath(level - BITS, tail) : pushTail(level - BITS, child);
+        }
+        return node;
+    }
+
+    private static Object[] newPath(final int level, final Object[] leaf) {
+        if (level == 0) {
+            return leaf;
+        }
+        final Object[] node = new Object[WIDTH];
+        node[0] = newPath(level - BITS, leaf);
+        return node;
+    }
+
+    private static int tailOffset(final int size) {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(final Consumer<T> action) {
+        for (int index = 0; index < size; index += WIDTH) {
+            final Object[] leaf = leafFor(index);
+            for (int i = 0; i < leaf.length && index + i < size; i++) {
+                action.accept((T) leaf[i]);
+            }
+        }
+    }
+
+    /**
+     * Convert to an {@link ImmutableList}, with the last element of the vector
+     * as its head.
+     */
+    public ImmutableList<T> toList() {
+        ImmutableList<T> list = new ImmutableList<>();
+        for (long i = 0; i < size; i++) {
+            list = list.add(get(i));
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        forEach(element -> builder.append(builder.length() > 1 ? "," : "").append(element));
+        return builder.append(']').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!Util.notNullAndSameClass(this, obj) || size != ((ImmutableVector<?>)obj).size) {
+            return false;
+        }
+        for (long i = 0; i < size; i++) {
+            if (!get(i).equals(((ImmutableVector<?>)obj).get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int immutableHashCode() {
+        final int[] hash = { 0 };
+        forEach(element -> hash[0] = 31 * hash[0] + element.hashCode());
+        return Objects.hash(getClass(), hash[0]);
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNegative;
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.Util.toSafeLong;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import io.parsingdata.metal.Util;
+import io.parsingdata.metal.data.DeflateDecoder.Checkpoint;
+import io.parsingdata.metal.data.DeflateDecoder.InvalidDataException;
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.value.Value;
+
+/**
+ * A {@link Source} that provides the inflated contents of a raw DEFLATE
+ * stream (RFC 1951) located in a {@link Slice}.
+ * <p>
+ * Data is decompressed on demand. While decoding, the state of the decoder
+ * is recorded at block boundaries, at least <code>checkpointInterval</code>
+ * bytes of output apart (at every block boundary if it is zero). A read is
+ * served from the last 32 KiB of decoded output if possible, otherwise
+ * decoding resumes from the nearest checkpoint at or before the requested
+ * offset, so random reads never require decompressing the stream from the
+ * start more than once.
+ * <p>
+ * Once the input is found not to be valid DEFLATE data (including input that
+ * ends before the last block does), no data is available at all, as with
+ * {@link io.parsingdata.metal.Util#inflate}. Since decoding is done on
+ * demand, reads that precede the discovery of the error do succeed. Errors
+ * reading the input itself are propagated.
+ */
+public class InflatedSource extends Source {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1 << 20;
+    private static final int SKIP_BUFFER_SIZE = 1 << 16;
+
+    public final Slice input;
+    public final int checkpointInterval;
+
+    // Decoding state, guarded by this. Not part of equals.
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private DeflateDecoder cursor;
+    private long decodedLength;
+    private boolean ended;
+    private boolean invalid;
+
+    public InflatedSource(final Slice input) {
+        this(input, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public InflatedSource(final Slice input, final int checkpointInterval) {
+        this.input = checkNotNull(input, "input");
+        checkNotNegative(checkpointInterval, "checkpointInterval");
+        this.checkpointInterval = checkpointInterval;
+        checkpoints.add(new Checkpoint(0, 0, false, new byte[0]));
+    }
+
+    /**
+     * Returns the length of the inflated data. Requires decoding the complete
+     * input once, recording checkpoints along the way.
+     * @return the length of the inflated data, or empty if the input is not valid DEFLATE data
+     */
+    public synchronized Optional<BigInteger> size() {
+        advance(Long.MAX_VALUE);
+        return invalid ? Optional.empty() : Optional.of(BigInteger.valueOf(decodedLength));
+    }
+
+    /**
+     * Create a value containing the inflated data. Only the start of the
+     * input is decoded up front. The length of the value is determined when
+     * it is first required, which a {@link DataExpressionSource} avoids. If
+     * the input is found to be invalid at that point, the value behaves as
+     * {@link io.parsingdata.metal.expression.value.NotAValue#NOT_A_VALUE}.
+     * @param encoding the encoding of the value
+     * @return the value, or empty if the input does not start with valid DEFLATE data
+     */
+    public Optional<Value> toValue(final Encoding encoding) {
+        checkNotNull(encoding, "encoding");
+        synchronized (this) {
+            advance(1);
+            if (invalid) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new InflatedValue(this, encoding));
+    }
+
+    @Override
+    protected byte[] getData(final BigInteger offset, final BigInteger length) {
+        final long longOffset = toSafeLong(checkNotNegative(offset, "offset"));
+        final long longLength = toSafeLong(checkNotNegative(length, "length"));
+        if (longOffset < 0 || longLength < 0) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        return getData(longOffset, longLength);
+    }
+
+    @Override
+    protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
+        final long longOffset = toSafeLong(checkNotNegative(offset, "offset"));
+        final long longLength = toSafeLong(checkNotNegative(length, "length"));
+        return longOffset >= 0 && longLength >= 0 && isAvailable(longOffset, longLength);
+    }
+
+    @Override
+    protected synchronized byte[] getData(final long offset, final long length) {
+        if (!isAvailable(offset, length)) {
+            throw new IllegalStateException(format("Data to read is not available ([offset=%d;length=%d;source=%s).", offset, length, this));
+        }
+        final byte[] outputData = new byte[Math.toIntExact(length)];
+        if (cursor != null && cursor.copyFromWindow(offset, outputData, 0, outputData.length)) {
+            return outputData;
+        }
+        seek(offset);
+        int position = 0;
+        while (position < outputData.length) {
+            position += decode(outputData, position, outputData.length - position);
+        }
+        return outputData;
+    }
+
+    @Override
+    protected synchronized boolean isAvailable(final long offset, final long length) {
+        final long end = checkNotNegative(offset, "offset") + checkNotNegative(length, "length");
+        if (end > decodedLength) {
+            advance(end);
+        }
+        return !invalid && end <= decodedLength;
+    }
+
+    private void advance(final long end) {
+        if (ended) {
+            return;
+        }
+        seek(decodedLength);
+        final byte[] skipped = new byte[SKIP_BUFFER_SIZE];
+        try {
+            while (!ended && decodedLength < end) {
+                decode(skipped, 0, skipped.length);
+            }
+        } catch (final InvalidDataException e) {
+            ended = true;
+            invalid = true;
+            cursor = null;
+        }
+    }
+
+    private void seek(final long offset) {
+        final Checkpoint checkpoint = floorCheckpoint(offset);
+        if (cursor == null || cursor.outputPosition() > offset || cursor.outputPosition() < checkpoint.outputPosition) {
+            cursor = new DeflateDecoder(input, checkpoint);
+        }
+        final byte[] skipped = new byte[(int) Math.min(SKIP_BUFFER_SIZE, offset - cursor.outputPosition())];
+        while (cursor.outputPosition() < offset) {
+            decode(skipped, 0, (int) Math.min(skipped.length, offset - cursor.outputPosition()));
+        }
+    }
+
+    private Checkpoint floorCheckpoint(final long offset) {
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (checkpoints.get(middle).outputPosition <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return checkpoints.get(low);
+    }
+
+    private int decode(final byte[] outputData, final int offset, final int length) {
+        final int count = cursor.read(outputData, offset, length);
+        decodedLength = Math.max(decodedLength, cursor.outputPosition());
+        if (count < 0) {
+            ended = true;
+            return 0;
+        }
+        final long lastCheckpoint = checkpoints.get(checkpoints.size() - 1).outputPosition;
+        if (cursor.isAtBlockBoundary() && cursor.outputPosition() > lastCheckpoint && cursor.outputPosition() - lastCheckpoint >= checkpointInterval) {
+            checkpoints.add(cursor.checkpoint());
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + input + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Objects.equals(input, ((InflatedSource)obj).input)
+            && checkpointInterval == ((InflatedSource)obj).checkpointInterval;
+    }
+
+    @Override
+    public int immutableHashCode() {
+        return Objects.hash(getClass(), input, checkpointInterval);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ZERO;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.Optional;
+
+import io.parsingdata.metal.ImmutableObject;
+import io.parsingdata.metal.Util;
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.expression.value.CoreValue;
+import io.parsingdata.metal.expression.value.Value;
+
+/**
+ * A {@link Value} containing the data of an {@link InflatedSource}, of which
+ * the length is only determined when it is required. A
+ * {@link DataExpressionSource} reads from the {@link InflatedSource}
+ * directly through {@link #lazySource()}, so parsing the value only inflates
+ * the parts that are read. If the input turns out not to be valid DEFLATE
+ * data, all operations behave as those of {@link
+ * io.parsingdata.metal.expression.value.NotAValue#NOT_A_VALUE}.
+ */
+final class InflatedValue extends ImmutableObject implements Value {
+
+    private final InflatedSource source;
+    private final Encoding encoding;
+
+    private volatile Value complete; // Cached, not part of equals.
+
+    InflatedValue(final InflatedSource source, final Encoding encoding) {
+        this.source = checkNotNull(source, "source");
+        this.encoding = checkNotNull(encoding, "encoding");
+    }
+
+    private Value complete() {
+        Value result = complete;
+        if (result == null) {
+            result = source.size()
+                .flatMap(length -> Slice.createFromSource(source, ZERO, length))
+                .<Value>map(slice -> new CoreValue(slice, encoding))
+                .orElse(NOT_A_VALUE);
+            complete = result;
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Source> lazySource() {
+        return Optional.of(source);
+    }
+
+    @Override public Slice slice() { return complete().slice(); }
+
+    @Override public Encoding encoding() { return encoding; }
+
+    @Override public byte[] value() { return complete().value(); }
+
+    @Override public ByteBuffer buffer() { return complete().buffer(); }
+
+    @Override public BigInteger length() { return complete().length(); }
+
+    @Override public BigInteger asNumeric() { return complete().asNumeric(); }
+
+    @Override public String asString() { return complete().asString(); }
+
+    @Override public BitSet asBitSet() { return complete().asBitSet(); }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + source + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Objects.equals(source, ((InflatedValue)obj).source)
+            && Objects.equals(encoding, ((InflatedValue)obj).encoding);
+    }
+
+    @Override
+    public int immutableHashCode() {
+        return Objects.hash(getClass(), source, encoding);
+    }
+
+}
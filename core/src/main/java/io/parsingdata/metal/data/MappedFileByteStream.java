@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import io.parsingdata.metal.Util;
+
+/**
+ * A {@link SizedByteStream} that provides read access to a file by mapping it into
+ * memory.
+ * <p>
+ * The file is mapped as a sequence of segments of at most
+ * <code>segmentSize</code> bytes each, so that files larger than the 2 GB limit
+ * of a single {@link MappedByteBuffer} can be parsed. Reads are served directly
+ * from the mapped segments, which means that once a part of the file is in the
+ * operating system's page cache, no further system calls are required to read
+ * it. Reads that cross a segment boundary are combined transparently.
+ */
+public class MappedFileByteStream implements SizedByteStream {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    public final Path path;
+    public final long size;
+    private final int segmentSize;
+    private final MappedByteBuffer[] segments; // Private because array content is mutable.
+
+    public MappedFileByteStream(final Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedFileByteStream(final Path path, final int segmentSize) throws IOException {
+        this.path = checkNotNull(path, "path");
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException(format("Argument segmentSize must be positive, but is %d.", segmentSize));
+        }
+        this.segmentSize = segmentSize;
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+            for (int i = 0; i < segments.length; i++) {
+                final long position = (long) i * segmentSize;
+                segments[i] = channel.map(READ_ONLY, position, Math.min(segmentSize, size - position));
+            }
+        }
+    }
+
+    @Override
+    public byte[] read(final BigInteger offset, final int length) throws IOException {
+        if (!isAvailable(offset, BigInteger.valueOf(length))) {
+            throw new IOException(format("Data to read is not available (offset=%s;length=%d;size=%d).", offset, length, size));
+        }
+        return read(offset.longValueExact(), length);
+    }
+
+    @Override
+    public byte[] read(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available (offset=%d;length=%d;size=%d).", offset, length, size));
+        }
+        final byte[] data = new byte[length];
+        long position = offset;
+        int copied = 0;
+        while (copied < length) {
+            final MappedByteBuffer segment = segments[(int) (position / segmentSize)];
+            final int segmentOffset = (int) (position % segmentSize);
+            final int count = Math.min(length - copied, segment.limit() - segmentOffset);
+            segment.duplicate().position(segmentOffset).get(data, copied, count);
+            copied += count;
+            position += count;
+        }
+        return data;
+    }
+
+    @Override
+    public ByteBuffer readBuffer(final BigInteger offset, final int length) throws IOException {
+        if (!isAvailable(offset, BigInteger.valueOf(length))) {
+            throw new IOException(format("Data to read is not available (offset=%s;length=%d;size=%d).", offset, length, size));
+        }
+        return readBuffer(offset.longValueExact(), length);
+    }
+
+    @Override
+    public ByteBuffer readBuffer(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available (offset=%d;length=%d;size=%d).", offset, length, size));
+        }
+        if (length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        final MappedByteBuffer segment = segments[(int) (offset / segmentSize)];
+        final int segmentOffset = (int) (offset % segmentSize);
+        if (segmentOffset + length > segment.limit()) {
+            return ByteBuffer.wrap(read(offset, length));
+        }
+        return segment.duplicate().position(segmentOffset).limit(segmentOffset + length).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + path + ";" + size + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Objects.equals(path, ((MappedFileByteStream)obj).path)
+            && size == ((MappedFileByteStream)obj).size
+            && segmentSize == ((MappedFileByteStream)obj).segmentSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), path, size, segmentSize);
+    }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import io.parsingdata.metal.Util;
+import io.parsingdata.metal.token.Token;
+
+/**
+ * Index of the offsets of the items in a {@link ParseGraph}, built in a single
+ * pass over the graph.
+ * <p>
+ * The index answers two kinds of queries:
+ * <ul>
+ * <li>{@link #resolve(ParseReference)} finds the item a {@link ParseReference}
+ * points to, with the same result as {@link ParseReference#resolve(ParseGraph)}
+ * but in constant time.</li>
+ * <li>{@link #getCovering(Source, BigInteger)} finds all values whose data
+ * contains the byte at an offset in a source, in time logarithmic in the
+ * number of values in that source (plus the number of results).</li>
+ * </ul>
+ */
+public class OffsetIndex {
+
+    private final Map<Location, Root> roots;
+    private final Map<Source, Intervals> intervals;
+
+    private OffsetIndex(final Map<Location, Root> roots, final Map<Source, Intervals> intervals) {
+        this.roots = roots;
+        this.intervals = intervals;
+    }
+
+    public static OffsetIndex create(final ParseGraph graph) {
+        checkNotNull(graph, "graph");
+        final Map<Location, Root> roots = new HashMap<>();
+        final Map<Source, List<ParseValue>> values = new HashMap<>();
+        final Deque<Frame> frames = new ArrayDeque<>();
+        long rank = 0;
+        frames.push(new Frame(graph, true, rank++));
+        while (!frames.isEmpty()) {
+            final Frame frame = frames.peek();
+            if (frame.next == frame.items.length) {
+                frames.pop();
+                // Only values inside local graphs determine the offset of a graph, see Selection.findItemAtOffset().
+                final ParseValue lowest = frame.graph.getDefinition().isLocal() ? frame.lowest : null;
+                if (lowest != null) {
+                    if (frame.isRoot) {
+                        register(roots, frame.graph, lowest, frame.rank);
+                    }
+                    if (!frames.isEmpty()) {
+                        frames.peek().offer(lowest);
+                    }
+                }
+                continue;
+            }
+            final ParseItem item = frame.items[frame.next++];
+            // An item is a root of its definition if its definition differs from that of the graph containing it, see Selection.getAllRoots().
+            final boolean isRoot = !item.getDefinition().equals(frame.graph.definition);
+            if (item.isGraph()) {
+                frames.push(new Frame(item.asGraph(), isRoot, rank++));
+            } else if (item.isValue()) {
+                final ParseValue value = item.asValue();
+                if (isRoot) {
+                    register(roots, value, value, rank);
+                }
+                rank++;
+                frame.offer(value);
+                values.computeIfAbsent(value.slice().source, source -> new ArrayList<>()).add(value);
+            }
+        }
+        final Map<Source, Intervals> intervals = new HashMap<>();
+        values.forEach((source, list) -> intervals.put(source, new Intervals(list)));
+        return new OffsetIndex(roots, intervals);
+    }
+
+    // If multiple roots match, the one added last is returned, as ParseReference.resolve() does.
+    private static void register(final Map<Location, Root> roots, final ParseItem item, final ParseValue lowest, final long rank) {
+        roots.merge(new Location(item.getDefinition(), lowest.slice().source, lowest.slice().offset), new Root(item, rank), (current, next) -> next.rank > current.rank ? next : current);
+    }
+
+    /**
+     * @return the item the reference points to, if any
+     * @see ParseReference#resolve(ParseGraph)
+     */
+    public Optional<ParseItem> resolve(final ParseReference reference) {
+        checkNotNull(reference, "reference");
+        return Optional.ofNullable(roots.get(new Location(reference.definition, reference.source, reference.location))).map(root -> root.item);
+    }
+
+    /**
+     * @return all values with data that includes the byte at the provided offset in the provided source, ordered by offset
+     */
+    public ImmutableList<ParseValue> getCovering(final Source source, final BigInteger offset) {
+        checkNotNull(source, "source");
+        checkNotNull(offset, "offset");
+        final Intervals sourceIntervals = intervals.get(source);
+        if (sourceIntervals == null) {
+            return new ImmutableList<>();
+        }
+        final List<ParseValue> result = new ArrayList<>();
+        sourceIntervals.collect(offset, 0, sourceIntervals.values.length, result);
+        ImmutableList<ParseValue> list = new ImmutableList<>();
+        for (int i = result.size() - 1; i >= 0; i--) {
+            list = list.add(result.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * A graph being indexed, with its items in order of addition.
+     */
+    private static final class Frame {
+
+        final ParseGraph graph;
+        final boolean isRoot;
+        final long rank;
+        final ParseItem[] items;
+        int next;
+        ParseValue lowest;
+
+        Frame(final ParseGraph graph, final boolean isRoot, final long rank) {
+            this.graph = graph;
+            this.isRoot = isRoot;
+            this.rank = rank;
+            items = new ParseItem[(int) graph.size];
+            int position = items.length;
+            for (ParseGraph current = graph; !current.isEmpty(); current = current.tail) {
+                items[--position] = current.head;
+            }
+        }
+
+        // Items are offered in order of addition. On equal offsets, the value added last is kept, as Selection.findItemAtOffset() does.
+        void offer(final ParseValue value) {
+            if (lowest == null || value.slice().offset.compareTo(lowest.slice().offset) <= 0) {
+                lowest = value;
+            }
+        }
+
+    }
+
+    /**
+     * The values of a single source, sorted by offset and stored as an
+     * implicit balanced binary search tree: the root of a range is its middle
+     * element. For every subtree, the highest end offset is stored at its
+     * root, so subtrees that do not reach the queried offset are skipped.
+     */
+    private static final class Intervals {
+
+        final ParseValue[] values;
+        final BigInteger[] maxEnds;
+
+        Intervals(final List<ParseValue> list) {
+            values = list.toArray(new ParseValue[0]);
+            Arrays.sort(values, Comparator.comparing(value -> value.slice().offset));
+            maxEnds = new BigInteger[values.length];
+            computeMaxEnd(0, values.length);
+        }
+
+        private BigInteger computeMaxEnd(final int from, final int to) {
+            if (from >= to) {
+                return null;
+            }
+            final int middle = (from + to) >>> 1;
+            BigInteger maxEnd = values[middle].slice().offset.add(values[middle].slice().length);
+            final BigInteger left = computeMaxEnd(from, middle);
+            final BigInteger right = computeMaxEnd(middle + 1, to);
+            maxEnd = left == null ? maxEnd : maxEnd.max(left);
+            maxEnd = right == null ? maxEnd : maxEnd.max(right);
+            maxEnds[middle] = maxEnd;
+            return maxEnd;
+        }
+
+        void collect(final BigInteger offset, final int from, final int to, final List<ParseValue> result) {
+            if (from >= to) {
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            if (maxEnds[middle].compareTo(offset) <= 0) {
+                return;
+            }
+            collect(offset, from, middle, result);
+            final Slice slice = values[middle].slice();
+            if (slice.offset.compareTo(offset) <= 0) {
+                if (slice.offset.add(slice.length).compareTo(offset) > 0) {
+                    result.add(values[middle]);
+                }
+                collect(offset, middle + 1, to, result);
+            }
+        }
+
+    }
+
+    private static final class Root {
+
+        final ParseItem item;
+        final long rank;
+
+        Root(final ParseItem item, final long rank) {
+            this.item = item;
+            this.rank = rank;
+        }
+
+    }
+
+    private static final class Location {
+
+        final Token definition;
+        final Source source;
+        final BigInteger offset;
+
+        Location(final Token definition, final Source source, final BigInteger offset) {
+            this.definition = definition;
+            this.source = source;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return Util.notNullAndSameClass(this, obj)
+                && Objects.equals(definition, ((Location)obj).definition)
+                && Objects.equals(source, ((Location)obj).source)
+                && Objects.equals(offset, ((Location)obj).offset);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(definition, source, offset);
+        }
+
+    }
+
+}
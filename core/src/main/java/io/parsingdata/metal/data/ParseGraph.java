@@ -95,6 +95,16 @@ public class ParseGraph extends ImmutableObject implements ParseItem {
         return new ParseGraph(head, tail, definition, false);
     }
 
+    // For use by ParseState, which keeps track of the open branches of the graph it builds itself.
+    static ParseGraph createBranch(final Token definition) {
+        return new ParseGraph(definition);
+    }
+
+    // For use by ParseState, see createBranch(Token).
+    ParseGraph addBranch(final ParseGraph branch, final boolean open) {
+        return new ParseGraph(branch, this, definition, open);
+    }
+
     public boolean isEmpty() { return size == 0; }
 
     /**
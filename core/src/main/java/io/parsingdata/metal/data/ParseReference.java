@@ -45,6 +45,14 @@ public class ParseReference extends ImmutableObject implements ParseItem {
         return findItemAtOffset(getAllRoots(root, definition), location, source).computeResult();
     }
 
+    /**
+     * Equivalent to {@link #resolve(ParseGraph)} with the graph the index was
+     * created from, without traversing the graph.
+     */
+    public Optional<ParseItem> resolve(final OffsetIndex index) {
+        return checkNotNull(index, "index").resolve(this);
+    }
+
     @Override public boolean isReference() { return true; }
     @Override public ParseReference asReference() { return this; }
     @Override public Token getDefinition() { return definition; }
@@ -27,6 +27,8 @@ import static io.parsingdata.metal.data.ParseValueCache.NO_CACHE;
 import static io.parsingdata.metal.data.Slice.createFromSource;
 
 import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -34,9 +36,22 @@ import io.parsingdata.metal.ImmutableObject;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.token.Token;
 
+/**
+ * The state of a parse: the {@link ParseGraph} built so far, the position in
+ * the input and the administration required by the tokens being parsed.
+ * <p>
+ * The graph is kept as a zipper: the innermost open branch and the list of
+ * enclosing graphs that each have an open branch, innermost first. The
+ * enclosing graphs do not contain their open branch yet. This way, adding a
+ * value, a reference or a branch only creates a single node, regardless of
+ * how deeply the open branch is nested. The complete graph is only built when
+ * {@link #order()} is called.
+ */
 public class ParseState extends ImmutableObject {
 
-    public final ParseGraph order;
+    private final ParseGraph branch;
+    private final ImmutableList<ParseGraph> enclosing;
+    private volatile ParseGraph order; // Cached, not part of equals.
     public final ParseValueCache cache;
     public final BigInteger offset;
     public final Source source;
@@ -45,7 +60,12 @@ public class ParseState extends ImmutableObject {
     public final int scopeDepth;
 
     public ParseState(final ParseGraph order, final ParseValueCache cache, final Source source, final BigInteger offset, final ImmutableList<ImmutablePair<Token, BigInteger>> iterations, final ImmutableList<ParseReference> references, final int scopeDepth) {
-        this.order = checkNotNull(order, "order");
+        this(innermostBranch(checkNotNull(order, "order")), enclosingBranches(order), cache, source, offset, iterations, references, scopeDepth);
+    }
+
+    private ParseState(final ParseGraph branch, final ImmutableList<ParseGraph> enclosing, final ParseValueCache cache, final Source source, final BigInteger offset, final ImmutableList<ImmutablePair<Token, BigInteger>> iterations, final ImmutableList<ParseReference> references, final int scopeDepth) {
+        this.branch = checkNotNull(branch, "branch");
+        this.enclosing = checkNotNull(enclosing, "enclosing");
         this.cache = checkNotNull(cache, "cache");
         this.source = checkNotNull(source, "source");
         this.offset = checkNotNegative(offset, "offset");
@@ -54,6 +74,24 @@ public class ParseState extends ImmutableObject {
         this.scopeDepth = scopeDepth;
     }
 
+    private static ParseGraph innermostBranch(final ParseGraph graph) {
+        ParseGraph current = graph;
+        while (current.branched) {
+            current = current.head.asGraph();
+        }
+        return current;
+    }
+
+    private static ImmutableList<ParseGraph> enclosingBranches(final ParseGraph graph) {
+        ParseGraph current = graph;
+        ImmutableList<ParseGraph> result = new ImmutableList<>();
+        while (current.branched) {
+            result = result.add(current.tail);
+            current = current.head.asGraph();
+        }
+        return result;
+    }
+
     public static ParseState createFromByteStream(final ByteStream input, final BigInteger offset) {
         return new ParseState(ParseGraph.EMPTY, new ParseValueCache(), new ByteStreamSource(input), offset, new ImmutableList<>(), new ImmutableList<>(), 0);
     }
@@ -63,34 +101,37 @@ public class ParseState extends ImmutableObject {
     }
 
     public ParseState addBranch(final Token token) {
-        return new ParseState(order.addBranch(token), cache, source, offset, token.isIterable() ? iterations.add(new ImmutablePair<>(token, ZERO)) : iterations, references, token.isScopeDelimiter() ? scopeDepth + 1 : scopeDepth);
+        return new ParseState(ParseGraph.createBranch(token), enclosing.add(branch), cache.addBranch(token), source, offset, token.isIterable() ? iterations.add(new ImmutablePair<>(token, ZERO)) : iterations, references, token.isScopeDelimiter() ? scopeDepth + 1 : scopeDepth);
     }
 
     public ParseState closeBranch(final Token token) {
         if (token.isIterable() && !iterations.head.left.equals(token)) {
             throw new IllegalStateException(format("Cannot close branch for iterable token %s. Current iteration state is for token %s.", token.name, iterations.head.left.name));
         }
-        return new ParseState(order.closeBranch(), cache, source, offset, token.isIterable() ? iterations.tail : iterations, references, token.isScopeDelimiter() ? scopeDepth - 1 : scopeDepth);
+        if (enclosing.isEmpty()) {
+            throw new IllegalStateException("Cannot close branch that is not open.");
+        }
+        return new ParseState(enclosing.head.addBranch(branch, false), enclosing.tail, cache.closeBranch(token), source, offset, token.isIterable() ? iterations.tail : iterations, references, token.isScopeDelimiter() ? scopeDepth - 1 : scopeDepth);
     }
 
     public ParseState add(final ParseReference parseReference) {
-        return new ParseState(order, cache, source, offset, iterations, references.add(parseReference), scopeDepth);
+        return new ParseState(branch, enclosing, cache, source, offset, iterations, references.add(parseReference), scopeDepth);
     }
 
     public ParseState add(final ParseValue parseValue) {
-        return new ParseState(order.add(parseValue), cache.add(parseValue), source, offset, iterations, references, scopeDepth);
+        return new ParseState(branch.add(parseValue), enclosing, cache.add(parseValue), source, offset, iterations, references, scopeDepth);
     }
 
     public ParseState createCycle(final ParseReference parseReference) {
-        return new ParseState(order.add(parseReference), cache, source, offset, iterations, references, scopeDepth);
+        return new ParseState(branch.add(parseReference), enclosing, cache.add(parseReference), source, offset, iterations, references, scopeDepth);
     }
 
     public ParseState iterate() {
-        return new ParseState(order, cache, source, offset, iterations.tail.add(new ImmutablePair<>(iterations.head.left, iterations.head.right.add(ONE))), references, scopeDepth);
+        return new ParseState(branch, enclosing, cache, source, offset, iterations.tail.add(new ImmutablePair<>(iterations.head.left, iterations.head.right.add(ONE))), references, scopeDepth);
     }
 
     public Optional<ParseState> seek(final BigInteger newOffset) {
-        return newOffset.compareTo(ZERO) >= 0 ? Optional.of(new ParseState(order, cache, source, newOffset, iterations, references, scopeDepth)) : Optional.empty();
+        return newOffset.compareTo(ZERO) >= 0 ? Optional.of(new ParseState(branch, enclosing, cache, source, newOffset, iterations, references, scopeDepth)) : Optional.empty();
     }
 
     public ParseState withOrder(final ParseGraph order) {
@@ -98,7 +139,89 @@ public class ParseState extends ImmutableObject {
     }
 
     public ParseState withSource(final Source source) {
-        return new ParseState(order, cache, source, ZERO, iterations, references, scopeDepth);
+        return new ParseState(branch, enclosing, cache, source, ZERO, iterations, references, scopeDepth);
+    }
+
+    /**
+     * Replaces the public <code>order</code> field of earlier releases, which
+     * is no longer kept up to date on every modification. Code that accessed
+     * the field directly must call this method instead.
+     *
+     * @return the complete graph built so far, including all open branches
+     */
+    public ParseGraph order() {
+        if (order == null) {
+            ParseGraph graph = branch;
+            for (ImmutableList<ParseGraph> current = enclosing; !current.isEmpty(); current = current.tail) {
+                graph = current.head.addBranch(graph, true);
+            }
+            order = graph;
+        }
+        return order;
+    }
+
+    /**
+     * Equivalent to <code>order().current()</code>, without building the
+     * complete graph.
+     * @return the most recently added value
+     */
+    public Optional<ParseValue> current() {
+        Optional<ParseValue> current = branch.current();
+        for (ImmutableList<ParseGraph> graphs = enclosing; current.isEmpty() && !graphs.isEmpty(); graphs = graphs.tail) {
+            current = graphs.head.current();
+        }
+        return current;
+    }
+
+    // For use by Retention: the items added to the innermost open branch since the provided state, in a closed branch with the same definition.
+    ParseGraph addedSince(final ParseState before) {
+        final ParseItem[] items = new ParseItem[(int) (branch.size - before.branch.size)];
+        ParseGraph current = branch;
+        for (int i = items.length - 1; i >= 0; i--) {
+            items[i] = current.head;
+            current = current.tail;
+        }
+        return createBranch(branch.definition, items);
+    }
+
+    // For use by Retention: removes the oldest items from the innermost open branch, along with their values from the cache.
+    ParseState prune(final long items, final long firstSequence, final long endSequence) {
+        final ParseItem[] retained = new ParseItem[(int) (branch.size - items)];
+        ParseGraph current = branch;
+        for (int i = retained.length - 1; i >= 0; i--) {
+            retained[i] = current.head;
+            current = current.tail;
+        }
+        ImmutableList<ParseValue> removed = new ImmutableList<>();
+        final Deque<ParseItem> pending = new ArrayDeque<>();
+        for (; !current.isEmpty(); current = current.tail) {
+            pending.push(current.head);
+        }
+        while (!pending.isEmpty()) {
+            final ParseItem item = pending.pop();
+            if (item.isValue()) {
+                removed = removed.add(item.asValue());
+            } else if (item.isGraph()) {
+                for (ParseGraph graph = item.asGraph(); !graph.isEmpty(); graph = graph.tail) {
+                    pending.push(graph.head);
+                }
+            }
+        }
+        return new ParseState(createBranch(branch.definition, retained), enclosing, cache.remove(removed, firstSequence, endSequence), source, offset, iterations, references, scopeDepth);
+    }
+
+    private static ParseGraph createBranch(final Token definition, final ParseItem[] items) {
+        ParseGraph graph = ParseGraph.createBranch(definition);
+        for (final ParseItem item : items) {
+            if (item.isValue()) {
+                graph = graph.add(item.asValue());
+            } else if (item.isReference()) {
+                graph = graph.add(item.asReference());
+            } else {
+                graph = graph.addBranch(item.asGraph(), false);
+            }
+        }
+        return graph;
     }
 
     public Optional<Slice> slice(final BigInteger length) {
@@ -109,13 +232,14 @@ public class ParseState extends ImmutableObject {
     public String toString() {
         final String iterationsString = iterations.isEmpty() ? "" : ";iterations:" + iterations;
         final String referencesString = references.isEmpty() ? "" : ";references:" + references;
-        return getClass().getSimpleName() + "(source:" + source + ";offset:" + offset + ";order:" + order + iterationsString + referencesString + ";scopeDepth:" + scopeDepth + ";" + cache + ")";
+        return getClass().getSimpleName() + "(source:" + source + ";offset:" + offset + ";order:" + order() + iterationsString + referencesString + ";scopeDepth:" + scopeDepth + ";" + cache + ")";
     }
 
     @Override
     public boolean equals(final Object obj) {
         return Util.notNullAndSameClass(this, obj)
-            && Objects.equals(order, ((ParseState)obj).order)
+            && Objects.equals(branch, ((ParseState)obj).branch)
+            && Objects.equals(enclosing, ((ParseState)obj).enclosing)
             && Objects.equals(cache, ((ParseState)obj).cache)
             && Objects.equals(offset, ((ParseState)obj).offset)
             && Objects.equals(source, ((ParseState)obj).source)
@@ -126,7 +250,7 @@ public class ParseState extends ImmutableObject {
 
     @Override
     public int immutableHashCode() {
-        return Objects.hash(getClass(), order, cache, offset, source, iterations, references, scopeDepth);
+        return Objects.hash(getClass(), branch, enclosing, cache, offset, source, iterations, references, scopeDepth);
     }
 
 }
@@ -29,16 +29,26 @@ import io.parsingdata.metal.token.Token;
 public class ParseValue extends CoreValue implements ParseItem {
 
     public final String name;
+    public final ScopeName scopeName;
     public final Token definition;
 
     public ParseValue(final String name, final Token definition, final Slice slice, final Encoding encoding) {
+        this(ScopeName.of(checkNotEmpty(name, "name")), definition, slice, encoding);
+    }
+
+    public ParseValue(final ScopeName scopeName, final Token definition, final Slice slice, final Encoding encoding) {
         super(slice, encoding);
-        this.name = checkNotEmpty(name, "name");
+        this.scopeName = checkNotNull(scopeName, "scopeName");
+        this.name = checkNotEmpty(scopeName.toString(), "name");
         this.definition = checkNotNull(definition, "definition");
     }
 
     public boolean matches(final String name) {
-        return this.name.equals(name) || this.name.endsWith(Token.SEPARATOR + name);
+        return matches(ScopeName.of(checkNotNull(name, "name")));
+    }
+
+    public boolean matches(final ScopeName scopeName) {
+        return this.scopeName.matches(scopeName);
     }
 
     public boolean matches(final Token definition) {
@@ -57,7 +67,7 @@ public class ParseValue extends CoreValue implements ParseItem {
     @Override
     public boolean equals(final Object obj) {
         return super.equals(obj)
-            && Objects.equals(name, ((ParseValue)obj).name)
+            && scopeName == ((ParseValue)obj).scopeName
             && Objects.equals(definition, ((ParseValue)obj).definition);
     }
 
@@ -1,25 +1,55 @@
 package io.parsingdata.metal.data;
 
-import static io.parsingdata.metal.Trampoline.complete;
-import static io.parsingdata.metal.Trampoline.intermediate;
-import static io.parsingdata.metal.data.Selection.NO_LIMIT;
+import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.data.ParseGraph.NONE;
 import static io.parsingdata.metal.data.Selection.reverse;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 
-import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.expression.value.Value;
 import io.parsingdata.metal.token.Token;
 
+/**
+ * Index of the {@link ParseValue}s added to a {@link ParseState}, used to
+ * evaluate references without traversing the {@link ParseGraph}.
+ * <p>
+ * Values are indexed both by their short name (the last segment of their
+ * {@link ScopeName}) and by their definition, in an
+ * {@link ImmutableVector} per key to allow indexed access. Each value is numbered
+ * in order of addition. These numbers are used to merge the results of
+ * multiple references and to select the values in scope: for every open scope
+ * delimiter (see {@link Token#isScopeDelimiter()}), the number of the first
+ * value added inside it is recorded.
+ * <p>
+ * The cache also keeps track of the {@link Token} that
+ * {@link io.parsingdata.metal.token.TokenRef} resolves for every name. This is
+ * the first item with that name found by a depth-first traversal of the parse
+ * graph that visits the most recently added items first. That item is the
+ * outermost open branch with that name that encloses the most recently added
+ * item with that name, or else that item itself. So for every item that is
+ * added, the outermost open branch for its name is looked up.
+ */
 public class ParseValueCache {
 
-    public static final ParseValueCache NO_CACHE = new ParseValueCache(null);
+    public static final ParseValueCache NO_CACHE = new ParseValueCache(null, null, null, 0, null, null, null);
 
-    private final Map<String, ImmutableList<ParseValue>> cache;
+    private static final ImmutableVector<Entry> EMPTY_BUCKET = new ImmutableVector<>();
+
+    private final ImmutableHashMap<String, ImmutableVector<Entry>> names;
+    private final ImmutableHashMap<Token, ImmutableVector<Entry>> definitions;
+    private final ImmutableList<Long> scopeMarks;
+    private final long size;
+    private final ImmutableHashMap<String, Token> tokens;
+    private final ImmutableHashMap<String, Token> openTokens; // NONE for names without open branches.
+    private final ImmutableList<String> outermost; // For every open branch, the name it is the outermost open branch for, or an empty string.
 
     /**
      * Start a cache that keeps track of values added to the parse graph.
@@ -27,46 +57,254 @@ public class ParseValueCache {
      * In case no caching is desired, {@link #NO_CACHE} should be used instead.
      */
     public ParseValueCache() {
-        this(new HashMap<>());
+        this(new ImmutableHashMap<>(), new ImmutableHashMap<>(), new ImmutableList<>(), 0, new ImmutableHashMap<>(), new ImmutableHashMap<>(), new ImmutableList<>());
     }
 
     // For internal use only. It is private to avoid setting the cache to null. The NO_CACHE constant should be used instead.
-    private ParseValueCache(final Map<String, ImmutableList<ParseValue>> cache) {
-        this.cache = cache;
+    private ParseValueCache(final ImmutableHashMap<String, ImmutableVector<Entry>> names, final ImmutableHashMap<Token, ImmutableVector<Entry>> definitions, final ImmutableList<Long> scopeMarks, final long size, final ImmutableHashMap<String, Token> tokens, final ImmutableHashMap<String, Token> openTokens, final ImmutableList<String> outermost) {
+        this.names = names;
+        this.definitions = definitions;
+        this.scopeMarks = scopeMarks;
+        this.size = size;
+        this.tokens = tokens;
+        this.openTokens = openTokens;
+        this.outermost = outermost;
+    }
+
+    public Optional<ImmutableList<Value>> find(final String scopeName, final int limit) {
+        return findByName(ImmutableList.create(ScopeName.of(scopeName)), limit, 0, 0);
+    }
+
+    /**
+     * Find the values matching any of the provided names, most recently added first.
+     * @param scopeNames the names to match, as in {@link ParseValue#matches(ScopeName)}
+     * @param limit the maximum number of values to return, or {@link Selection#NO_LIMIT} (or any other negative number) to return all
+     * @param requestedScope the scope to search in, as in {@link io.parsingdata.metal.expression.value.reference.Ref}
+     * @param currentScope the <code>scopeDepth</code> of the {@link ParseState}
+     * @return the matching values, or empty if the cache can not answer the query
+     */
+    public Optional<ImmutableList<Value>> findByName(final ImmutableList<ScopeName> scopeNames, final int limit, final int requestedScope, final int currentScope) {
+        return find(scopeNames, Function.identity(), target -> target.segment, ParseValue::matches, names, limit, requestedScope, currentScope);
     }
 
-    public Optional<ImmutableList<Value>> find(final String scopeName, int limit) {
+    /**
+     * Find the values of any of the provided definitions, most recently added first.
+     * @see #findByName(ImmutableList, int, int, int)
+     */
+    public Optional<ImmutableList<Value>> findByDefinition(final ImmutableList<Token> tokens, final int limit, final int requestedScope, final int currentScope) {
+        return find(tokens, Function.identity(), Function.identity(), ParseValue::matches, definitions, limit, requestedScope, currentScope);
+    }
+
+    private <R, T, K> Optional<ImmutableList<Value>> find(final ImmutableList<R> references, final Function<R, T> toTarget, final Function<T, K> toKey, final BiPredicate<ParseValue, T> predicate, final ImmutableHashMap<K, ImmutableVector<Entry>> index, final int limit, final int requestedScope, final int currentScope) {
         if (this == NO_CACHE) {
             return Optional.empty();
         }
-        final ImmutableList<Value> result = find(cache.getOrDefault(shortName(scopeName), new ImmutableList<>()), scopeName, limit, new ImmutableList<>()).computeResult();
+        final long first = firstInScope(requestedScope, currentScope);
+        if (first < 0) {
+            return Optional.empty();
+        }
+        final List<T> targets = new ArrayList<>();
+        final List<ImmutableVector<Entry>> buckets = new ArrayList<>();
+        for (ImmutableList<R> current = references; !current.isEmpty(); current = current.tail) {
+            final T target = toTarget.apply(current.head);
+            targets.add(target);
+            buckets.add(index.getOrDefault(toKey.apply(target), EMPTY_BUCKET));
+        }
+        // Each cursor walks its bucket backwards, so merging them yields all results in descending order.
+        final long[] cursors = new long[buckets.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = buckets.get(i).size - 1;
+        }
+        ImmutableList<Value> result = new ImmutableList<>();
+        while (limit < 0 || result.size < limit) {
+            int next = -1;
+            for (int i = 0; i < cursors.length; i++) {
+                final ImmutableVector<Entry> bucket = buckets.get(i);
+                while (cursors[i] >= 0 && bucket.get(cursors[i]).sequence >= first && !predicate.test(bucket.get(cursors[i]).value, targets.get(i))) {
+                    cursors[i]--;
+                }
+                if (cursors[i] >= 0 && bucket.get(cursors[i]).sequence >= first && (next < 0 || bucket.get(cursors[i]).sequence > buckets.get(next).get(cursors[next]).sequence)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            final Entry entry = buckets.get(next).get(cursors[next]);
+            result = result.add(entry.value);
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i] >= 0 && buckets.get(i).get(cursors[i]).sequence == entry.sequence) {
+                    cursors[i]--;
+                }
+            }
+        }
         return Optional.of(reverse(result));
     }
 
-    private Trampoline<ImmutableList<Value>> find(final ImmutableList<ParseValue> searchList, final String scopeName, final int limit, final ImmutableList<Value> result) {
-        if (searchList.isEmpty() || (limit != NO_LIMIT && result.size == limit)) {
-            return complete(() -> result);
+    /**
+     * Returns the sequence number of the first value in the requested scope,
+     * or <code>-1</code> if the scope is not tracked by this cache (when the
+     * cache was not maintained by the same {@link ParseState}).
+     */
+    private long firstInScope(final int requestedScope, final int currentScope) {
+        if (requestedScope >= currentScope) {
+            return 0;
+        }
+        if (scopeMarks.size != currentScope) {
+            return -1;
+        }
+        ImmutableList<Long> marks = scopeMarks;
+        for (int i = 0; i < requestedScope; i++) {
+            marks = marks.tail;
+        }
+        return marks.head;
+    }
+
+    /**
+     * Provide indexed access to the values matching the provided name, without
+     * collecting them in a list. Only names without a {@link Token#SEPARATOR}
+     * are supported, since all values indexed under such a name match it.
+     * @see #findByName(ImmutableList, int, int, int)
+     * @return the matching values, or empty if the cache can not answer the query
+     */
+    public Optional<IndexedValues> indexByName(final String scopeName, final int limit, final int requestedScope, final int currentScope) {
+        if (this == NO_CACHE || scopeName.contains(Token.SEPARATOR)) {
+            return Optional.empty();
+        }
+        return index(names.getOrDefault(scopeName, EMPTY_BUCKET), limit, requestedScope, currentScope);
+    }
+
+    /**
+     * Provide indexed access to the values of the provided definition, without
+     * collecting them in a list.
+     * @see #findByDefinition(ImmutableList, int, int, int)
+     * @return the matching values, or empty if the cache can not answer the query
+     */
+    public Optional<IndexedValues> indexByDefinition(final Token definition, final int limit, final int requestedScope, final int currentScope) {
+        if (this == NO_CACHE) {
+            return Optional.empty();
         }
-        final ParseValue head = searchList.head;
-        if (head.matches(scopeName)) {
-            return intermediate(() -> find(searchList.tail, scopeName, limit, result.add(head)));
+        return index(definitions.getOrDefault(definition, EMPTY_BUCKET), limit, requestedScope, currentScope);
+    }
+
+    private static Optional<IndexedValues> index(final ImmutableVector<Entry> bucket, final int limit, final int requestedScope, final int currentScope) {
+        if (requestedScope < currentScope) {
+            return Optional.empty();
         }
-        return intermediate(() -> find(searchList.tail, scopeName, limit, result));
+        return Optional.of(new BucketValues(bucket, limit < 0 ? bucket.size : Math.min(limit, bucket.size)));
     }
 
     public ParseValueCache add(final ParseValue value) {
         if (this == NO_CACHE) {
             return NO_CACHE;
         }
-        final String name = shortName(value.name);
-        final Map<String, ImmutableList<ParseValue>> stringImmutableListHashMap = new HashMap<>(cache);
-        stringImmutableListHashMap.computeIfAbsent(name, pattern -> new ImmutableList<>());
-        stringImmutableListHashMap.computeIfPresent(name, (pattern, valueImmutableList) -> valueImmutableList.add(value));
-        return new ParseValueCache(stringImmutableListHashMap);
+        final Entry entry = new Entry(value, size);
+        final String name = value.scopeName.segment;
+        final Token definition = value.getDefinition();
+        return new ParseValueCache(names.put(name, names.getOrDefault(name, EMPTY_BUCKET).add(entry)),
+                                   definitions.put(definition, definitions.getOrDefault(definition, EMPTY_BUCKET).add(entry)),
+                                   scopeMarks,
+                                   size + 1,
+                                   addToken(definition),
+                                   openTokens,
+                                   outermost);
+    }
+
+    /**
+     * Register the definition of a {@link ParseReference} that is added to the
+     * parse graph to mark a cycle.
+     */
+    public ParseValueCache add(final ParseReference reference) {
+        if (this == NO_CACHE) {
+            return NO_CACHE;
+        }
+        return new ParseValueCache(names, definitions, scopeMarks, size, addToken(reference.definition), openTokens, outermost);
+    }
+
+    /**
+     * To be called when a branch is added for a {@link Token}. Marks the start
+     * of a new scope if the token is a scope delimiter.
+     */
+    public ParseValueCache addBranch(final Token token) {
+        if (this == NO_CACHE) {
+            return NO_CACHE;
+        }
+        final ImmutableList<Long> newScopeMarks = token.isScopeDelimiter() ? scopeMarks.add(size) : scopeMarks;
+        final boolean isOutermost = !token.name.isEmpty() && openTokens.getOrDefault(token.name, NONE) == NONE;
+        return new ParseValueCache(names, definitions, newScopeMarks, size, addToken(token), isOutermost ? openTokens.put(token.name, token) : openTokens, outermost.add(isOutermost ? token.name : ""));
     }
 
-    private static String shortName(final String name) {
-        return name.substring(name.lastIndexOf(Token.SEPARATOR) + 1);
+    /**
+     * To be called when a branch is closed for a {@link Token}. Marks the end
+     * of the current scope if the token is a scope delimiter.
+     */
+    public ParseValueCache closeBranch(final Token token) {
+        if (this == NO_CACHE) {
+            return NO_CACHE;
+        }
+        final ImmutableList<Long> newScopeMarks = token.isScopeDelimiter() && !scopeMarks.isEmpty() ? scopeMarks.tail : scopeMarks;
+        if (outermost.isEmpty()) {
+            return new ParseValueCache(names, definitions, newScopeMarks, size, tokens, openTokens, outermost);
+        }
+        return new ParseValueCache(names, definitions, newScopeMarks, size, tokens, outermost.head.isEmpty() ? openTokens : openTokens.put(outermost.head, NONE), outermost.tail);
+    }
+
+    private ImmutableHashMap<String, Token> addToken(final Token definition) {
+        if (definition.name.isEmpty()) {
+            return tokens;
+        }
+        final Token open = openTokens.getOrDefault(definition.name, NONE);
+        return tokens.put(definition.name, open == NONE ? definition : open);
+    }
+
+    /**
+     * Find the {@link Token} that {@link io.parsingdata.metal.token.TokenRef}
+     * resolves for the provided name.
+     * @return the token, or empty if the cache can not answer the query
+     */
+    public Optional<Token> findToken(final String name) {
+        if (this == NO_CACHE) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(tokens.get(name));
+    }
+
+    // For use by Retention: removes the provided values, which were added with a sequence number in the range [firstSequence, endSequence).
+    ParseValueCache remove(final ImmutableList<ParseValue> values, final long firstSequence, final long endSequence) {
+        if (this == NO_CACHE) {
+            return NO_CACHE;
+        }
+        ImmutableHashMap<String, ImmutableVector<Entry>> newNames = names;
+        ImmutableHashMap<Token, ImmutableVector<Entry>> newDefinitions = definitions;
+        final Set<String> doneNames = new HashSet<>();
+        final Set<Token> doneDefinitions = new HashSet<>();
+        for (ImmutableList<ParseValue> current = values; !current.isEmpty(); current = current.tail) {
+            final String name = current.head.scopeName.segment;
+            if (doneNames.add(name)) {
+                newNames = newNames.put(name, remove(names.getOrDefault(name, EMPTY_BUCKET), firstSequence, endSequence));
+            }
+            final Token definition = current.head.definition;
+            if (doneDefinitions.add(definition)) {
+                newDefinitions = newDefinitions.put(definition, remove(definitions.getOrDefault(definition, EMPTY_BUCKET), firstSequence, endSequence));
+            }
+        }
+        return new ParseValueCache(newNames, newDefinitions, scopeMarks, size, tokens, openTokens, outermost);
+    }
+
+    private static ImmutableVector<Entry> remove(final ImmutableVector<Entry> bucket, final long firstSequence, final long endSequence) {
+        ImmutableVector<Entry> result = EMPTY_BUCKET;
+        for (long i = 0; i < bucket.size; i++) {
+            final Entry entry = bucket.get(i);
+            if (entry.sequence < firstSequence || entry.sequence >= endSequence) {
+                result = result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    // For use by Retention: the sequence number of the next value.
+    long size() {
+        return size;
     }
 
     @Override
@@ -74,17 +312,76 @@ public class ParseValueCache {
         if (this == NO_CACHE) {
             return "no-cache";
         }
-        return "cache:size=" + cache.size();
+        return "cache:size=" + names.size;
     }
 
     @Override
     public boolean equals(final Object obj) {
         return Util.notNullAndSameClass(this, obj)
-            && Objects.equals(cache, ((ParseValueCache)obj).cache);
+            && Objects.equals(names, ((ParseValueCache)obj).names)
+            && Objects.equals(definitions, ((ParseValueCache)obj).definitions)
+            && Objects.equals(scopeMarks, ((ParseValueCache)obj).scopeMarks)
+            && size == ((ParseValueCache)obj).size
+            && Objects.equals(tokens, ((ParseValueCache)obj).tokens)
+            && Objects.equals(openTokens, ((ParseValueCache)obj).openTokens)
+            && Objects.equals(outermost, ((ParseValueCache)obj).outermost);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(cache);
+        return Objects.hash(names, definitions, scopeMarks, size, tokens, openTokens, outermost);
     }
+
+    /**
+     * The <code>size</code> most recently added values of a bucket.
+     */
+    private static final class BucketValues implements IndexedValues {
+
+        private final ImmutableVector<Entry> bucket;
+        private final long size;
+
+        BucketValues(final ImmutableVector<Entry> bucket, final long size) {
+            this.bucket = bucket;
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public Value get(final long index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(format("Index %d out of range for %d value(s).", index, size));
+            }
+            return bucket.get(bucket.size - size + index).value;
+        }
+
+    }
+
+    private static final class Entry {
+
+        final ParseValue value;
+        final long sequence;
+
+        Entry(final ParseValue value, final long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return Util.notNullAndSameClass(this, obj)
+                && Objects.equals(value, ((Entry)obj).value)
+                && sequence == ((Entry)obj).sequence;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, sequence);
+        }
+
+    }
+
 }
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.Util.toSafeLong;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.parsingdata.metal.Util;
+
+/**
+ * A {@link ByteStream} that decorates another {@link ByteStream} with
+ * asynchronous read-ahead.
+ * <p>
+ * The underlying stream is read in aligned windows of <code>windowSize</code>
+ * bytes. When a read continues where the previous read left off (or skips
+ * ahead by less than a window), the access is considered sequential and the
+ * windows following it are read on a background thread, so that parsing and
+ * I/O overlap. At most <code>maxWindows</code> windows are kept in memory,
+ * evicting the least recently used window when the budget is exhausted.
+ * <p>
+ * All access to the underlying stream is serialized, so it does not need to
+ * be thread-safe. Data at the end of the stream that does not fill a complete
+ * window, as well as reads larger than the budget, are passed through to the
+ * underlying stream directly. The background thread is stopped by
+ * {@link #close()}.
+ */
+public class PrefetchingByteStream implements ByteStream, AutoCloseable {
+
+    public static final int DEFAULT_WINDOW_SIZE = 256 * 1024;
+    public static final int DEFAULT_MAX_WINDOWS = 8;
+    public static final String THREAD_NAME = "metal-prefetch";
+
+    public final ByteStream input;
+    public final int windowSize;
+    public final int maxWindows;
+
+    private final ExecutorService executor;
+    private final Object inputLock = new Object();
+    private final Map<Long, Future<byte[]>> windows; // Private because it is mutable. A null result means the window is not fully available.
+    private long previousOffset = -1; // Not part of equals.
+    private long previousEnd = -1; // Not part of equals.
+
+    public PrefetchingByteStream(final ByteStream input) {
+        this(input, DEFAULT_WINDOW_SIZE, DEFAULT_MAX_WINDOWS);
+    }
+
+    public PrefetchingByteStream(final ByteStream input, final int windowSize, final int maxWindows) {
+        this.input = checkNotNull(input, "input");
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException(format("Argument windowSize must be positive, but is %d.", windowSize));
+        }
+        if (maxWindows < 2) {
+            throw new IllegalArgumentException(format("Argument maxWindows must be at least 2, but is %d.", maxWindows));
+        }
+        this.windowSize = windowSize;
+        this.maxWindows = maxWindows;
+        windows = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Future<byte[]>> eldest) {
+                if (size() > maxWindows) {
+                    eldest.getValue().cancel(false);
+                    return true;
+                }
+                return false;
+            }
+        };
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public byte[] read(final BigInteger offset, final int length) throws IOException {
+        final long longOffset = toSafeLong(offset);
+        if (longOffset < 0) {
+            return readInput(offset, length);
+        }
+        return read(longOffset, length);
+    }
+
+    @Override
+    public byte[] read(final long offset, final int length) throws IOException {
+        if (offset < 0 || length <= 0 || length > windowSize * (maxWindows / 2L)) {
+            return readInput(BigInteger.valueOf(offset), length);
+        }
+        final long firstWindow = offset / windowSize;
+        final long lastWindow = (offset + length - 1) / windowSize;
+        final boolean sequential = isSequential(offset, length);
+        final byte[] data = new byte[length];
+        for (long index = firstWindow; index <= lastWindow; index++) {
+            final byte[] window = getWindow(index);
+            if (window == null) {
+                return readInput(BigInteger.valueOf(offset), length);
+            }
+            final long windowOffset = index * windowSize;
+            final int from = (int) (Math.max(offset, windowOffset) - windowOffset);
+            final int to = (int) (Math.min(offset + length, windowOffset + windowSize) - windowOffset);
+            System.arraycopy(window, from, data, (int) (windowOffset + from - offset), to - from);
+        }
+        if (sequential) {
+            prefetch(lastWindow + 1, maxWindows / 2);
+        }
+        return data;
+    }
+
+    private synchronized boolean isSequential(final long offset, final long length) {
+        final boolean sequential = previousOffset >= 0 && offset >= previousOffset && offset <= previousEnd + windowSize;
+        previousOffset = offset;
+        previousEnd = offset + length;
+        return sequential;
+    }
+
+    private synchronized void prefetch(final long firstWindow, final int count) {
+        for (long index = firstWindow; index < firstWindow + count; index++) {
+            if (!windows.containsKey(index) && !executor.isShutdown()) {
+                final long windowOffset = index * windowSize;
+                windows.put(index, executor.submit(() -> readWindow(windowOffset)));
+            }
+        }
+    }
+
+    private byte[] getWindow(final long index) throws IOException {
+        final CompletableFuture<byte[]> placeholder = new CompletableFuture<>();
+        final Future<byte[]> window;
+        synchronized (this) {
+            final Future<byte[]> existing = windows.get(index);
+            window = existing != null ? existing : placeholder;
+            windows.put(index, window);
+        }
+        if (window == placeholder) {
+            // Read outside of the monitor, so other callers are not blocked during I/O.
+            try {
+                final byte[] data = readWindow(index * windowSize);
+                placeholder.complete(data);
+                return data;
+            } catch (final IOException | RuntimeException exception) {
+                placeholder.completeExceptionally(exception);
+                synchronized (this) {
+                    windows.remove(index, placeholder);
+                }
+                throw exception;
+            }
+        }
+        try {
+            return window.get();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(format("Interrupted while waiting for window at offset %d.", index * windowSize));
+        } catch (final ExecutionException exception) {
+            synchronized (this) {
+                windows.remove(index);
+            }
+            if (exception.getCause() instanceof IOException) {
+                throw (IOException) exception.getCause();
+            }
+            throw new IOException(exception.getCause());
+        } catch (final CancellationException exception) {
+            // Evicted or closed before the window was read, so read it directly.
+            return readWindow(index * windowSize);
+        }
+    }
+
+    private byte[] readWindow(final long windowOffset) throws IOException {
+        synchronized (inputLock) {
+            if (!input.isAvailable(windowOffset, windowSize)) {
+                return null;
+            }
+            return input.read(windowOffset, windowSize);
+        }
+    }
+
+    private byte[] readInput(final BigInteger offset, final int length) throws IOException {
+        synchronized (inputLock) {
+            return input.read(offset, length);
+        }
+    }
+
+    @Override
+    public boolean isAvailable(final BigInteger offset, final BigInteger length) {
+        final long longOffset = toSafeLong(offset);
+        final long longLength = toSafeLong(length);
+        if (longOffset < 0 || longLength < 0) {
+            synchronized (inputLock) {
+                return input.isAvailable(offset, length);
+            }
+        }
+        return isAvailable(longOffset, longLength);
+    }
+
+    @Override
+    public boolean isAvailable(final long offset, final long length) {
+        if (offset >= 0 && length >= 0 && isLoaded(offset, length)) {
+            return true;
+        }
+        synchronized (inputLock) {
+            return input.isAvailable(offset, length);
+        }
+    }
+
+    private synchronized boolean isLoaded(final long offset, final long length) {
+        final long index = (offset + Math.max(0, length - 1)) / windowSize;
+        if (offset / windowSize != index) {
+            return false;
+        }
+        final Future<byte[]> window = windows.get(index);
+        try {
+            return window != null && window.isDone() && !window.isCancelled() && window.get() != null;
+        } catch (final InterruptedException | ExecutionException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Stop the background thread and release all windows. Reads that are in
+     * progress on the background thread are awaited, queued reads are
+     * cancelled. The stream remains usable after closing, but no longer reads
+     * ahead.
+     */
+    @Override
+    public void close() {
+        // Not shutdownNow(), since interrupting a read closes an underlying InterruptibleChannel.
+        executor.shutdown();
+        synchronized (this) {
+            windows.values().forEach(window -> window.cancel(false));
+        }
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            windows.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + input + ";" + windowSize + ";" + maxWindows + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Objects.equals(input, ((PrefetchingByteStream)obj).input)
+            && windowSize == ((PrefetchingByteStream)obj).windowSize
+            && maxWindows == ((PrefetchingByteStream)obj).maxWindows;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), input, windowSize, maxWindows);
+    }
+
+}
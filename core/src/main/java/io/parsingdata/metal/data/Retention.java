@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNegative;
+import static io.parsingdata.metal.Util.checkNotNull;
+
+import java.util.function.Consumer;
+
+import io.parsingdata.metal.data.callback.Callbacks;
+
+/**
+ * A retention policy for the iterations of an
+ * {@link io.parsingdata.metal.token.IterableToken}, registered through
+ * {@link Callbacks#retain(io.parsingdata.metal.token.Token, int, Consumer)}.
+ * <p>
+ * Every finished iteration is handed to the <code>consumer</code> as a
+ * {@link ParseGraph} with the items the iteration added. Afterwards, only the
+ * most recent <code>keep</code> iterations are retained in the
+ * {@link ParseState}: older iterations are removed from the graph and from the
+ * {@link ParseValueCache}, so memory use does not grow with the number of
+ * iterations. Iterations are removed in batches, so at most
+ * <code>2 * keep</code> iterations are retained at any time.
+ * <p>
+ * Expressions evaluated after an iteration has been removed do not see its
+ * values anymore, so <code>keep</code> must cover all iterations that are
+ * referenced (for example through {@link io.parsingdata.metal.Shorthand#last}
+ * or {@link io.parsingdata.metal.Shorthand#nth}). Since the consumer is called
+ * when an iteration finishes, it is also called for iterations that are
+ * discarded later because parsing an enclosing token fails.
+ */
+public class Retention {
+
+    public static final Retention NONE = new Retention(0, graph -> {}, new ImmutableList<>());
+
+    public final int keep;
+    public final Consumer<ParseGraph> consumer;
+    private final ImmutableList<Mark> marks; // Retained iterations, most recent first.
+
+    public Retention(final int keep, final Consumer<ParseGraph> consumer) {
+        this(keep, consumer, new ImmutableList<>());
+    }
+
+    private Retention(final int keep, final Consumer<ParseGraph> consumer, final ImmutableList<Mark> marks) {
+        this.keep = (int) checkNotNegative(keep, "keep");
+        this.consumer = checkNotNull(consumer, "consumer");
+        this.marks = marks;
+    }
+
+    /**
+     * To be called after an iteration has been parsed. Hands the iteration to
+     * the consumer and removes iterations that do not have to be retained.
+     * @param before the state before parsing the iteration
+     * @param after the state after parsing the iteration
+     * @return the state to continue parsing with and the retention to apply to the next iteration
+     */
+    public ImmutablePair<ParseState, Retention> retain(final ParseState before, final ParseState after) {
+        if (this == NONE) {
+            return new ImmutablePair<>(after, this);
+        }
+        final ParseGraph iteration = after.addedSince(before);
+        consumer.accept(iteration);
+        final ImmutableList<Mark> newMarks = marks.add(new Mark(iteration.size, before.cache.size()));
+        if (newMarks.size <= keep || newMarks.size < 2L * keep) {
+            return new ImmutablePair<>(after, new Retention(keep, consumer, newMarks));
+        }
+        final Mark[] kept = new Mark[keep];
+        ImmutableList<Mark> current = newMarks;
+        for (int i = 0; i < keep; i++) {
+            kept[i] = current.head;
+            current = current.tail;
+        }
+        long items = 0;
+        long first = 0;
+        for (; !current.isEmpty(); current = current.tail) {
+            items += current.head.items;
+            first = current.head.sequence;
+        }
+        ImmutableList<Mark> keptMarks = new ImmutableList<>();
+        for (int i = keep - 1; i >= 0; i--) {
+            keptMarks = keptMarks.add(kept[i]);
+        }
+        final long end = keep == 0 ? after.cache.size() : kept[keep - 1].sequence;
+        return new ImmutablePair<>(after.prune(items, first, end), new Retention(keep, consumer, keptMarks));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(keep:" + keep + ";retained:" + marks.size + ")";
+    }
+
+    /**
+     * The number of items an iteration added to its branch and the sequence
+     * number in the {@link ParseValueCache} of the first value it added.
+     */
+    private static final class Mark {
+
+        final long items;
+        final long sequence;
+
+        Mark(final long items, final long sequence) {
+            this.items = items;
+            this.sequence = sequence;
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.token.Token.NO_NAME;
+import static io.parsingdata.metal.token.Token.SEPARATOR;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An interned, hierarchical name, such as the scope of an {@link Environment}
+ * or the name of a {@link ParseValue}.
+ * <p>
+ * A name is a path of segments from the {@link #ROOT}, where every segment is
+ * the part of the name between two {@link io.parsingdata.metal.token.Token#SEPARATOR}s.
+ * Names are interned: a name is represented by exactly one instance, so names
+ * are compared by identity. Extending a name looks up its child in a table, so
+ * no strings are concatenated. The dotted form of a name, returned by
+ * {@link #toString()}, is built once and shared by all users of the name.
+ * <p>
+ * Interned names are never released. Their number is bounded by the number of
+ * distinct scopes of the tokens that are parsed and names that are queried.
+ */
+public final class ScopeName {
+
+    private static final Map<String, String> SEGMENTS = new ConcurrentHashMap<>();
+
+    public static final ScopeName ROOT = new ScopeName(null, NO_NAME);
+
+    public final ScopeName parent;
+    public final String segment;
+    public final int depth;
+
+    private final Map<String, ScopeName> children = new ConcurrentHashMap<>();
+    private volatile String name; // Cached, not part of equals.
+
+    private ScopeName(final ScopeName parent, final String segment) {
+        this.parent = parent;
+        this.segment = segment;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+    }
+
+    /**
+     * @return the interned name with the provided dotted form
+     */
+    public static ScopeName of(final String name) {
+        return ROOT.extend(name);
+    }
+
+    /**
+     * Extend this name with the provided (possibly dotted) name, as in
+     * <code>scope + SEPARATOR + name</code>. If either part is empty, no
+     * separator is added.
+     */
+    public ScopeName extend(final String name) {
+        checkNotNull(name, "name");
+        if (name.isEmpty()) {
+            return this;
+        }
+        ScopeName current = this;
+        int start = 0;
+        for (int end = name.indexOf(SEPARATOR); end >= 0; end = name.indexOf(SEPARATOR, start)) {
+            current = current.child(name.substring(start, end));
+            start = end + SEPARATOR.length();
+        }
+        return current.child(start == 0 ? name : name.substring(start));
+    }
+
+    private ScopeName child(final String segment) {
+        final ScopeName child = children.get(segment);
+        if (child != null) {
+            return child;
+        }
+        return children.computeIfAbsent(segment, key -> new ScopeName(this, SEGMENTS.computeIfAbsent(key, interned -> interned)));
+    }
+
+    /**
+     * Check whether this name equals the provided name or ends with a
+     * separator followed by it. Since segments are interned, they are
+     * compared by identity.
+     */
+    public boolean matches(final ScopeName suffix) {
+        checkNotNull(suffix, "suffix");
+        if (suffix == ROOT) {
+            // An empty name only matches names that end with a separator (or are empty).
+            return segment.isEmpty();
+        }
+        if (suffix.depth > depth) {
+            return false;
+        }
+        ScopeName current = this;
+        for (ScopeName part = suffix; part != ROOT; part = part.parent) {
+            if (current.segment != part.segment) {
+                return false;
+            }
+            current = current.parent;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (name == null) {
+            name = parent == null || parent == ROOT ? segment : parent + SEPARATOR + segment;
+        }
+        return name;
+    }
+
+}
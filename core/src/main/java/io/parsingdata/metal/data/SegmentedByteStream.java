@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static io.parsingdata.metal.Util.checkContainsNoNulls;
+import static io.parsingdata.metal.Util.format;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+import io.parsingdata.metal.Util;
+
+/**
+ * A {@link SizedByteStream} that concatenates an ordered sequence of
+ * {@link SizedByteStream}s into a single address space, such as the files of
+ * a split image (<code>image.001</code>, <code>image.002</code>, ...).
+ * <p>
+ * The start offset of every segment is kept in a table, which is binary
+ * searched to find the segment containing an offset. Reads that span a
+ * segment boundary are assembled directly into the result.
+ */
+public class SegmentedByteStream implements SizedByteStream {
+
+    public final long size;
+    private final SizedByteStream[] segments; // Private because array content is mutable.
+    private final long[] starts; // Private because array content is mutable. Has one more element than segments: the size.
+
+    public SegmentedByteStream(final SizedByteStream... segments) {
+        this.segments = checkContainsNoNulls(segments, "segments").clone();
+        starts = new long[segments.length + 1];
+        for (int i = 0; i < segments.length; i++) {
+            starts[i + 1] = Math.addExact(starts[i], segments[i].size());
+        }
+        size = starts[segments.length];
+    }
+
+    /**
+     * Creates a <code>SegmentedByteStream</code> on the given files, in order,
+     * by mapping each of them using a {@link MappedFileByteStream}.
+     * @param paths the files that together form the stream
+     * @return the stream spanning all files
+     * @throws IOException if one of the files can not be opened
+     */
+    public static SegmentedByteStream open(final Path... paths) throws IOException {
+        final SizedByteStream[] segments = new SizedByteStream[checkContainsNoNulls(paths, "paths").length];
+        for (int i = 0; i < paths.length; i++) {
+            segments[i] = new MappedFileByteStream(paths[i]);
+        }
+        return new SegmentedByteStream(segments);
+    }
+
+    @Override
+    public byte[] read(final BigInteger offset, final int length) throws IOException {
+        if (!isAvailable(offset, BigInteger.valueOf(length))) {
+            throw new IOException(format("Data to read is not available (offset=%s;length=%d;size=%d).", offset, length, size));
+        }
+        return read(offset.longValueExact(), length);
+    }
+
+    @Override
+    public byte[] read(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available (offset=%d;length=%d;size=%d).", offset, length, size));
+        }
+        final byte[] data = new byte[length];
+        int segment = findSegment(offset);
+        long position = offset;
+        int copied = 0;
+        while (copied < length) {
+            final long segmentOffset = position - starts[segment];
+            final int count = (int) Math.min(length - copied, starts[segment + 1] - position);
+            segments[segment].readBuffer(segmentOffset, count).get(data, copied, count);
+            copied += count;
+            position += count;
+            segment++;
+        }
+        return data;
+    }
+
+    @Override
+    public ByteBuffer readBuffer(final BigInteger offset, final int length) throws IOException {
+        if (!isAvailable(offset, BigInteger.valueOf(length))) {
+            throw new IOException(format("Data to read is not available (offset=%s;length=%d;size=%d).", offset, length, size));
+        }
+        return readBuffer(offset.longValueExact(), length);
+    }
+
+    @Override
+    public ByteBuffer readBuffer(final long offset, final int length) throws IOException {
+        if (!isAvailable(offset, length)) {
+            throw new IOException(format("Data to read is not available (offset=%d;length=%d;size=%d).", offset, length, size));
+        }
+        if (length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        final int segment = findSegment(offset);
+        if (offset + length > starts[segment + 1]) {
+            return ByteBuffer.wrap(read(offset, length)).asReadOnlyBuffer();
+        }
+        return segments[segment].readBuffer(offset - starts[segment], length);
+    }
+
+    /**
+     * Returns the index of the last segment that starts at or before the given
+     * offset. Since the offset must be smaller than the size, this segment is
+     * never empty.
+     */
+    private int findSegment(final long offset) {
+        int low = 0;
+        int high = segments.length - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + Arrays.toString(segments) + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Arrays.equals(segments, ((SegmentedByteStream)obj).segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), Arrays.hashCode(segments));
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import java.math.BigInteger;
+
+/**
+ * A {@link ByteStream} of which the total size is known up front.
+ * <p>
+ * Availability of data is determined by comparing against {@link #size()},
+ * without consulting the underlying storage. A {@link ByteStreamSource} created
+ * on a <code>SizedByteStream</code> retrieves the size once and answers all
+ * availability checks arithmetically.
+ */
+public interface SizedByteStream extends ByteStream {
+
+    long size();
+
+    @Override
+    default boolean isAvailable(final BigInteger offset, final BigInteger length) {
+        return offset.signum() >= 0
+            && length.signum() >= 0
+            && offset.add(length).compareTo(BigInteger.valueOf(size())) <= 0;
+    }
+
+    @Override
+    default boolean isAvailable(final long offset, final long length) {
+        final long size = size();
+        return offset >= 0
+            && length >= 0
+            && offset <= size
+            && length <= size - offset;
+    }
+
+}
@@ -21,8 +21,10 @@ import static java.math.BigInteger.ZERO;
 
 import static io.parsingdata.metal.Util.checkNotNegative;
 import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.toSafeLong;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -35,21 +37,37 @@ public class Slice extends ImmutableObject {
     public final BigInteger offset;
     public final BigInteger length;
 
+    // Cached long representations of offset and length, used to avoid BigInteger arithmetic in the common case.
+    // Negative if the value does not fit. Not part of equals.
+    private final long longOffset;
+    private final long longLength;
+
     private Slice(final Source source, final BigInteger offset, final BigInteger length) {
         this.source = checkNotNull(source, "source");
         this.offset = checkNotNull(offset, "offset");
         this.length = checkNotNull(length, "length");
+        longOffset = toSafeLong(offset);
+        longLength = toSafeLong(length);
     }
 
     public static Optional<Slice> createFromSource(final Source source, final BigInteger offset, final BigInteger length) {
         if (checkNotNull(offset, "offset").compareTo(ZERO) < 0 ||
             checkNotNull(length, "length").compareTo(ZERO) < 0 ||
-            !checkNotNull(source, "source").isAvailable(offset, length)) {
+            !isAvailable(checkNotNull(source, "source"), offset, length)) {
             return Optional.empty();
         }
         return Optional.of(new Slice(source, offset, length));
     }
 
+    private static boolean isAvailable(final Source source, final BigInteger offset, final BigInteger length) {
+        final long longOffset = toSafeLong(offset);
+        final long longLength = toSafeLong(length);
+        if (longOffset < 0 || longLength < 0) {
+            return source.isAvailable(offset, length);
+        }
+        return source.isAvailable(longOffset, longLength);
+    }
+
     public static Slice createFromBytes(final byte[] data) {
         return new Slice(new ConstantSource(checkNotNull(data, "data")), ZERO, BigInteger.valueOf(data.length));
     }
@@ -69,11 +87,41 @@ public class Slice extends ImmutableObject {
      * @return a byte array representing the data.
      */
     public byte[] getData(final BigInteger offset, final BigInteger limit) {
+        final long localOffset = toSafeLong(checkNotNegative(offset, "offset"));
+        final long localLimit = toSafeLong(checkNotNegative(limit, "limit"));
+        if (localOffset >= 0 && localLimit >= 0 && longOffset >= 0 && longLength >= 0) {
+            return source.getData(longOffset + localOffset, Math.max(0, Math.min(localLimit, longLength - localOffset)));
+        }
         final BigInteger calculatedOffset = checkNotNegative(offset, "offset").add(this.offset);
         final BigInteger calculatedLength = checkNotNegative(limit, "limit").min(length.subtract(offset)).max(ZERO);
         return source.getData(calculatedOffset, calculatedLength);
     }
 
+    public ByteBuffer getBuffer() {
+        return getBuffer(length);
+    }
+
+    public ByteBuffer getBuffer(final BigInteger limit) {
+        return getBuffer(ZERO, limit);
+    }
+
+    /**
+     * Return a read-only view on a part of the data specified by the offset and limit.
+     * @param offset the offset to start reading the slice from
+     * @param limit the maximum number of bytes returned. Fewer bytes are returned if the end of slice is reached.
+     * @return a read-only {@link ByteBuffer} representing the data.
+     */
+    public ByteBuffer getBuffer(final BigInteger offset, final BigInteger limit) {
+        final long localOffset = toSafeLong(checkNotNegative(offset, "offset"));
+        final long localLimit = toSafeLong(checkNotNegative(limit, "limit"));
+        if (localOffset >= 0 && localLimit >= 0 && longOffset >= 0 && longLength >= 0) {
+            return source.getBuffer(longOffset + localOffset, Math.max(0, Math.min(localLimit, longLength - localOffset)));
+        }
+        final BigInteger calculatedOffset = checkNotNegative(offset, "offset").add(this.offset);
+        final BigInteger calculatedLength = checkNotNegative(limit, "limit").min(length.subtract(offset)).max(ZERO);
+        return source.getBuffer(calculatedOffset, calculatedLength);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "(" + source + "@" + offset + ":" + length.add(offset) + ")";
@@ -18,6 +18,7 @@
 package io.parsingdata.metal.data;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import io.parsingdata.metal.ImmutableObject;
 
@@ -27,4 +28,37 @@ public abstract class Source extends ImmutableObject {
 
     protected abstract boolean isAvailable(BigInteger offset, BigInteger length);
 
+    /**
+     * Return a read-only view on the data specified by the offset and length.
+     * <p>
+     * The default implementation wraps the result of
+     * {@link #getData(BigInteger, BigInteger)}. Sources that have their data
+     * available in memory override it to return a view on that data without
+     * copying it.
+     * @param offset the offset to start reading the data from
+     * @param length the number of bytes to return
+     * @return a read-only {@link ByteBuffer} positioned at the start of the data
+     */
+    protected ByteBuffer getBuffer(final BigInteger offset, final BigInteger length) {
+        return ByteBuffer.wrap(getData(offset, length)).asReadOnlyBuffer();
+    }
+
+    /*
+     * The long variants below are used by Slice when offset and length fit in
+     * a long. They delegate to the BigInteger variants by default and are
+     * overridden by sources that can avoid allocating BigInteger instances.
+     */
+
+    protected byte[] getData(final long offset, final long length) {
+        return getData(BigInteger.valueOf(offset), BigInteger.valueOf(length));
+    }
+
+    protected boolean isAvailable(final long offset, final long length) {
+        return isAvailable(BigInteger.valueOf(offset), BigInteger.valueOf(length));
+    }
+
+    protected ByteBuffer getBuffer(final long offset, final long length) {
+        return getBuffer(BigInteger.valueOf(offset), BigInteger.valueOf(length));
+    }
+
 }
@@ -20,25 +20,30 @@ package io.parsingdata.metal.data.callback;
 import static io.parsingdata.metal.Trampoline.complete;
 import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
 
 import java.util.function.Consumer;
 
 import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ImmutablePair;
+import io.parsingdata.metal.data.ParseGraph;
 import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.Retention;
 import io.parsingdata.metal.token.Token;
 
 public class Callbacks {
 
-    public static final Callbacks NONE = new Callbacks(null, new ImmutableList<>());
+    public static final Callbacks NONE = new Callbacks(null, new ImmutableList<>(), new ImmutableList<>());
 
     public final Callback genericCallback;
     public final ImmutableList<ImmutablePair<Token, Callback>> tokenCallbacks;
+    public final ImmutableList<ImmutablePair<Token, Retention>> retentions;
 
-    private Callbacks(final Callback genericCallback, final ImmutableList<ImmutablePair<Token, Callback>> tokenCallbacks) {
+    private Callbacks(final Callback genericCallback, final ImmutableList<ImmutablePair<Token, Callback>> tokenCallbacks, final ImmutableList<ImmutablePair<Token, Retention>> retentions) {
         this.genericCallback = genericCallback;
         this.tokenCallbacks = checkNotNull(tokenCallbacks, "tokenCallbacks");
+        this.retentions = checkNotNull(retentions, "retentions");
     }
 
     public static Callbacks create() {
@@ -46,11 +51,44 @@ public class Callbacks {
     }
 
     public Callbacks add(final Callback genericCallback) {
-        return new Callbacks(genericCallback, tokenCallbacks);
+        return new Callbacks(genericCallback, tokenCallbacks, retentions);
     }
 
     public Callbacks add(final Token token, final Callback callback) {
-        return new Callbacks(genericCallback, tokenCallbacks.add(new ImmutablePair<>(token, callback)));
+        return new Callbacks(genericCallback, tokenCallbacks.add(new ImmutablePair<>(token, callback)), retentions);
+    }
+
+    /**
+     * Opt in to streaming the iterations of an iterable token: every finished
+     * iteration is handed to the consumer, after which only the most recent
+     * <code>keep</code> iterations are retained in the parse state.
+     * @see Retention
+     */
+    public Callbacks retain(final Token token, final int keep, final Consumer<ParseGraph> consumer) {
+        checkNotNull(token, "token");
+        if (!token.isIterable()) {
+            throw new IllegalArgumentException(format("Token %s is not iterable.", token.name));
+        }
+        return new Callbacks(genericCallback, tokenCallbacks, retentions.add(new ImmutablePair<>(token, new Retention(keep, consumer))));
+    }
+
+    /**
+     * @return the retention registered for the token, or {@link Retention#NONE}
+     */
+    public Retention retention(final Token token) {
+        for (ImmutableList<ImmutablePair<Token, Retention>> current = retentions; !current.isEmpty(); current = current.tail) {
+            if (current.head.left.equals(token)) {
+                return current.head.right;
+            }
+        }
+        return Retention.NONE;
+    }
+
+    /**
+     * @return whether a generic callback or any token callback is registered
+     */
+    public boolean hasCallbacks() {
+        return genericCallback != null || !tokenCallbacks.isEmpty();
     }
 
     public static Consumer<Callback> success(final Token token, final ParseState before, final ParseState after) {
@@ -81,7 +119,8 @@ public class Callbacks {
     @Override
     public String toString() {
         return (genericCallback == null ? "" : "generic: " + genericCallback + "; ") +
-            (tokenCallbacks.isEmpty() ? "" : "token: " + tokenCallbacks);
+            (tokenCallbacks.isEmpty() ? "" : "token: " + tokenCallbacks) +
+            (retentions.isEmpty() ? "" : "; retention: " + retentions);
     }
 
 }
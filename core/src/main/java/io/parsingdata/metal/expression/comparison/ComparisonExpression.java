@@ -59,7 +59,7 @@ public abstract class ComparisonExpression extends ImmutableObject implements Ex
     @Override
     public boolean eval(final ParseState parseState, final Encoding encoding) {
         final ImmutableList<Value> values = value == null
-            ? parseState.order.current()
+            ? parseState.current()
                 .map(ImmutableList::<Value>create)
                 .orElseGet(ImmutableList<Value>::new)
             : value.eval(parseState, encoding);
@@ -17,8 +17,6 @@
 
 package io.parsingdata.metal.expression.comparison;
 
-import java.util.Arrays;
-
 import io.parsingdata.metal.expression.value.Value;
 import io.parsingdata.metal.expression.value.ValueExpression;
 
@@ -42,7 +40,7 @@ public class Eq extends ComparisonExpression {
     @Override
     public boolean compare(final Value left, final Value right) {
         return left.slice().length.compareTo(right.slice().length) == 0
-            && Arrays.equals(left.value(), right.value());
+            && left.buffer().equals(right.buffer());
     }
 
 }
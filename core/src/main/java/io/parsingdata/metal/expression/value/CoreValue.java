@@ -21,6 +21,7 @@ import static io.parsingdata.metal.Util.bytesToHexString;
 import static io.parsingdata.metal.Util.checkNotNull;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.Objects;
 
@@ -58,6 +59,11 @@ public class CoreValue extends ImmutableObject implements Value {
         return slice.getData();
     }
 
+    @Override
+    public ByteBuffer buffer() {
+        return slice.getBuffer();
+    }
+
     @Override
     public BigInteger length() {
         return slice.length;
@@ -65,18 +71,42 @@ public class CoreValue extends ImmutableObject implements Value {
 
     @Override
     public BigInteger asNumeric() {
-        return encoding.sign == Sign.SIGNED ? new BigInteger(encoding.byteOrder.apply(value()))
-                                            : new BigInteger(1, encoding.byteOrder.apply(value()));
+        final ByteBuffer buffer = buffer();
+        final int size = buffer.remaining();
+        if ((size > 0 && size < Long.BYTES) || (size == Long.BYTES && encoding.sign == Sign.SIGNED)) {
+            return BigInteger.valueOf(asLong(buffer, size));
+        }
+        final byte[] bigEndian = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bigEndian[i] = buffer.get(buffer.position() + index(i, size));
+        }
+        return encoding.sign == Sign.SIGNED ? new BigInteger(bigEndian) : new BigInteger(1, bigEndian);
+    }
+
+    private long asLong(final ByteBuffer buffer, final int size) {
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            result = (result << Byte.SIZE) | (buffer.get(buffer.position() + index(i, size)) & 0xffL);
+        }
+        if (encoding.sign == Sign.SIGNED) {
+            final int shift = Long.SIZE - size * Byte.SIZE;
+            return (result << shift) >> shift;
+        }
+        return result;
+    }
+
+    private int index(final int bigEndianIndex, final int size) {
+        return encoding.byteOrder == ByteOrder.BIG_ENDIAN ? bigEndianIndex : (size - 1) - bigEndianIndex;
     }
 
     @Override
     public String asString() {
-        return new String(value(), encoding.charset);
+        return encoding.charset.decode(buffer()).toString();
     }
 
     @Override
     public BitSet asBitSet() {
-        return BitSet.valueOf(encoding.byteOrder == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN.apply(value()) : value());
+        return encoding.byteOrder == ByteOrder.BIG_ENDIAN ? BitSet.valueOf(ByteOrder.LITTLE_ENDIAN.apply(value())) : BitSet.valueOf(buffer());
     }
 
     @Override
@@ -18,9 +18,12 @@
 package io.parsingdata.metal.expression.value;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
+import java.util.Optional;
 
 import io.parsingdata.metal.data.Slice;
+import io.parsingdata.metal.data.Source;
 import io.parsingdata.metal.encoding.Encoding;
 
 public interface Value {
@@ -31,6 +34,13 @@ public interface Value {
 
     byte[] value();
 
+    /**
+     * @return a read-only view on the data of this value
+     */
+    default ByteBuffer buffer() {
+        return ByteBuffer.wrap(value()).asReadOnlyBuffer();
+    }
+
     BigInteger length();
 
     BigInteger asNumeric();
@@ -39,4 +49,14 @@ public interface Value {
 
     BitSet asBitSet();
 
+    /**
+     * Provides the data of this value without determining its length first,
+     * for values of which the length is only known once all data has been
+     * produced.
+     * @return a source starting with the data of this value, or empty if the data is to be read through {@link #slice()}
+     */
+    default Optional<Source> lazySource() {
+        return Optional.empty();
+    }
+
 }
@@ -24,6 +24,7 @@ import java.util.Optional;
 
 import io.parsingdata.metal.ImmutableObject;
 import io.parsingdata.metal.Util;
+import io.parsingdata.metal.data.IndexedValues;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.encoding.Sign;
@@ -46,7 +47,9 @@ public class Count extends ImmutableObject implements SingleValueExpression {
 
     @Override
     public Optional<Value> evalSingle(final ParseState parseState, final Encoding encoding) {
-        return Optional.of(fromNumeric(operand.eval(parseState, encoding).size));
+        return Optional.of(fromNumeric(Ref.evalIndexed(operand, parseState, encoding)
+            .map(IndexedValues::size)
+            .orElseGet(() -> operand.eval(parseState, encoding).size)));
     }
 
     private static Value fromNumeric(final long length) {
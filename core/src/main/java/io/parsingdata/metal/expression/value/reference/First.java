@@ -28,6 +28,7 @@ import io.parsingdata.metal.ImmutableObject;
 import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.IndexedValues;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.value.SingleValueExpression;
@@ -48,6 +49,10 @@ public class First extends ImmutableObject implements SingleValueExpression {
 
     @Override
     public Optional<Value> evalSingle(final ParseState parseState, final Encoding encoding) {
+        final Optional<IndexedValues> indexedValues = Ref.evalIndexed(operand, parseState, encoding);
+        if (indexedValues.isPresent()) {
+            return indexedValues.filter(values -> values.size() > 0).map(values -> values.get(0));
+        }
         final ImmutableList<Value> values = operand.eval(parseState, encoding);
         return values.isEmpty() ? Optional.empty() : Optional.of(getFirst(values).computeResult());
     }
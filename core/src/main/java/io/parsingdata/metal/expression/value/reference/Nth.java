@@ -17,7 +17,6 @@
 
 package io.parsingdata.metal.expression.value.reference;
 
-import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.ZERO;
 
 import static io.parsingdata.metal.Trampoline.complete;
@@ -28,11 +27,14 @@ import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
 import java.math.BigInteger;
 import java.util.Objects;
+import java.util.Optional;
 
 import io.parsingdata.metal.ImmutableObject;
 import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ImmutableVector;
+import io.parsingdata.metal.data.IndexedValues;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.value.NotAValue;
@@ -62,26 +64,22 @@ public class Nth extends ImmutableObject implements ValueExpression {
 
     @Override
     public ImmutableList<Value> eval(final ParseState parseState, final Encoding encoding) {
-        return reverse(eval(values.eval(parseState, encoding), indices.eval(parseState, encoding), new ImmutableList<>()).computeResult());
+        final Optional<IndexedValues> indexedValues = Ref.evalIndexed(values, parseState, encoding);
+        if (indexedValues.isPresent()) {
+            return reverse(evalIndexed(indexedValues.get(), indices.eval(parseState, encoding), new ImmutableList<>()).computeResult());
+        }
+        return reverse(evalIndexed(new VectorValues(ImmutableVector.create(values.eval(parseState, encoding))), indices.eval(parseState, encoding), new ImmutableList<>()).computeResult());
     }
 
-    private Trampoline<ImmutableList<Value>> eval(final ImmutableList<Value> values, final ImmutableList<Value> indices, final ImmutableList<Value> result) {
+    private Trampoline<ImmutableList<Value>> evalIndexed(final IndexedValues values, final ImmutableList<Value> indices, final ImmutableList<Value> result) {
         if (indices.isEmpty()) {
             return complete(() -> result);
         }
-        final BigInteger valueCount = BigInteger.valueOf(values.size);
         final Value index = indices.head;
-        final Value nextResult = !index.equals(NOT_A_VALUE) && index.asNumeric().compareTo(valueCount) < 0 && index.asNumeric().compareTo(ZERO) >= 0
-            ? nth(values, valueCount.subtract(index.asNumeric()).subtract(ONE)).computeResult()
+        final Value nextResult = !index.equals(NOT_A_VALUE) && index.asNumeric().compareTo(BigInteger.valueOf(values.size())) < 0 && index.asNumeric().compareTo(ZERO) >= 0
+            ? values.get(index.asNumeric().longValueExact())
             : NOT_A_VALUE;
-        return intermediate(() -> eval(values, indices.tail, result.add(nextResult)));
-    }
-
-    private Trampoline<Value> nth(final ImmutableList<Value> values, final BigInteger index) {
-        if (index.equals(ZERO)) {
-            return complete(() -> values.head);
-        }
-        return intermediate(() -> nth(values.tail, index.subtract(ONE)));
+        return intermediate(() -> evalIndexed(values, indices.tail, result.add(nextResult)));
     }
 
     @Override
@@ -101,4 +99,28 @@ public class Nth extends ImmutableObject implements ValueExpression {
         return Objects.hash(getClass(), values, indices);
     }
 
+    /**
+     * Indexed access to a list of values, which is converted to an
+     * {@link ImmutableVector} once so each index is looked up in logarithmic time.
+     */
+    private static final class VectorValues implements IndexedValues {
+
+        private final ImmutableVector<Value> values;
+
+        VectorValues(final ImmutableVector<Value> values) {
+            this.values = values;
+        }
+
+        @Override
+        public long size() {
+            return values.size;
+        }
+
+        @Override
+        public Value get(final long index) {
+            return values.get(index);
+        }
+
+    }
+
 }
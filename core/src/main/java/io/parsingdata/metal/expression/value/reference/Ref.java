@@ -38,8 +38,10 @@ import io.parsingdata.metal.ImmutableObject;
 import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.IndexedValues;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.data.ScopeName;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.value.SingleValueExpression;
 import io.parsingdata.metal.expression.value.Value;
@@ -79,27 +81,52 @@ public abstract class Ref<T> extends ImmutableObject implements ValueExpression
     }
 
     public static class NameRef extends Ref<String> {
+        private final ImmutableList<ScopeName> scopeNames; // Cached, not part of equals. The references, interned once.
+
         public NameRef(final String reference, final String... references) { this(null, null, reference, references); }
         public NameRef(final SingleValueExpression limit, final String reference, final String... references) { this(limit, null, reference, references); }
-        public NameRef(final SingleValueExpression limit, final SingleValueExpression scope, final String reference, final String... references) { super(ParseValue::matches, limit, scope, reference, references); }
-        private NameRef(final BiPredicate<ParseValue, String> predicate, final SingleValueExpression limit, final SingleValueExpression scope, final ImmutableList<String> references) { super(predicate, limit, scope, references); }
+        public NameRef(final SingleValueExpression limit, final SingleValueExpression scope, final String reference, final String... references) {
+            super(ParseValue::matches, limit, scope, reference, references);
+            scopeNames = toScopeNames(this.references);
+        }
+
+        private static ImmutableList<ScopeName> toScopeNames(final ImmutableList<String> references) {
+            final List<String> referenceList = toList(references);
+            ImmutableList<ScopeName> scopeNames = new ImmutableList<>();
+            for (int i = referenceList.size() - 1; i >= 0; i--) {
+                scopeNames = scopeNames.add(ScopeName.of(referenceList.get(i)));
+            }
+            return scopeNames;
+        }
 
         @Override
         protected ImmutableList<Value> evalImpl(final ParseState parseState, final int limit, final int requestedScope) {
-            return Optional.of(parseState.cache)
-                .filter(p -> references.size == 1)
-                .filter(p -> requestedScope >= parseState.scopeDepth)
-                .flatMap(p -> p.find(references.head, limit))
+            return parseState.cache.findByName(scopeNames, limit, requestedScope, parseState.scopeDepth)
                 .orElseGet(() -> super.evalImpl(parseState, limit, requestedScope));
         }
 
+        @Override
+        protected boolean matches(final ParseValue parseValue) {
+            for (ImmutableList<ScopeName> current = scopeNames; !current.isEmpty(); current = current.tail) {
+                if (parseValue.matches(current.head)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected Optional<IndexedValues> indexImpl(final ParseState parseState, final int limit, final int requestedScope) {
+            return parseState.cache.indexByName(references.head, limit, requestedScope, parseState.scopeDepth);
+        }
+
         @Override
         public NameRef withLimit(final SingleValueExpression limit) {
-            return new NameRef(predicate, limit, scope, references);
+            return new NameRef(limit, scope, references.head, toList(references.tail).toArray(new String[0]));
         }
         @Override
         public NameRef withScope(final SingleValueExpression scope) {
-            return new NameRef(predicate, limit, scope, references);
+            return new NameRef(limit, scope, references.head, toList(references.tail).toArray(new String[0]));
         }
     }
 
@@ -109,6 +136,17 @@ public abstract class Ref<T> extends ImmutableObject implements ValueExpression
         public DefinitionRef(final SingleValueExpression limit, final SingleValueExpression scope, final Token reference, final Token... references) { super(ParseValue::matches, limit, scope, reference, references); }
         private DefinitionRef(final BiPredicate<ParseValue, Token> predicate, final SingleValueExpression limit, final SingleValueExpression scope, final ImmutableList<Token> references) { super(predicate, limit, scope, references); }
 
+        @Override
+        protected ImmutableList<Value> evalImpl(final ParseState parseState, final int limit, final int requestedScope) {
+            return parseState.cache.findByDefinition(references, limit, requestedScope, parseState.scopeDepth)
+                .orElseGet(() -> super.evalImpl(parseState, limit, requestedScope));
+        }
+
+        @Override
+        protected Optional<IndexedValues> indexImpl(final ParseState parseState, final int limit, final int requestedScope) {
+            return parseState.cache.indexByDefinition(references.head, limit, requestedScope, parseState.scopeDepth);
+        }
+
         @Override
         public DefinitionRef withLimit(final SingleValueExpression limit) {
             return new DefinitionRef(predicate, limit, scope, references);
@@ -124,9 +162,7 @@ public abstract class Ref<T> extends ImmutableObject implements ValueExpression
 
     @Override
     public ImmutableList<Value> eval(final ParseState parseState, final Encoding encoding) {
-        final int requestedScope = scope == null ? parseState.scopeDepth : scope.evalSingle(parseState, encoding)
-            .filter(sizeValue -> !sizeValue.equals(NOT_A_VALUE) && sizeValue.asNumeric().compareTo(ZERO) >= 0)
-            .orElseThrow(() -> new IllegalArgumentException("Argument scopeSize must evaluate to a positive, countable value.")).asNumeric().intValueExact();
+        final int requestedScope = evalScope(parseState, encoding);
         if (limit == null) {
             return evalImpl(parseState, NO_LIMIT, requestedScope);
         }
@@ -135,8 +171,49 @@ public abstract class Ref<T> extends ImmutableObject implements ValueExpression
             .orElseThrow(() -> new IllegalArgumentException("Limit must evaluate to a non-empty value."));
     }
 
+    /**
+     * Provide indexed access to the values this reference evaluates to, if the
+     * {@link io.parsingdata.metal.data.ParseValueCache} can do so without
+     * collecting them in a list. Used by {@link Count}, {@link First},
+     * {@link Last} and {@link Nth}.
+     * @return the values, or empty if the reference must be evaluated instead
+     */
+    public Optional<IndexedValues> evalIndexed(final ParseState parseState, final Encoding encoding) {
+        if (references.size != 1) {
+            return Optional.empty();
+        }
+        final int requestedScope = evalScope(parseState, encoding);
+        if (limit == null) {
+            return indexImpl(parseState, NO_LIMIT, requestedScope);
+        }
+        return limit.evalSingle(parseState, encoding)
+            .filter(limitValue -> !limitValue.equals(NOT_A_VALUE))
+            .flatMap(limitValue -> indexImpl(parseState, limitValue.asNumeric().intValueExact(), requestedScope));
+    }
+
+    static Optional<IndexedValues> evalIndexed(final ValueExpression expression, final ParseState parseState, final Encoding encoding) {
+        return expression instanceof Ref ? ((Ref<?>) expression).evalIndexed(parseState, encoding) : Optional.empty();
+    }
+
+    private int evalScope(final ParseState parseState, final Encoding encoding) {
+        return scope == null ? parseState.scopeDepth : scope.evalSingle(parseState, encoding)
+            .filter(sizeValue -> !sizeValue.equals(NOT_A_VALUE) && sizeValue.asNumeric().compareTo(ZERO) >= 0)
+            .orElseThrow(() -> new IllegalArgumentException("Argument scopeSize must evaluate to a positive, countable value.")).asNumeric().intValueExact();
+    }
+
+    protected abstract Optional<IndexedValues> indexImpl(final ParseState parseState, final int limit, final int requestedScope);
+
     protected ImmutableList<Value> evalImpl(final ParseState parseState, final int limit, final int requestedScope) {
-        return wrap(getAllValues(parseState.order, parseValue -> toList(references).stream().anyMatch(ref -> predicate.test(parseValue, ref)), limit, requestedScope, parseState.scopeDepth), new ImmutableList<Value>()).computeResult();
+        return wrap(getAllValues(parseState.order(), this::matches, limit, requestedScope, parseState.scopeDepth), new ImmutableList<Value>()).computeResult();
+    }
+
+    protected boolean matches(final ParseValue parseValue) {
+        for (ImmutableList<T> current = references; !current.isEmpty(); current = current.tail) {
+            if (predicate.test(parseValue, current.head)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     static <T> List<T> toList(final ImmutableList<T> allValues) {
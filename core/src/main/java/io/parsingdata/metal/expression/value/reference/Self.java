@@ -36,7 +36,7 @@ public class Self extends ImmutableObject implements SingleValueExpression {
 
     @Override
     public Optional<Value> evalSingle(final ParseState parseState, final Encoding encoding) {
-        return parseState.order.current().map(identity());
+        return parseState.current().map(identity());
     }
 
     @Override
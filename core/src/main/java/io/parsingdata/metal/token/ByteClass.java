@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.Util.format;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import io.parsingdata.metal.ImmutableObject;
+import io.parsingdata.metal.Util;
+
+/**
+ * A set of byte values, used by {@link Scan} to match a single byte.
+ * <p>
+ * A ByteClass is created from a list of values ({@link #of(int...)}) or a
+ * range of values ({@link #range(int, int)}), both of which must be between
+ * <code>0</code> and <code>255</code> inclusive. ByteClasses are combined
+ * with {@link #or(ByteClass)} and inverted with {@link #not()}.
+ */
+public class ByteClass extends ImmutableObject {
+
+    public static final ByteClass ANY = range(0x00, 0xff);
+
+    private final long[] bits;
+
+    private ByteClass(final long[] bits) {
+        this.bits = checkNotNull(bits, "bits").clone();
+    }
+
+    public static ByteClass of(final int... values) {
+        final long[] bits = new long[4];
+        for (final int value : checkNotNull(values, "values")) {
+            checkByte(value, "values");
+            bits[value >>> 6] |= 1L << value;
+        }
+        return new ByteClass(bits);
+    }
+
+    public static ByteClass range(final int from, final int to) {
+        if (checkByte(from, "from") > checkByte(to, "to")) {
+            throw new IllegalArgumentException(format("Argument from (%d) may not be larger than argument to (%d).", from, to));
+        }
+        final long[] bits = new long[4];
+        for (int value = from; value <= to; value++) {
+            bits[value >>> 6] |= 1L << value;
+        }
+        return new ByteClass(bits);
+    }
+
+    private static int checkByte(final int value, final String name) {
+        if (value < 0x00 || value > 0xff) {
+            throw new IllegalArgumentException(format("Argument %s contains value %d, which is not a byte value.", name, value));
+        }
+        return value;
+    }
+
+    public ByteClass or(final ByteClass other) {
+        checkNotNull(other, "other");
+        final long[] result = new long[4];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bits[i] | other.bits[i];
+        }
+        return new ByteClass(result);
+    }
+
+    public ByteClass not() {
+        final long[] result = new long[4];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ~bits[i];
+        }
+        return new ByteClass(result);
+    }
+
+    public boolean contains(final byte value) {
+        final int index = value & 0xff;
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int value = 0; value <= 0xff; value++) {
+            if (contains((byte) value)) {
+                builder.append(builder.length() == 0 ? "" : ",").append(format("%02x", value));
+            }
+        }
+        return getClass().getSimpleName() + "(" + builder + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return Util.notNullAndSameClass(this, obj)
+            && Arrays.equals(bits, ((ByteClass)obj).bits);
+    }
+
+    @Override
+    public int immutableHashCode() {
+        return Objects.hash(getClass(), Arrays.hashCode(bits));
+    }
+
+}
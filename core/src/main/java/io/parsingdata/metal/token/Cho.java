@@ -24,6 +24,8 @@ import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.success;
 import static io.parsingdata.metal.data.ImmutableList.create;
 
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -32,6 +34,7 @@ import io.parsingdata.metal.Util;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.Slice;
 import io.parsingdata.metal.encoding.Encoding;
 
 /**
@@ -40,31 +43,73 @@ import io.parsingdata.metal.encoding.Encoding;
  * A Cho consists of a list of <code>tokens</code>. If none of the tokens
  * succeed, the Cho fails. If any token succeeds, the Cho succeeds. Precedence
  * is from left to right.
+ * <p>
+ * Alternatives that start with constant bytes (see {@link LeadingBytes}) are
+ * only parsed if the input starts with these bytes, unless callbacks are
+ * registered that have to be notified of their failure.
  */
 public class Cho extends CycleToken {
 
     public final ImmutableList<Token> tokens;
+    private final byte[][] leadingBytes; // Cached, not part of equals.
+    private final int maxLeadingBytes; // Cached, not part of equals.
 
     public Cho(final String name, final Encoding encoding, final Token token1, final Token token2, final Token... additionalTokens) {
         super(name, encoding);
         this.tokens = create(checkContainsNoNulls(additionalTokens, "additionalTokens"))
             .add(checkNotNull(token2, "token2"))
             .add(checkNotNull(token1, "token1"));
+        leadingBytes = new byte[(int) tokens.size][];
+        int index = 0;
+        for (ImmutableList<Token> current = tokens; !current.isEmpty(); current = current.tail) {
+            leadingBytes[index++] = LeadingBytes.of(current.head);
+        }
+        maxLeadingBytes = Arrays.stream(leadingBytes).mapToInt(bytes -> bytes.length).max().orElse(0);
     }
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return iterate(environment.addBranch(this), tokens).computeResult();
+        return iterate(environment.addBranch(this), tokens, 0, peek(environment)).computeResult();
     }
 
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final ImmutableList<Token> list) {
+    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final ImmutableList<Token> list, final int index, final byte[] input) {
         if (list.isEmpty()) {
             return complete(Util::failure);
         }
+        if (!mayMatch(environment, index, input)) {
+            return intermediate(() -> iterate(environment, list.tail, index + 1, input));
+        }
         return list.head
             .parse(environment)
             .map(result -> complete(() -> success(result.closeBranch(this))))
-            .orElseGet(() -> intermediate(() -> iterate(environment, list.tail)));
+            .orElseGet(() -> intermediate(() -> iterate(environment, list.tail, index + 1, input)));
+    }
+
+    /**
+     * Reads the bytes required to check the leading bytes of all alternatives at once.
+     * @return the bytes at the current offset, or <code>null</code> if they are not needed or not all available
+     */
+    byte[] peek(final Environment environment) {
+        if (maxLeadingBytes == 0 || environment.callbacks.hasCallbacks()) {
+            return null;
+        }
+        return environment.parseState.slice(BigInteger.valueOf(maxLeadingBytes)).map(Slice::getData).orElse(null);
+    }
+
+    /**
+     * @param input the result of {@link #peek(Environment)}
+     * @return false if the alternative at the provided index can not be parsed, true if it may be parsed
+     */
+    boolean mayMatch(final Environment environment, final int index, final byte[] input) {
+        final byte[] bytes = leadingBytes[index];
+        if (bytes.length == 0 || environment.callbacks.hasCallbacks()) {
+            return true;
+        }
+        if (input != null) {
+            return Arrays.equals(input, 0, bytes.length, bytes, 0, bytes.length);
+        }
+        // Near the end of the input, not all peeked bytes may be available.
+        return environment.parseState.slice(BigInteger.valueOf(bytes.length)).map(slice -> Arrays.equals(slice.getData(), bytes)).orElse(false);
     }
 
     @Override
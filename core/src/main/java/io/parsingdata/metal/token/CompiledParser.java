@@ -0,0 +1,270 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static io.parsingdata.metal.Util.checkNotNull;
+import static io.parsingdata.metal.data.callback.Callbacks.failure;
+import static io.parsingdata.metal.data.callback.Callbacks.success;
+import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
+
+import java.math.BigInteger;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ImmutablePair;
+import io.parsingdata.metal.data.ParseReference;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.Retention;
+import io.parsingdata.metal.data.callback.Callbacks;
+import io.parsingdata.metal.expression.value.Value;
+
+/**
+ * A parser for a {@link Token} definition, compiled into a tree of nodes
+ * that are specialized for the type of each token.
+ * <p>
+ * Parsing a token through {@link Token#parse(Environment)} wraps every step
+ * in an {@link Optional} and every iteration of a {@link Seq}, {@link Cho}
+ * or {@link IterableToken} in a {@link io.parsingdata.metal.Trampoline}
+ * closure. The nodes for these tokens parse their nested tokens in a plain
+ * loop instead, and signal failure by returning <code>null</code>. All other
+ * tokens (such as {@link Def}, {@link Sub}, {@link Tie} and
+ * {@link TokenRef}) are parsed through {@link Token#parse(Environment)}, so
+ * their nested tokens are not compiled. Subclasses of the specialized tokens
+ * are not compiled either, since they may change how they are parsed.
+ * <p>
+ * Parsing a compiled token results in the same {@link ParseState} as parsing
+ * the token itself, including all callbacks and retention policies.
+ */
+public final class CompiledParser {
+
+    public final Token token;
+    private final Node root;
+
+    private CompiledParser(final Token token, final Node root) {
+        this.token = token;
+        this.root = root;
+    }
+
+    public static CompiledParser compile(final Token token) {
+        return new CompiledParser(checkNotNull(token, "token"), compile(token, new IdentityHashMap<>()));
+    }
+
+    private static Node compile(final Token token, final Map<Token, Node> compiled) {
+        final Node node = compiled.get(token);
+        if (node != null) {
+            return node;
+        }
+        final Node result;
+        if (token.getClass() == Seq.class) {
+            result = new SeqNode((Seq) token, compile(((Seq) token).tokens, compiled));
+        } else if (token.getClass() == Cho.class) {
+            result = new ChoNode((Cho) token, compile(((Cho) token).tokens, compiled));
+        } else if (token.getClass() == Rep.class || token.getClass() == RepN.class || token.getClass() == While.class) {
+            result = new IterableNode((IterableToken) token, compile(((IterableToken) token).token, compiled));
+        } else {
+            result = new TokenNode(token);
+        }
+        compiled.put(token, result);
+        return result;
+    }
+
+    private static Node[] compile(final ImmutableList<Token> tokens, final Map<Token, Node> compiled) {
+        final Node[] nodes = new Node[(int) tokens.size];
+        ImmutableList<Token> current = tokens;
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compile(current.head, compiled);
+            current = current.tail;
+        }
+        return nodes;
+    }
+
+    /**
+     * @see Token#parse(Environment)
+     */
+    public Optional<ParseState> parse(final Environment environment) {
+        return Optional.ofNullable(root.parse(checkNotNull(environment, "environment")));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + token + ")";
+    }
+
+    private abstract static class Node {
+
+        final Token token;
+
+        Node(final Token token) {
+            this.token = token;
+        }
+
+        abstract ParseState parse(Environment environment);
+
+    }
+
+    private static final class TokenNode extends Node {
+
+        TokenNode(final Token token) {
+            super(token);
+        }
+
+        @Override
+        ParseState parse(final Environment environment) {
+            return token.parse(environment).orElse(null);
+        }
+
+    }
+
+    /**
+     * The steps of {@link CycleToken#parse(Environment)} and
+     * {@link Token#parse(Environment)}, for tokens that are their own canonical
+     * token.
+     */
+    private abstract static class CycleNode extends Node {
+
+        CycleNode(final Token token) {
+            super(token);
+        }
+
+        @Override
+        final ParseState parse(final Environment environment) {
+            final Environment cycleEnvironment = environment.addCycleReference(new ParseReference(environment.parseState.offset, environment.parseState.source, token));
+            final Environment activeEnvironment = token.encoding != null ? cycleEnvironment.withEncoding(token.encoding) : cycleEnvironment;
+            final ParseState result = parseImpl(activeEnvironment.extendScope(token.name));
+            if (environment.callbacks != Callbacks.NONE) {
+                cycleEnvironment.callbacks.handle(token, result != null ? success(token, cycleEnvironment.parseState, result) : failure(token, cycleEnvironment.parseState));
+            }
+            return result;
+        }
+
+        abstract ParseState parseImpl(Environment environment);
+
+    }
+
+    private static final class SeqNode extends CycleNode {
+
+        final Node[] nodes;
+
+        SeqNode(final Seq token, final Node[] nodes) {
+            super(token);
+            this.nodes = nodes;
+        }
+
+        @Override
+        ParseState parseImpl(final Environment environment) {
+            Environment current = environment.addBranch(token);
+            for (final Node node : nodes) {
+                final ParseState result = node.parse(current);
+                if (result == null) {
+                    return null;
+                }
+                current = current.withParseState(result);
+            }
+            return current.parseState.closeBranch(token);
+        }
+
+    }
+
+    private static final class ChoNode extends CycleNode {
+
+        final Node[] nodes;
+
+        ChoNode(final Cho token, final Node[] nodes) {
+            super(token);
+            this.nodes = nodes;
+        }
+
+        @Override
+        ParseState parseImpl(final Environment environment) {
+            final Environment branched = environment.addBranch(token);
+            final byte[] input = ((Cho) token).peek(environment);
+            for (int i = 0; i < nodes.length; i++) {
+                if (!((Cho) token).mayMatch(branched, i, input)) {
+                    continue;
+                }
+                final ParseState result = nodes[i].parse(branched);
+                if (result != null) {
+                    return result.closeBranch(token);
+                }
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * Parses a {@link Rep}, {@link RepN} or {@link While}, as
+     * {@link IterableToken#parse(Environment, java.util.function.Predicate, java.util.function.Function)}
+     * does.
+     */
+    private static final class IterableNode extends CycleNode {
+
+        final Node node;
+
+        IterableNode(final IterableToken token, final Node node) {
+            super(token);
+            this.node = node;
+        }
+
+        @Override
+        ParseState parseImpl(final Environment environment) {
+            final BigInteger count;
+            if (token instanceof RepN) {
+                final Optional<Value> n = ((RepN) token).n.evalSingle(environment.parseState, environment.encoding).filter(value -> !value.equals(NOT_A_VALUE));
+                if (n.isEmpty()) {
+                    return null;
+                }
+                count = n.get().asNumeric();
+            } else {
+                count = null;
+            }
+            Environment current = environment.addBranch(token);
+            Retention retention = environment.callbacks.retention(token);
+            while (!isDone(current, count)) {
+                final ParseState result = node.parse(current);
+                if (result == null) {
+                    // Only a Rep succeeds if an iteration fails.
+                    return token instanceof Rep ? current.parseState.closeBranch(token) : null;
+                }
+                if (retention == Retention.NONE) {
+                    current = current.withParseState(result.iterate());
+                } else {
+                    final ImmutablePair<ParseState, Retention> retained = retention.retain(current.parseState, result);
+                    retention = retained.right;
+                    current = current.withParseState(retained.left.iterate());
+                }
+            }
+            return current.parseState.closeBranch(token);
+        }
+
+        private boolean isDone(final Environment environment, final BigInteger count) {
+            if (token instanceof RepN) {
+                return environment.parseState.iterations.head.right.compareTo(count) >= 0;
+            }
+            if (token instanceof While) {
+                return !((While) token).predicate.eval(environment.parseState, environment.encoding);
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -25,9 +25,11 @@ import static io.parsingdata.metal.Trampoline.intermediate;
 import static io.parsingdata.metal.Util.checkNotEmpty;
 import static io.parsingdata.metal.Util.checkNotNull;
 import static io.parsingdata.metal.Util.success;
+import static io.parsingdata.metal.Util.toSafeLong;
 import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -68,6 +70,13 @@ import io.parsingdata.metal.expression.value.ValueExpression;
  * as sets of values to attempt. If <code>stepSize</code> is negative,
  * <code>maxSize</code> must be smaller than <code>initialSize</code>.
  * Parsing fails if <code>stepSize</code> is zero.
+ * <p>
+ * If the <code>terminator</code> starts with constant bytes (see
+ * {@link LeadingBytes}) and <code>stepSize</code> is positive, the input is
+ * scanned for these bytes and the <code>terminator</code> is only parsed where
+ * they are found. If the <code>terminator</code> consists of nothing but these
+ * bytes, it is not parsed at all. This is not done if callbacks are registered,
+ * since these have to be notified of every attempt.
  *
  * @see ValueExpression
  */
@@ -77,10 +86,15 @@ public class DefUntil extends Token {
     public static final ValueExpression DEFAULT_STEP = con(1);
     public static final ValueExpression DEFAULT_MAX = con(Integer.MAX_VALUE);
 
+    private static final int INITIAL_CHUNK_SIZE = 64;
+    private static final int MAX_CHUNK_SIZE = 1 << 20;
+
     public final ValueExpression initialSize;
     public final ValueExpression stepSize;
     public final ValueExpression maxSize;
     public final Token terminator;
+    private final byte[] terminatorBytes; // Cached, not part of equals.
+    private final boolean terminatorExact; // Cached, not part of equals.
 
     public DefUntil(final String name, final ValueExpression initialSize, final ValueExpression stepSize, final ValueExpression maxSize, final Token terminator, final Encoding encoding) {
         super(checkNotEmpty(name, "name"), encoding);
@@ -88,6 +102,8 @@ public class DefUntil extends Token {
         this.stepSize = stepSize == null ? DEFAULT_STEP : stepSize;
         this.maxSize = maxSize == null ? DEFAULT_MAX : maxSize;
         this.terminator = checkNotNull(terminator, "terminator");
+        terminatorBytes = LeadingBytes.of(terminator);
+        terminatorExact = LeadingBytes.isExact(terminator);
     }
 
     @Override
@@ -111,20 +127,70 @@ public class DefUntil extends Token {
             (stepSize.compareTo(ZERO) < 0 && currentSize.compareTo(maxSize) < 0)) {
             return complete(Util::failure);
         }
+        if (terminatorBytes.length > 0 && stepSize.compareTo(ZERO) > 0 && !environment.callbacks.hasCallbacks()) {
+            return findTerminator(environment.parseState, currentSize, stepSize, maxSize)
+                .map(size -> parseSize(environment, size, stepSize, maxSize, terminatorExact))
+                .orElseGet(() -> complete(Util::failure));
+        }
+        return parseSize(environment, currentSize, stepSize, maxSize, false);
+    }
+
+    private Trampoline<Optional<ParseState>> parseSize(final Environment environment, final BigInteger currentSize, final BigInteger stepSize, final BigInteger maxSize, final boolean terminatorFound) {
         return environment.parseState
             .slice(currentSize)
-            .map(slice -> parseSlice(environment, currentSize, stepSize, maxSize, slice))
+            .map(slice -> parseSlice(environment, currentSize, stepSize, maxSize, slice, terminatorFound))
             .orElseGet(() -> complete(Util::failure));
     }
 
-    private Trampoline<Optional<ParseState>> parseSlice(final Environment environment, final BigInteger currentSize, final BigInteger stepSize, final BigInteger maxSize, final Slice slice) {
-        return (currentSize.compareTo(ZERO) == 0 ? Optional.of(environment.parseState) : environment.parseState.add(new ParseValue(environment.scope, this, slice, environment.encoding)).seek(environment.parseState.offset.add(currentSize)))
-            .map(preparedParseState -> terminator.parse(environment.withParseState(preparedParseState)).map(ignore -> preparedParseState))
+    private Trampoline<Optional<ParseState>> parseSlice(final Environment environment, final BigInteger currentSize, final BigInteger stepSize, final BigInteger maxSize, final Slice slice, final boolean terminatorFound) {
+        return (currentSize.compareTo(ZERO) == 0 ? Optional.of(environment.parseState) : environment.parseState.add(new ParseValue(environment.scopeName, this, slice, environment.encoding)).seek(environment.parseState.offset.add(currentSize)))
+            .map(preparedParseState -> terminatorFound ? Optional.of(preparedParseState) : terminator.parse(environment.withParseState(preparedParseState)).map(ignore -> preparedParseState))
             .orElseGet(Util::failure)
             .map(parseState -> complete(() -> success(parseState)))
             .orElseGet(() -> intermediate(() -> iterate(environment, currentSize.add(stepSize), stepSize, maxSize)));
     }
 
+    /**
+     * Scans the input in chunks for the leading bytes of the terminator, at
+     * the offsets that the sizes to attempt lead to. A scan starts with a
+     * small chunk that grows, because after a candidate that the terminator
+     * fails to parse at, the scan is resumed just beyond that candidate.
+     * @return the first size at which the terminator may be parsed, empty if there is none
+     */
+    private Optional<BigInteger> findTerminator(final ParseState parseState, final BigInteger currentSize, final BigInteger stepSize, final BigInteger maxSize) {
+        final long start = toSafeLong(parseState.offset.add(currentSize));
+        final long last = toSafeLong(parseState.offset.add(maxSize));
+        final long step = toSafeLong(stepSize);
+        if (start < 0 || last < 0 || step < 0) {
+            // Beyond the range of a long, so attempt the current size as usual.
+            return Optional.of(currentSize);
+        }
+        long position = start;
+        int chunkSize = INITIAL_CHUNK_SIZE;
+        while (position <= last) {
+            final int length = (int) Math.min(chunkSize, last - position + terminatorBytes.length);
+            final Optional<Slice> chunk = Slice.createFromSource(parseState.source, BigInteger.valueOf(position), BigInteger.valueOf(length));
+            if (chunk.isEmpty()) {
+                if (length <= terminatorBytes.length) {
+                    // The terminator is not available at this position, nor at any position after it.
+                    return Optional.empty();
+                }
+                chunkSize = Math.max(terminatorBytes.length, length / 2);
+                continue;
+            }
+            final byte[] data = chunk.get().getData();
+            long index = 0;
+            for (; index + terminatorBytes.length <= data.length; index += step) {
+                if (data[(int) index] == terminatorBytes[0] && Arrays.equals(data, (int) index, (int) index + terminatorBytes.length, terminatorBytes, 0, terminatorBytes.length)) {
+                    return Optional.of(currentSize.add(BigInteger.valueOf(position + index - start)));
+                }
+            }
+            position += index;
+            chunkSize = Math.min(MAX_CHUNK_SIZE, chunkSize * 2);
+        }
+        return Optional.empty();
+    }
+
     private boolean checkNotValidList(final ImmutableList<Value> list) {
         return list.isEmpty() || list.head.equals(NOT_A_VALUE);
     }
@@ -30,6 +30,7 @@ import java.util.function.Predicate;
 import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.Retention;
 import io.parsingdata.metal.encoding.Encoding;
 
 public abstract class IterableToken extends CycleToken {
@@ -42,24 +43,26 @@ public abstract class IterableToken extends CycleToken {
     }
 
     protected final Optional<ParseState> parse(final Environment environment, final Predicate<Environment> stopCondition, final Function<Environment, Optional<ParseState>> ifIterationFails) {
-        return iterate(environment.addBranch(this), stopCondition, ifIterationFails).computeResult();
+        return iterate(environment.addBranch(this), environment.callbacks.retention(this), stopCondition, ifIterationFails).computeResult();
     }
 
     /**
      * Iteratively parse iterations of the token, given a stop condition and the logic how to handle a failed parse.
      *
      * @param environment the environment to apply the parse to
+     * @param retention the retention to apply to finished iterations
      * @param stopCondition a function to determine when to stop the iteration
      * @param ifIterationFails a function to determine how to handle a failed parse
      * @return a trampolined {@code Optional<ParseState>}
      */
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final Predicate<Environment> stopCondition, final Function<Environment, Optional<ParseState>> ifIterationFails) {
+    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final Retention retention, final Predicate<Environment> stopCondition, final Function<Environment, Optional<ParseState>> ifIterationFails) {
         if (stopCondition.test(environment)) {
             return complete(() -> success(environment.parseState.closeBranch(this)));
         }
         return token
                 .parse(environment)
-                .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState.iterate()), stopCondition, ifIterationFails)))
+                .map(nextParseState -> retention.retain(environment.parseState, nextParseState))
+                .map(retained -> intermediate(() -> iterate(environment.withParseState(retained.left.iterate()), retained.right, stopCondition, ifIterationFails)))
                 .orElseGet(() -> complete(() -> ifIterationFails.apply(environment)));
     }
 
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.expression.comparison.Eq;
+import io.parsingdata.metal.expression.value.Const;
+
+/**
+ * Derives the bytes that the input must start with for a token to be parsed
+ * successfully. These are the bytes compared to a constant by a
+ * <code>def(..., eq(con(...)))</code> at the start of the token. For example,
+ * the leading bytes of <code>seq(def("a", 1, eq(con(1))), def("b", 1, eq(con(2))), def("c", 1))</code>
+ * are <code>{1, 2}</code>.
+ * <p>
+ * The derivation is conservative: only the tokens of this library that are
+ * known to parse their nested tokens at the current offset are analyzed, so
+ * {@link Sub}, {@link Tie}, {@link TokenRef} and subclasses of any token
+ * have no leading bytes.
+ */
+final class LeadingBytes {
+
+    static final byte[] NONE = new byte[0];
+
+    private LeadingBytes() {}
+
+    /**
+     * @return the bytes the input must start with, or {@link #NONE} if these can not be derived
+     */
+    static byte[] of(final Token token) {
+        return prefix(token).bytes;
+    }
+
+    /**
+     * @return true if parsing the token succeeds if and only if the input starts with its leading bytes
+     */
+    static boolean isExact(final Token token) {
+        if (token.getClass() == Post.class) {
+            return ((Post) token).token.getClass() == Def.class && prefix(token).complete;
+        }
+        if (token.getClass() == Seq.class) {
+            return allExact(((Seq) token).tokens);
+        }
+        if (token.getClass() == Cho.class) {
+            return prefix(token).complete && allExact(((Cho) token).tokens);
+        }
+        return false;
+    }
+
+    private static boolean allExact(final ImmutableList<Token> tokens) {
+        for (ImmutableList<Token> current = tokens; !current.isEmpty(); current = current.tail) {
+            if (!isExact(current.head)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The leading bytes of a token, and whether the token always consumes
+     * exactly these bytes, so the leading bytes of the next token in a
+     * {@link Seq} follow them.
+     */
+    private static final class Prefix {
+
+        static final Prefix UNKNOWN = new Prefix(NONE, false);
+
+        final byte[] bytes;
+        final boolean complete;
+
+        Prefix(final byte[] bytes, final boolean complete) {
+            this.bytes = bytes;
+            this.complete = complete;
+        }
+
+    }
+
+    private static Prefix prefix(final Token token) {
+        if (token.getClass() == Post.class) {
+            return prefix((Post) token);
+        }
+        if (token.getClass() == Pre.class) {
+            // The predicate is evaluated first, but if parsing succeeds, the nested token has been parsed.
+            return prefix(((Pre) token).token);
+        }
+        if (token.getClass() == Seq.class) {
+            return prefix(((Seq) token).tokens);
+        }
+        if (token.getClass() == Cho.class) {
+            return commonPrefix(((Cho) token).tokens);
+        }
+        return Prefix.UNKNOWN;
+    }
+
+    private static Prefix prefix(final Post post) {
+        if (post.token.getClass() != Def.class) {
+            // A Post consumes exactly what its nested token consumes.
+            return prefix(post.token);
+        }
+        // The value parsed by a Def of constant size is compared to a constant of the same size.
+        final Def def = (Def) post.token;
+        if (post.predicate.getClass() != Eq.class || ((Eq) post.predicate).value != null
+            || def.size.getClass() != Const.class || ((Eq) post.predicate).predicate.getClass() != Const.class) {
+            return Prefix.UNKNOWN;
+        }
+        final byte[] expected = ((Const) ((Eq) post.predicate).predicate).value.value();
+        final BigInteger size = ((Const) def.size).value.asNumeric();
+        return size.equals(BigInteger.valueOf(expected.length)) ? new Prefix(expected, true) : Prefix.UNKNOWN;
+    }
+
+    private static Prefix prefix(final ImmutableList<Token> tokens) {
+        byte[] bytes = NONE;
+        for (ImmutableList<Token> current = tokens; !current.isEmpty(); current = current.tail) {
+            final Prefix prefix = prefix(current.head);
+            bytes = concat(bytes, prefix.bytes);
+            if (!prefix.complete) {
+                return new Prefix(bytes, false);
+            }
+        }
+        return new Prefix(bytes, true);
+    }
+
+    // Only if all alternatives consume exactly the same bytes, the leading bytes of the next token follow them.
+    private static Prefix commonPrefix(final ImmutableList<Token> tokens) {
+        byte[] bytes = null;
+        boolean complete = true;
+        for (ImmutableList<Token> current = tokens; !current.isEmpty(); current = current.tail) {
+            final Prefix next = prefix(current.head);
+            final int mismatch = bytes == null ? -1 : Arrays.mismatch(bytes, next.bytes);
+            complete &= next.complete && mismatch < 0;
+            bytes = bytes == null ? next.bytes : mismatch < 0 ? bytes : Arrays.copyOf(bytes, mismatch);
+        }
+        return new Prefix(bytes == null ? NONE : bytes, complete);
+    }
+
+    private static byte[] concat(final byte[] left, final byte[] right) {
+        final byte[] result = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result;
+    }
+
+}
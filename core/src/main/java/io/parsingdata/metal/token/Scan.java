@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static io.parsingdata.metal.Util.checkContainsNoNulls;
+import static io.parsingdata.metal.Util.checkNotEmpty;
+import static io.parsingdata.metal.Util.failure;
+import static io.parsingdata.metal.Util.format;
+import static io.parsingdata.metal.Util.success;
+import static io.parsingdata.metal.Util.toSafeLong;
+
+import java.math.BigInteger;
+import java.util.Objects;
+import java.util.Optional;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.data.Slice;
+import io.parsingdata.metal.data.Source;
+import io.parsingdata.metal.encoding.Encoding;
+
+/**
+ * A {@link Token} that specifies a value consisting of a run of units of
+ * bytes.
+ * <p>
+ * A Scan consists of a list of <code>units</code>, each of which is an array
+ * of {@link ByteClass}es that matches as many bytes. Starting at the current
+ * offset, the first unit that matches the input is consumed, after which the
+ * next unit is matched, until no unit matches. Using this token's name, a
+ * single value containing all consumed bytes is added to the
+ * <code>ParseState</code>. This is equivalent to a {@link Rep} of a
+ * {@link Cho} of a {@link Def} for each unit, but the input is read in bulk
+ * and only a single value is created.
+ * <p>
+ * Parsing always succeeds. If no unit matches at the current offset, no
+ * value is added, as is the case for a {@link Def} of size zero.
+ *
+ * @see ByteClass
+ */
+public class Scan extends Token {
+
+    private static final int MIN_CHUNK_SIZE = 4096;
+    private static final int MAX_CHUNK_SIZE = 1 << 20;
+
+    public final ImmutableList<ImmutableList<ByteClass>> units;
+    private final ByteClass[][] unitArrays; // Cached, not part of equals.
+    private final int maxUnitLength; // Cached, not part of equals.
+
+    public Scan(final String name, final Encoding encoding, final ByteClass[]... units) {
+        super(checkNotEmpty(name, "name"), encoding);
+        checkContainsNoNulls(units, "units");
+        if (units.length == 0) {
+            throw new IllegalArgumentException("Argument units may not be empty.");
+        }
+        unitArrays = new ByteClass[units.length][];
+        ImmutableList<ImmutableList<ByteClass>> list = new ImmutableList<>();
+        int maxLength = 0;
+        for (int i = units.length - 1; i >= 0; i--) {
+            if (checkContainsNoNulls(units[i], "units").length == 0) {
+                throw new IllegalArgumentException(format("Unit %d may not be empty.", i));
+            }
+            unitArrays[i] = units[i].clone();
+            list = list.add(ImmutableList.create(unitArrays[i]));
+            maxLength = Math.max(maxLength, units[i].length);
+        }
+        this.units = list;
+        maxUnitLength = maxLength;
+    }
+
+    @Override
+    protected Optional<ParseState> parseImpl(final Environment environment) {
+        final long start = toSafeLong(environment.parseState.offset);
+        if (start < 0) {
+            return failure();
+        }
+        final Source source = environment.parseState.source;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, maxUnitLength);
+        byte[] data = new byte[0];
+        long dataOffset = start;
+        int index = 0;
+        boolean end = false;
+        while (true) {
+            // Read ahead if a unit may extend beyond the data, unless the data ends where the input ends.
+            if (!end && index + maxUnitLength > data.length) {
+                dataOffset += index;
+                data = read(source, dataOffset, chunkSize);
+                index = 0;
+                end = data.length < maxUnitLength;
+                chunkSize = Math.max(chunkSize, Math.min(MAX_CHUNK_SIZE, chunkSize * 2));
+            }
+            final int matched = match(data, index);
+            if (matched == 0) {
+                break;
+            }
+            index += matched;
+        }
+        final long length = dataOffset + index - start;
+        if (length == 0) {
+            return success(environment.parseState);
+        }
+        return environment.parseState.slice(BigInteger.valueOf(length))
+            .flatMap(slice -> environment.parseState.add(new ParseValue(environment.scopeName, this, slice, environment.encoding)).seek(slice.length.add(environment.parseState.offset)));
+    }
+
+    private int match(final byte[] data, final int index) {
+        for (final ByteClass[] unit : unitArrays) {
+            if (matches(unit, data, index)) {
+                return unit.length;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean matches(final ByteClass[] unit, final byte[] data, final int index) {
+        if (index + unit.length > data.length) {
+            return false;
+        }
+        for (int i = 0; i < unit.length; i++) {
+            if (!unit[i].contains(data[index + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads up to <code>size</code> bytes, fewer if the input ends before.
+     * Below {@link #maxUnitLength}, the exact number of available bytes is
+     * determined, so a unit is only found not to match if it really does not.
+     */
+    private byte[] read(final Source source, final long offset, final int size) {
+        for (int length = size; length > 0; length = length > maxUnitLength ? Math.max(maxUnitLength, length / 2) : length - 1) {
+            final Optional<Slice> slice = Slice.createFromSource(source, BigInteger.valueOf(offset), BigInteger.valueOf(length));
+            if (slice.isPresent()) {
+                return slice.get().getData();
+            }
+        }
+        return new byte[0];
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + makeNameFragment() + units + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return super.equals(obj)
+            && Objects.equals(units, ((Scan)obj).units);
+    }
+
+    @Override
+    public int immutableHashCode() {
+        return Objects.hash(super.immutableHashCode(), units);
+    }
+
+}
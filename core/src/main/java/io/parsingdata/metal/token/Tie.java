@@ -28,6 +28,7 @@ import java.util.Optional;
 
 import io.parsingdata.metal.Trampoline;
 import io.parsingdata.metal.Util;
+import io.parsingdata.metal.data.DataExpressionEvaluation;
 import io.parsingdata.metal.data.DataExpressionSource;
 import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
@@ -63,18 +64,20 @@ public class Tie extends Token {
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return iterate(environment.addBranch(this), dataExpression.eval(environment.parseState, environment.encoding), 0, environment.parseState).computeResult();
+        final DataExpressionEvaluation evaluation = new DataExpressionEvaluation(dataExpression, environment.parseState, environment.encoding);
+        return iterate(environment.addBranch(this), evaluation, evaluation.getResults(), 0, environment.parseState).computeResult();
     }
 
-    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final ImmutableList<Value> values, final int index, final ParseState returnParseState) {
+    private Trampoline<Optional<ParseState>> iterate(final Environment environment, final DataExpressionEvaluation evaluation, final ImmutableList<Value> values, final int index, final ParseState returnParseState) {
         if (values.isEmpty()) {
-            return complete(() -> success(new ParseState(environment.parseState.closeBranch(this).order, environment.parseState.cache, returnParseState.source, returnParseState.offset, returnParseState.iterations, returnParseState.references, returnParseState.scopeDepth)));
+            final ParseState closedParseState = environment.parseState.closeBranch(this);
+            return complete(() -> success(new ParseState(closedParseState.order(), closedParseState.cache, returnParseState.source, returnParseState.offset, returnParseState.iterations, returnParseState.references, returnParseState.scopeDepth)));
         }
         if (values.head.equals(NOT_A_VALUE)) {
             return complete(Util::failure);
         }
-        return token.parse(environment.withParseState(environment.parseState.withSource(new DataExpressionSource(dataExpression, index, environment.parseState, environment.encoding))))
-                .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState), values.tail, index + 1, returnParseState)))
+        return token.parse(environment.withParseState(environment.parseState.withSource(new DataExpressionSource(evaluation, index))))
+                .map(nextParseState -> intermediate(() -> iterate(environment.withParseState(nextParseState), evaluation, values.tail, index + 1, returnParseState)))
                 .orElseGet(() -> complete(Util::failure));
     }
 
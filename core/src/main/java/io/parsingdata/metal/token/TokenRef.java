@@ -30,6 +30,7 @@ import io.parsingdata.metal.data.Environment;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ParseItem;
 import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValueCache;
 import io.parsingdata.metal.encoding.Encoding;
 
 /**
@@ -40,8 +41,10 @@ import io.parsingdata.metal.encoding.Encoding;
  * reference an enclosing token and use it at the current location. An example
  * for use of this token is to recursively define a linked list.
  * <p>
- * The referenced token is located in the current parse state by traversing it
- * backwards until it is located. Parsing will fail if it is not found.
+ * The referenced token is looked up in the {@link ParseValueCache} of the
+ * current parse state. If the cache can not answer the query, the token is
+ * located by traversing the parse graph backwards until it is located. Parsing
+ * will fail if it is not found.
  */
 public class TokenRef extends Token {
 
@@ -64,7 +67,7 @@ public class TokenRef extends Token {
 
     @Override
     protected Optional<ParseState> parseImpl(final Environment environment) {
-        return lookup(ImmutableList.create(environment.parseState.order), referenceName).computeResult().parse(environment);
+        return getCanonical(environment.parseState).parse(environment);
     }
 
     private Trampoline<Token> lookup(final ImmutableList<ParseItem> items, final String referenceName) {
@@ -83,7 +86,8 @@ public class TokenRef extends Token {
 
     @Override
     public Token getCanonical(final ParseState parseState) {
-        return lookup(ImmutableList.create(parseState.order), referenceName).computeResult();
+        return parseState.cache.findToken(referenceName)
+            .orElseGet(() -> lookup(ImmutableList.create(parseState.order()), referenceName).computeResult());
     }
 
     @Override
@@ -74,20 +74,33 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import io.parsingdata.metal.data.ByteStream;
 import io.parsingdata.metal.data.ByteStreamSource;
+import io.parsingdata.metal.data.CachingByteStream;
 import io.parsingdata.metal.data.ConcatenatedValueSource;
 import io.parsingdata.metal.data.ConstantSource;
+import io.parsingdata.metal.data.DataExpressionEvaluation;
 import io.parsingdata.metal.data.DataExpressionSource;
 import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.FrozenParseGraph;
+import io.parsingdata.metal.data.ImmutableHashMap;
+import io.parsingdata.metal.data.ImmutableVector;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ImmutablePair;
+import io.parsingdata.metal.data.InflatedSource;
+import io.parsingdata.metal.data.MappedFileByteStream;
+import io.parsingdata.metal.data.OffsetIndex;
 import io.parsingdata.metal.data.ParseGraph;
 import io.parsingdata.metal.data.ParseItem;
 import io.parsingdata.metal.data.ParseReference;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.data.ParseValue;
 import io.parsingdata.metal.data.ParseValueCache;
+import io.parsingdata.metal.data.PrefetchingByteStream;
+import io.parsingdata.metal.data.Retention;
+import io.parsingdata.metal.data.ScopeName;
+import io.parsingdata.metal.data.SegmentedByteStream;
 import io.parsingdata.metal.data.Selection;
 import io.parsingdata.metal.data.Slice;
+import io.parsingdata.metal.data.SizedByteStream;
 import io.parsingdata.metal.data.Source;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.Expression;
@@ -134,13 +147,16 @@ import io.parsingdata.metal.expression.value.reference.Nth;
 import io.parsingdata.metal.expression.value.reference.Offset;
 import io.parsingdata.metal.expression.value.reference.Ref;
 import io.parsingdata.metal.expression.value.reference.Self;
+import io.parsingdata.metal.token.ByteClass;
 import io.parsingdata.metal.token.Cho;
+import io.parsingdata.metal.token.CompiledParser;
 import io.parsingdata.metal.token.Def;
 import io.parsingdata.metal.token.DefUntil;
 import io.parsingdata.metal.token.Post;
 import io.parsingdata.metal.token.Pre;
 import io.parsingdata.metal.token.Rep;
 import io.parsingdata.metal.token.RepN;
+import io.parsingdata.metal.token.Scan;
 import io.parsingdata.metal.token.Seq;
 import io.parsingdata.metal.token.Sub;
 import io.parsingdata.metal.token.Tie;
@@ -156,7 +172,7 @@ public class AutoEqualityTest {
     private static final Set<Class<?>> CLASSES_TO_TEST = Set.of(
         // Tokens
         Cho.class, Def.class, Pre.class, Rep.class, RepN.class, Seq.class, Sub.class, Tie.class,
-        TokenRef.class, While.class, Post.class, DefUntil.class,
+        TokenRef.class, While.class, Post.class, DefUntil.class, Scan.class, ByteClass.class,
         // ValueExpressions
         Len.class, Offset.class, Neg.class, Not.class, Count.class, First.class, Last.class, Reverse.class,
         And.class, Or.class, ShiftLeft.class, ShiftRight.class, Add.class, Div.class, Mod.class, Mul.class,
@@ -174,7 +190,8 @@ public class AutoEqualityTest {
         ParseValueCache.class,
         // Inputs
         Slice.class,
-        ConstantSource.class, DataExpressionSource.class, ByteStreamSource.class, ConcatenatedValueSource.class
+        ConstantSource.class, DataExpressionSource.class, DataExpressionEvaluation.class, ByteStreamSource.class, ConcatenatedValueSource.class,
+        InflatedSource.class, SegmentedByteStream.class
     );
 
     private static final Set<Class<?>> CLASSES_TO_IGNORE = Set.of(
@@ -182,10 +199,20 @@ public class AutoEqualityTest {
         Ref.class,
         // Handled in EqualityTest manually.
         ImmutablePair.class,
+        // Handled in ImmutableHashMapTest, ImmutableVectorTest, FrozenParseGraphTest and OffsetIndexTest.
+        ImmutableHashMap.class, ImmutableVector.class, FrozenParseGraph.class, OffsetIndex.class,
+        // Interned and compared by identity, handled in ScopeNameTest.
+        ScopeName.class,
+        // Holds a consumer, handled in RetentionTest.
+        Retention.class,
+        // Not a value, handled in CompiledParserTest.
+        CompiledParser.class,
         // Utility classes.
         Selection.class, ConstantFactory.class,
         // Multiple constructors
-        Environment.class
+        Environment.class, CachingByteStream.class, PrefetchingByteStream.class,
+        // Requires an existing file.
+        MappedFileByteStream.class
     );
 
     public static final Object OTHER_TYPE = new Object() {};
@@ -195,12 +222,18 @@ public class AutoEqualityTest {
         @Override public boolean isAvailable(BigInteger offset, BigInteger length) { return false; }
     };
 
+    public static final SizedByteStream DUMMY_SIZED_STREAM = new SizedByteStream() {
+        @Override public byte[] read(BigInteger offset, int length) { return new byte[length]; }
+        @Override public long size() { return 1; }
+    };
+
     private static final ParseValue PARSE_VALUE = new ParseValue("a", any("a"), createFromBytes(new byte[]{1, 2}), enc());
-    private static final ParseGraph GRAPH_WITH_REFERENCE = createFromByteStream(DUMMY_STREAM).createCycle(new ParseReference(ZERO, new ConstantSource(new byte[]{1, 2}), any("a"))).order;
-    private static final ParseGraph BRANCHED_GRAPH = createFromByteStream(DUMMY_STREAM).addBranch(any("a")).order;
-    private static final ParseGraph CLOSED_BRANCHED_GRAPH = createFromByteStream(DUMMY_STREAM).addBranch(any("a")).closeBranch(any("a")).order;
+    private static final ParseGraph GRAPH_WITH_REFERENCE = createFromByteStream(DUMMY_STREAM).createCycle(new ParseReference(ZERO, new ConstantSource(new byte[]{1, 2}), any("a"))).order();
+    private static final ParseGraph BRANCHED_GRAPH = createFromByteStream(DUMMY_STREAM).addBranch(any("a")).order();
+    private static final ParseGraph CLOSED_BRANCHED_GRAPH = createFromByteStream(DUMMY_STREAM).addBranch(any("a")).closeBranch(any("a")).order();
 
     private static final List<Supplier<Object>> STRINGS = List.of(() -> "a", () -> "b");
+    private static final List<Supplier<Object>> SCOPE_NAMES = List.of(() -> ScopeName.of("a"), () -> ScopeName.of("b"));
     private static final List<Supplier<Object>> STRING_ARRAYS = List.of(() -> new String[] {"a"}, () -> new String[] {"b"}, () -> new String[] {"a", "b"}, () -> new String[] {"b", "c"}, () -> new String[] {"a", "b", "c"});
     private static final List<Supplier<Object>> ENCODINGS = List.of(EncodingFactory::enc, EncodingFactory::signed, EncodingFactory::le, () -> new Encoding(StandardCharsets.UTF_8));
     private static final List<Supplier<Object>> TOKENS = List.of(() -> any("a"), () -> any("b"));
@@ -213,24 +246,29 @@ public class AutoEqualityTest {
     private static final List<Supplier<Object>> REDUCERS = List.of(() -> (BinaryOperator<ValueExpression>) Shorthand::cat, () -> (BinaryOperator<ValueExpression>) Shorthand::div);
     private static final List<Supplier<Object>> SLICES = List.of(() -> createFromBytes(new byte[] { 1, 2 }), () -> Slice.createFromSource(new DataExpressionSource(ref("a"), 1, createFromByteStream(DUMMY_STREAM).add(PARSE_VALUE).add(PARSE_VALUE), enc()), ZERO, BigInteger.valueOf(2)).get());
     private static final List<Supplier<Object>> BYTE_ARRAYS = List.of(() -> new byte[] { 0 }, () -> new byte[] { 1, 2 }, () -> new byte[] {});
+    private static final List<Supplier<Object>> DATA_EXPRESSION_EVALUATIONS = List.of(() -> new DataExpressionEvaluation(ref("x"), createFromByteStream(DUMMY_STREAM), enc()), () -> new DataExpressionEvaluation(ref("y"), createFromByteStream(DUMMY_STREAM), signed()));
     private static final List<Supplier<Object>> SOURCES = List.of(() -> new ConstantSource(new byte[] {}), () -> new DataExpressionSource(ref("x"), 8, createFromByteStream(DUMMY_STREAM).add(PARSE_VALUE), signed()));
+    private static final List<Supplier<Object>> LONG_ARRAYS = List.of(() -> new long[] { 1, 0, 0, 0 }, () -> new long[] { 0, 0, 0, 1 });
+    private static final List<Supplier<Object>> BYTE_CLASS_UNITS = List.of(() -> new ByteClass[][] { { ByteClass.of(0) } }, () -> new ByteClass[][] { { ByteClass.of(1) } }, () -> new ByteClass[][] { { ByteClass.of(0) }, { ByteClass.of(0), ByteClass.of(1) } });
     private static final List<Supplier<Object>> LONGS = List.of(() -> 0L, () -> 1L, () -> 31L, () -> 100000L);
     private static final List<Supplier<Object>> INTEGERS = List.of(() -> 0, () -> 1, () -> 17, () -> 21212121);
     private static final List<Supplier<Object>> PARSE_GRAPHS = List.of(() -> ParseGraph.EMPTY, () -> GRAPH_WITH_REFERENCE);
-    private static final List<Supplier<Object>> PARSE_ITEMS = List.of(() -> CLOSED_BRANCHED_GRAPH, () -> ParseGraph.EMPTY, () -> GRAPH_WITH_REFERENCE, () -> createFromByteStream(DUMMY_STREAM).add(PARSE_VALUE).order, () -> createFromByteStream(DUMMY_STREAM).add(PARSE_VALUE).add(PARSE_VALUE).order, () -> BRANCHED_GRAPH);
+    private static final List<Supplier<Object>> PARSE_ITEMS = List.of(() -> CLOSED_BRANCHED_GRAPH, () -> ParseGraph.EMPTY, () -> GRAPH_WITH_REFERENCE, () -> createFromByteStream(DUMMY_STREAM).add(PARSE_VALUE).order(), () -> createFromByteStream(DUMMY_STREAM).add(PARSE_VALUE).add(PARSE_VALUE).order(), () -> BRANCHED_GRAPH);
     private static final List<Supplier<Object>> BYTE_STREAMS = List.of(() -> new InMemoryByteStream(new byte[] { 1, 2 }), () -> DUMMY_STREAM);
     private static final List<Supplier<Object>> BIG_INTEGERS = List.of(() -> ONE, () -> BigInteger.valueOf(3));
+    private static final List<Supplier<Object>> SIZED_BYTE_STREAM_ARRAYS = List.of(() -> new SizedByteStream[] {}, () -> new SizedByteStream[] { DUMMY_SIZED_STREAM }, () -> new SizedByteStream[] { DUMMY_SIZED_STREAM, DUMMY_SIZED_STREAM });
     private static final List<Supplier<Object>> PARSE_STATES = List.of(() -> createFromByteStream(DUMMY_STREAM), () -> createFromByteStream(DUMMY_STREAM, ONE), () -> new ParseState(GRAPH_WITH_REFERENCE, NO_CACHE, DUMMY_BYTE_STREAM_SOURCE, TEN, new ImmutableList<>(), new ImmutableList<>(), 0));
     private static final List<Supplier<Object>> PARSE_VALUE_CACHES = List.of(() -> NO_CACHE, ParseValueCache::new, () -> new ParseValueCache().add(PARSE_VALUE), () -> new ParseValueCache().add(PARSE_VALUE).add(PARSE_VALUE));
-    private static final List<Supplier<Object>> IMMUTABLE_LISTS = List.of(ImmutableList::new, () -> ImmutableList.create("TEST"), () -> ImmutableList.create(1), () -> ImmutableList.create(1).add(2));
+    private static final List<Supplier<Object>> IMMUTABLE_LISTS = List.of(ImmutableList::new, () -> ImmutableList.create(ConstantFactory.createFromString("TEST", enc())), () -> ImmutableList.create(ConstantFactory.createFromNumeric(1L, signed())), () -> ImmutableList.create(ConstantFactory.createFromNumeric(1L, signed())).add(ConstantFactory.createFromNumeric(2L, signed())));
     private static final List<Supplier<Object>> BOOLEANS = List.of(() -> true, () -> false);
     private static final List<Supplier<Object>> BIPREDICATES = List.of(() -> (BiPredicate<Object, Object>) (o, o2) -> false);
-    private static final List<Supplier<Object>> MAPS = List.of(Map::of, () -> Map.of("1", 1, "2", 2));
+    private static final List<Supplier<Object>> IMMUTABLE_HASH_MAPS = List.of(ImmutableHashMap::new, () -> new ImmutableHashMap<>().put("1", 1).put("2", 2));
     private static final Map<Class<?>, List<Supplier<Object>>> mapping = buildMap();
 
     private static Map<Class<?>, List<Supplier<Object>>> buildMap() {
         final Map<Class<?>, List<Supplier<Object>>> result = new HashMap<>();
         result.put(String.class, STRINGS);
+        result.put(ScopeName.class, SCOPE_NAMES);
         result.put(String[].class, STRING_ARRAYS);
         result.put(Encoding.class, ENCODINGS);
         result.put(Token.class, TOKENS);
@@ -244,18 +282,22 @@ public class AutoEqualityTest {
         result.put(Slice.class, SLICES);
         result.put(byte[].class, BYTE_ARRAYS);
         result.put(Source.class, SOURCES);
+        result.put(DataExpressionEvaluation.class, DATA_EXPRESSION_EVALUATIONS);
         result.put(long.class, LONGS);
+        result.put(long[].class, LONG_ARRAYS);
+        result.put(ByteClass[][].class, BYTE_CLASS_UNITS);
         result.put(int.class, INTEGERS);
         result.put(ParseGraph.class, PARSE_GRAPHS);
         result.put(ParseItem.class, PARSE_ITEMS);
         result.put(ByteStream.class, BYTE_STREAMS);
+        result.put(SizedByteStream[].class, SIZED_BYTE_STREAM_ARRAYS);
         result.put(BigInteger.class, BIG_INTEGERS);
         result.put(ParseState.class, PARSE_STATES);
         result.put(ParseValueCache.class, PARSE_VALUE_CACHES);
         result.put(ImmutableList.class, IMMUTABLE_LISTS);
         result.put(boolean.class, BOOLEANS);
         result.put(BiPredicate.class, BIPREDICATES);
-        result.put(Map.class, MAPS);
+        result.put(ImmutableHashMap.class, IMMUTABLE_HASH_MAPS);
         return result;
     }
 
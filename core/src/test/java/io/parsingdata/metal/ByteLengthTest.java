@@ -72,7 +72,7 @@ public class ByteLengthTest {
         final Optional<ParseState> result = STRING.parse(env(parseState, ENCODING));
 
         assertTrue(result.isPresent());
-        final ParseGraph graph = result.get().order;
+        final ParseGraph graph = result.get().order();
         assertEquals(5, getValue(graph, "length").asNumeric().byteValueExact());
         assertEquals("Hello", getValue(graph, "text1").asString());
         assertEquals("Metal", getValue(graph, "text2").asString());
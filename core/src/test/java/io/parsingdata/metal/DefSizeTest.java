@@ -63,7 +63,7 @@ public class DefSizeTest {
         assertTrue(result.isPresent());
         assertArrayEquals(
             new byte[]{0x04, 0x08},
-            getValue(result.get().order, "data").value()
+            getValue(result.get().order(), "data").value()
         );
     }
 
@@ -64,7 +64,7 @@ public class DefinitionTest {
     public void composed() {
         final Optional<ParseState> result = COMPOSED.parse(env(stream(1, 1, 1, 2, 2, 1, 2)));
         assertTrue(result.isPresent());
-        final ParseGraph graph = result.get().order;
+        final ParseGraph graph = result.get().order();
         assertEquals(NONE, graph.getDefinition());
         assertEquals(COMPOSED, graph.head.getDefinition());
         assertEquals(SUB_2, graph.head.asGraph().head.getDefinition());
@@ -101,16 +101,16 @@ public class EqualityTest {
     public void cycleWithIdenticalTokens() {
         final Optional<ParseState> result = LINKED_LIST_COMPOSED_IDENTICAL.parse(env(stream(0, 0, 1)));
         assertTrue(result.isPresent());
-        assertEquals(1, getAllValues(result.get().order, "header").size);
-        assertEquals(2, getReferences(result.get().order).size);
+        assertEquals(1, getAllValues(result.get().order(), "header").size);
+        assertEquals(2, getReferences(result.get().order()).size);
     }
 
     @Test
     public void cycleWithEqualTokens() {
         final Optional<ParseState> result = LINKED_LIST_COMPOSED_EQUAL.parse(env(stream(0, 0, 1)));
         assertTrue(result.isPresent());
-        assertEquals(1, getAllValues(result.get().order, "header").size);
-        assertEquals(2, getReferences(result.get().order).size);
+        assertEquals(1, getAllValues(result.get().order(), "header").size);
+        assertEquals(2, getReferences(result.get().order()).size);
     }
 
     @Test
@@ -186,13 +186,13 @@ public class EqualityTest {
     @Test
     public void parseGraph() {
         final ParseValue value = new ParseValue("a", any("a"), createFromBytes(new byte[]{1, 2}), enc());
-        final ParseGraph object = createFromByteStream(DUMMY_STREAM).add(value).order;
+        final ParseGraph object = createFromByteStream(DUMMY_STREAM).add(value).order();
         assertFalse(object.equals(null));
         assertNotEquals("a", object);
         final ParseState parseState = createFromByteStream(DUMMY_STREAM);
-        assertNotEquals(parseState.addBranch(any("a")).add(value).add(value).closeBranch(any("a")).addBranch(any("a")).order, parseState.addBranch(any("a")).closeBranch(any("a")).addBranch(any("a")).order);
-        assertNotEquals(parseState.addBranch(any("a")).order, parseState.addBranch(any("a")).closeBranch(any("a")).order);
-        assertNotEquals(parseState.addBranch(any("a")).order, parseState.addBranch(any("b")).order);
+        assertNotEquals(parseState.addBranch(any("a")).add(value).add(value).closeBranch(any("a")).addBranch(any("a")).order(), parseState.addBranch(any("a")).closeBranch(any("a")).addBranch(any("a")).order());
+        assertNotEquals(parseState.addBranch(any("a")).order(), parseState.addBranch(any("a")).closeBranch(any("a")).order());
+        assertNotEquals(parseState.addBranch(any("a")).order(), parseState.addBranch(any("b")).order());
     }
 
     @Test
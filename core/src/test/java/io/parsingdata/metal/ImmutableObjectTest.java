@@ -101,7 +101,7 @@ class ImmutableObjectTest {
         final Optional<ParseState> result = deep.parse(env(createFromByteStream(new InMemoryByteStream(input))));
         assertTrue(result.isPresent());
 
-        ImmutableList<ParseValue> allValues = Selection.getAllValues(result.get().order, x -> true);
+        ImmutableList<ParseValue> allValues = Selection.getAllValues(result.get().order(), x -> true);
         assertThat(allValues.size, equalTo(66L));
 
         final Map<ParseValue, Value> values = new HashMap<>();
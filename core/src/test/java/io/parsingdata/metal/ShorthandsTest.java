@@ -109,7 +109,7 @@ public class ShorthandsTest {
     private void runChoice(final int data, final String matched) {
         final Optional<ParseState> result = multiChoice.parse(env(stream(data)));
         assertTrue(result.isPresent());
-        assertTrue(result.get().order.current().get().matches(matched));
+        assertTrue(result.get().order().current().get().matches(matched));
     }
 
     @Test
@@ -226,7 +226,7 @@ public class ShorthandsTest {
         Optional<ParseState> result = when(def("name", con(1), eq(con(1))), TRUE).parse(env(stream(1)));
         assertTrue(result.isPresent());
         assertEquals(1, result.get().offset.intValueExact());
-        assertEquals(1, Selection.getAllValues(result.get().order, parseValue -> parseValue.matches("name") && parseValue.value().length == 1 && parseValue.value()[0] == 1).size);
+        assertEquals(1, Selection.getAllValues(result.get().order(), parseValue -> parseValue.matches("name") && parseValue.value().length == 1 && parseValue.value()[0] == 1).size);
     }
 
     @Test
@@ -237,7 +237,7 @@ public class ShorthandsTest {
                 def("name2", con(1), eq(con(2)))).parse(env(stream(2)));
         assertTrue(result.isPresent());
         assertEquals(1, result.get().offset.intValueExact());
-        assertEquals(1, Selection.getAllValues(result.get().order, parseValue -> parseValue.matches("name2") && parseValue.value().length == 1 && parseValue.value()[0] == 2).size);
+        assertEquals(1, Selection.getAllValues(result.get().order(), parseValue -> parseValue.matches("name2") && parseValue.value().length == 1 && parseValue.value()[0] == 2).size);
     }
 
 }
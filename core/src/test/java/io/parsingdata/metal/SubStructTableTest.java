@@ -64,7 +64,7 @@ public class SubStructTableTest {
         final Optional<ParseState> result = table.parse(env(parseState, enc()));
         assertTrue(result.isPresent());
         assertEquals(4, result.get().offset.intValueExact());
-        final ParseGraph graph = result.get().order;
+        final ParseGraph graph = result.get().order();
         checkStruct(graph.head.asGraph().head.asGraph().head.asGraph(), 6);
         checkStruct(graph.head.asGraph().head.asGraph().tail.head.asGraph(), 4);
         checkStruct(graph.head.asGraph().head.asGraph().tail.tail.head.asGraph(), 9);
@@ -84,7 +84,7 @@ public class SubStructTableTest {
         final Optional<ParseState> result = table.parse(env(parseState, enc()));
         assertTrue(result.isPresent());
         assertEquals(5, result.get().offset.intValueExact());
-        final ParseGraph graph = result.get().order;
+        final ParseGraph graph = result.get().order();
         checkStruct(graph.head.asGraph().head.asGraph().head.asGraph(), 7);
         assertTrue(graph.head.asGraph().head.asGraph().tail.head.isReference());
         checkStruct(graph.head.asGraph().head.asGraph().tail.head.asReference().resolve(graph).get().asGraph(), 5);
@@ -70,7 +70,7 @@ public class SubStructTest {
                                    */
         final Optional<ParseState> result = LINKED_LIST.parse(env(parseState, enc()));
         assertTrue(result.isPresent());
-        final ParseGraph graph = result.get().order;
+        final ParseGraph graph = result.get().order();
         assertEquals(0, getReferences(graph).size); // No cycles
 
         final ParseGraph first = graph.head.asGraph();
@@ -88,7 +88,7 @@ public class SubStructTest {
         final ParseState parseState = stream(0, 0, 1);
         final Optional<ParseState> result = LINKED_LIST.parse(env(parseState, enc()));
         assertTrue(result.isPresent());
-        final ParseGraph graph = result.get().order;
+        final ParseGraph graph = result.get().order();
         assertEquals(1, getReferences(graph).size);
 
         final ParseGraph first = graph.head.asGraph();
@@ -102,8 +102,8 @@ public class SubStructTest {
         final ParseState parseState = stream(0, 4, 1, 21, 0, 0, 1).seek(BigInteger.valueOf(offset)).get();
         final Optional<ParseState> result = LINKED_LIST.parse(env(parseState, enc()));
         assertTrue(result.isPresent());
-        assertEquals(1, getReferences(result.get().order).size);
-        return result.get().order;
+        assertEquals(1, getReferences(result.get().order()).size);
+        return result.get().order();
     }
 
     @Test
@@ -157,8 +157,8 @@ public class SubStructTest {
         final Optional<ParseState> result = sub(any("a"), ref("b")).parse(env(stream(1, 2, 3, 4)));
         assertTrue(result.isPresent());
         assertEquals(0, result.get().offset.intValueExact());
-        assertTrue(result.get().order.head.asGraph().isEmpty());
-        assertTrue(result.get().order.tail.asGraph().isEmpty());
+        assertTrue(result.get().order().head.asGraph().isEmpty());
+        assertTrue(result.get().order().tail.asGraph().isEmpty());
     }
 
     @Test
@@ -181,7 +181,7 @@ public class ToStringTest {
         final String parseStateWithIterationsString = "ParseState(source:ByteStreamSource(InMemoryByteStream(2));offset:0;order:pg(pg(terminator:Rep),pg(EMPTY),true);iterations:>Rep(Def(a,Const(0x01)))->1;scopeDepth:1;cache:size=0)";
         assertEquals(parseStateWithIterationsString, parseStateWithIterations.toString());
 
-        final ParseState parseStateWithoutCache = parseStateWithIterations.withOrder(parseStateWithIterations.order);
+        final ParseState parseStateWithoutCache = parseStateWithIterations.withOrder(parseStateWithIterations.order());
         final String parseStateWithoutCacheString = "ParseState(source:ByteStreamSource(InMemoryByteStream(2));offset:0;order:pg(pg(terminator:Rep),pg(EMPTY),true);iterations:>Rep(Def(a,Const(0x01)))->1;scopeDepth:1;no-cache)";
         assertEquals(parseStateWithoutCacheString, parseStateWithoutCache.toString());
 
@@ -222,10 +222,10 @@ public class ToStringTest {
         assertFalse(parseState.toString().contains(";iterations:"));
         assertFalse(parseState.toString().contains(";references:"));
         final ImmutableList<ImmutablePair<Token, BigInteger>> iterationsList = ImmutableList.create(new ImmutablePair<>(t(), BigInteger.ZERO));
-        final ParseState parseStateWithIteration = new ParseState(parseState.order, parseState.cache, parseState.source, parseState.offset, iterationsList, new ImmutableList<>(), 0);
+        final ParseState parseStateWithIteration = new ParseState(parseState.order(), parseState.cache, parseState.source, parseState.offset, iterationsList, new ImmutableList<>(), 0);
         assertTrue(parseStateWithIteration.toString().contains(";iterations:" + iterationsList.toString()));
         final ImmutableList<ParseReference> referencesList = ImmutableList.create(new ParseReference(BigInteger.ZERO, parseState.source, t()));
-        final ParseState parseStateWithReference = new ParseState(parseState.order, parseState.cache, parseState.source, parseState.offset, new ImmutableList<>(), referencesList, 0);
+        final ParseState parseStateWithReference = new ParseState(parseState.order(), parseState.cache, parseState.source, parseState.offset, new ImmutableList<>(), referencesList, 0);
         assertTrue(parseStateWithReference.toString().contains(";references:" + referencesList.toString()));
     }
 
@@ -92,7 +92,7 @@ public class TreeTest {
     }
 
     private void checkStructure(final ParseState parseState) {
-        final ParseGraph input = parseState.order.head.asGraph(); // order = top-level ParseGraph, head = top-level Seq
+        final ParseGraph input = parseState.order().head.asGraph(); // order = top-level ParseGraph, head = top-level Seq
         checkStructure(input, input, 0);
     }
 
@@ -141,7 +141,7 @@ public class TreeTest {
 
     @Test
     public void checkRegularTreeFlat() {
-        final ImmutableList<ParseValue> nrs = getAllValues(regular.order, "nr");
+        final ImmutableList<ParseValue> nrs = getAllValues(regular.order(), "nr");
         for (int i = 0; i < 7; i++) {
             assertTrue(contains(nrs, i));
         }
@@ -17,18 +17,33 @@
 
 package io.parsingdata.metal;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.opt;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.tie;
 import static io.parsingdata.metal.Util.inflate;
+import static io.parsingdata.metal.Util.lazyInflate;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
 import static io.parsingdata.metal.expression.value.NotAValue.NOT_A_VALUE;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
 
+import java.util.Optional;
+
 import org.junit.jupiter.api.Test;
 
 import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.expression.value.ValueExpression;
 
 public class UtilInflateTest {
 
@@ -39,4 +54,53 @@ public class UtilInflateTest {
         assertEquals(NOT_A_VALUE, result.head);
     }
 
+    @Test
+    public void lazyInflateDataFormatError() {
+        final ImmutableList<Value> result = lazyInflate(con(0xff)).eval(stream(), enc());
+        assertEquals(1, result.size);
+        assertEquals(NOT_A_VALUE, result.head);
+    }
+
+    @Test
+    public void lazyInflateDecodesOnDemand() {
+        // A stored block containing "metal", followed by a final stored block containing "!".
+        final ValueExpression data = con(0x00, 0x05, 0x00, 0xfa, 0xff, 'm', 'e', 't', 'a', 'l', 0x01, 0x01, 0x00, 0xfe, 0xff, '!');
+        final Optional<ParseState> result = tie(def("word", con(3)), lazyInflate(data)).parse(env(stream(), enc()));
+        assertTrue(result.isPresent());
+        assertEquals("met", getAllValues(result.get().order(), "word").head.asString());
+        assertEquals("metal!", lazyInflate(data).eval(stream(), enc()).head.asString());
+    }
+
+    @Test
+    public void lazyInflateCorruptTail() {
+        // A stored block containing "metal", followed by a block of invalid type.
+        final ValueExpression data = con(0x00, 0x05, 0x00, 0xfa, 0xff, 'm', 'e', 't', 'a', 'l', 0xff);
+        assertEquals(NOT_A_VALUE, inflate(data).eval(stream(), enc()).head);
+        // Reads preceding the discovery of the error succeed.
+        assertTrue(tie(def("word", con(3)), lazyInflate(data)).parse(env(stream(), enc())).isPresent());
+        assertFalse(tie(seq(def("word", con(5)), def("more", con(1))), lazyInflate(data)).parse(env(stream(), enc())).isPresent());
+        // Once the error is found, no data is available at all.
+        assertFalse(tie(seq(opt(def("probe", con(6))), def("word", con(3))), lazyInflate(data)).parse(env(stream(), enc())).isPresent());
+        final Value value = lazyInflate(data).eval(stream(), enc()).head;
+        assertThrows(UnsupportedOperationException.class, value::asString);
+    }
+
+    @Test
+    public void lazyInflateTruncated() {
+        // A stored block containing "metal", followed by a final stored block of five bytes of which only two are present.
+        final ValueExpression data = con(0x00, 0x05, 0x00, 0xfa, 0xff, 'm', 'e', 't', 'a', 'l', 0x01, 0x05, 0x00, 0xfa, 0xff, 'm', 'e');
+        assertFalse(tie(def("word", con(7)), lazyInflate(data)).parse(env(stream(), enc())).isPresent());
+        assertThrows(UnsupportedOperationException.class, lazyInflate(data).eval(stream(), enc()).head::length);
+        // Truncated within the first block.
+        assertEquals(NOT_A_VALUE, lazyInflate(con(0xcb, 0x4d, 0x2d)).eval(stream(), enc()).head);
+    }
+
+    @Test
+    public void lazyInflateEqualsInflate() {
+        final ValueExpression data = con(0xcb, 0x4d, 0x2d, 0x49, 0xcc, 0x01, 0x00);
+        final Value lazy = lazyInflate(data).eval(stream(), enc()).head;
+        assertEquals("metal", lazy.asString());
+        assertArrayEquals(inflate(data).eval(stream(), enc()).head.value(), lazy.value());
+    }
+
 }
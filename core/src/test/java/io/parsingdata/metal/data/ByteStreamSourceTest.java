@@ -17,12 +17,16 @@
 
 package io.parsingdata.metal.data;
 
+import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.TEN;
 import static java.math.BigInteger.ZERO;
 import static java.math.BigInteger.valueOf;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -46,6 +50,40 @@ public class ByteStreamSourceTest {
         assertThrows(UncheckedIOException.class, () -> Slice.createFromSource(DUMMY_BYTE_STREAM_SOURCE, ZERO, TEN).get().getData());
     }
 
+    @Test
+    public void sizedByteStreamAvailability() {
+        final int[] availabilityChecks = { 0 };
+        final ByteStreamSource source = new ByteStreamSource(new SizedByteStream() {
+            @Override public byte[] read(BigInteger offset, int length) { return new byte[length]; }
+            @Override public boolean isAvailable(BigInteger offset, BigInteger length) { availabilityChecks[0]++; return true; }
+            @Override public boolean isAvailable(long offset, long length) { availabilityChecks[0]++; return true; }
+            @Override public long size() { return 10; }
+        });
+        assertTrue(source.isAvailable(ZERO, TEN));
+        assertTrue(source.isAvailable(TEN, ZERO));
+        assertFalse(source.isAvailable(ONE, TEN));
+        assertTrue(source.isAvailable(2L, 8L));
+        assertFalse(source.isAvailable(11L, 0L));
+        assertFalse(source.isAvailable(BigInteger.valueOf(Long.MAX_VALUE).add(ONE), ZERO));
+        assertArrayEquals(new byte[4], Slice.createFromSource(source, valueOf(6), valueOf(4)).get().getData());
+        assertFalse(Slice.createFromSource(source, valueOf(7), valueOf(4)).isPresent());
+        assertEquals(0, availabilityChecks[0]);
+    }
+
+    @Test
+    public void sizedByteStreamDefaults() {
+        final SizedByteStream stream = new SizedByteStream() {
+            @Override public byte[] read(BigInteger offset, int length) { return new byte[length]; }
+            @Override public long size() { return 10; }
+        };
+        assertTrue(stream.isAvailable(ZERO, TEN));
+        assertFalse(stream.isAvailable(ONE, TEN));
+        assertFalse(stream.isAvailable(ONE.negate(), ONE));
+        assertTrue(stream.isAvailable(10L, 0L));
+        assertFalse(stream.isAvailable(10L, 1L));
+        assertFalse(stream.isAvailable(-1L, 1L));
+    }
+
     @Test
     @Timeout(value=1)
     public void byteStreamSourceRead() {
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.ltNum;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class CachingByteStreamTest {
+
+    private static final byte[] DATA = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+    private static class CountingByteStream extends InMemoryByteStream {
+
+        int reads;
+        int availabilityChecks;
+
+        CountingByteStream(final byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public byte[] read(final BigInteger offset, final int length) throws IOException {
+            reads++;
+            return super.read(offset, length);
+        }
+
+        @Override
+        public boolean isAvailable(final BigInteger offset, final BigInteger length) {
+            availabilityChecks++;
+            return super.isAvailable(offset, length);
+        }
+
+    }
+
+    @Test
+    public void readsArePaged() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final CachingByteStream stream = new CachingByteStream(input, 4, 8);
+        for (int i = 0; i < DATA.length; i++) {
+            assertArrayEquals(new byte[] { DATA[i] }, stream.read(BigInteger.valueOf(i), 1));
+        }
+        assertEquals(3, input.reads);
+        assertArrayEquals(DATA, stream.read(ZERO, DATA.length));
+        assertArrayEquals(new byte[] { 3, 4, 5, 6, 7, 8 }, stream.read(BigInteger.valueOf(3), 6));
+        assertEquals(3, input.reads);
+    }
+
+    @Test
+    public void readBuffer() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final CachingByteStream stream = new CachingByteStream(input, 4, 8);
+        assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), stream.readBuffer(ONE, 3));
+        assertTrue(stream.readBuffer(ONE, 3).isReadOnly());
+        assertEquals(ByteBuffer.wrap(new byte[] { 3, 4, 5 }), stream.readBuffer(BigInteger.valueOf(3), 3));
+        assertEquals(ByteBuffer.wrap(new byte[] { 8, 9 }), stream.readBuffer(BigInteger.valueOf(8), 2));
+        assertEquals(3, input.reads);
+        assertThrows(IOException.class, () -> stream.readBuffer(BigInteger.valueOf(9), 2));
+    }
+
+    @Test
+    public void leastRecentlyUsedPageIsEvicted() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final CachingByteStream stream = new CachingByteStream(input, 2, 2);
+        stream.read(ZERO, 1); // page 0
+        stream.read(BigInteger.valueOf(2), 1); // page 1
+        stream.read(ZERO, 1); // page 0 again, page 1 is now least recently used
+        stream.read(BigInteger.valueOf(4), 1); // page 2, evicts page 1
+        assertEquals(3, input.reads);
+        stream.read(ZERO, 1);
+        assertEquals(3, input.reads);
+        stream.read(BigInteger.valueOf(2), 1);
+        assertEquals(4, input.reads);
+    }
+
+    @Test
+    public void largeReadPassesThrough() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final CachingByteStream stream = new CachingByteStream(input, 2, 2);
+        assertArrayEquals(DATA, stream.read(ZERO, DATA.length));
+        assertEquals(1, input.reads);
+        stream.read(ZERO, 1);
+        assertEquals(2, input.reads);
+    }
+
+    @Test
+    public void availability() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final CachingByteStream stream = new CachingByteStream(input, 4, 8);
+        assertTrue(stream.isAvailable(ZERO, BigInteger.TEN));
+        final int checks = input.availabilityChecks;
+        assertTrue(stream.isAvailable(ONE, BigInteger.valueOf(5)));
+        assertTrue(stream.isAvailable(BigInteger.TEN, ZERO));
+        assertEquals(checks, input.availabilityChecks);
+        assertFalse(stream.isAvailable(BigInteger.TEN, ONE));
+    }
+
+    @Test
+    public void partialLastPage() throws IOException {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final CachingByteStream stream = new CachingByteStream(input, 8, 8);
+        assertArrayEquals(new byte[] { 8, 9 }, stream.read(BigInteger.valueOf(8), 2));
+        final int checks = input.availabilityChecks;
+        assertFalse(stream.isAvailable(BigInteger.valueOf(9), BigInteger.TWO));
+        assertEquals(checks, input.availabilityChecks);
+        final IOException e = assertThrows(IOException.class, () -> stream.read(BigInteger.valueOf(9), 2));
+        assertEquals("Data to read is not available (offset=9;length=2;input=CountingByteStream(10)).", e.getMessage());
+    }
+
+    @Test
+    public void invalidArguments() {
+        final IllegalArgumentException pageSize = assertThrows(IllegalArgumentException.class, () -> new CachingByteStream(new InMemoryByteStream(DATA), 0, 1));
+        assertEquals("Argument pageSize must be positive, but is 0.", pageSize.getMessage());
+        final IllegalArgumentException maxPages = assertThrows(IllegalArgumentException.class, () -> new CachingByteStream(new InMemoryByteStream(DATA), 1, -1));
+        assertEquals("Argument maxPages must be positive, but is -1.", maxPages.getMessage());
+    }
+
+    @Test
+    public void parse() {
+        final CountingByteStream input = new CountingByteStream(DATA);
+        final Optional<ParseState> result = rep(def("a", con(1), ltNum(con(10)))).parse(env(createFromByteStream(new CachingByteStream(input)), enc()));
+        assertTrue(result.isPresent());
+        assertEquals(BigInteger.TEN, result.get().offset);
+        assertEquals(1, input.reads);
+    }
+
+    @Test
+    public void equality() {
+        final InMemoryByteStream input = new InMemoryByteStream(DATA);
+        final CachingByteStream stream = new CachingByteStream(input);
+        assertEquals(stream, new CachingByteStream(input, CachingByteStream.DEFAULT_PAGE_SIZE, CachingByteStream.DEFAULT_MAX_PAGES));
+        assertEquals(stream.hashCode(), new CachingByteStream(input).hashCode());
+        assertNotEquals(stream, new CachingByteStream(input, 1, CachingByteStream.DEFAULT_MAX_PAGES));
+        assertNotEquals(stream, new CachingByteStream(input, CachingByteStream.DEFAULT_PAGE_SIZE, 1));
+        assertNotEquals(stream, new CachingByteStream(new InMemoryByteStream(new byte[0])));
+        assertNotEquals(null, stream);
+        assertEquals("CachingByteStream(InMemoryByteStream(10);65536;64)", stream.toString());
+    }
+
+}
@@ -17,6 +17,8 @@
 
 package io.parsingdata.metal.data;
 
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
 import static java.math.BigInteger.valueOf;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -26,6 +28,7 @@ import static io.parsingdata.metal.util.EncodingFactory.enc;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -100,6 +103,53 @@ public class ConcatenatedValueSourceTest {
         }
     }
 
+    @Test
+    public void coalescedFragments() {
+        final int[] reads = { 0 };
+        final ConstantSource source = new ConstantSource(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }) {
+            @Override
+            protected byte[] getData(final long offset, final long length) {
+                reads[0]++;
+                return super.getData(offset, length);
+            }
+        };
+        final ImmutableList<Value> list = ImmutableList
+            .<Value>create(new CoreValue(createFromSource(source, valueOf(0), valueOf(3)).get(), enc()))
+            .add(new CoreValue(createFromSource(source, valueOf(3), valueOf(0)).get(), enc()))
+            .add(new CoreValue(createFromSource(source, valueOf(3), valueOf(4)).get(), enc()))
+            .add(new CoreValue(createFromSource(source, valueOf(2), valueOf(2)).get(), enc()))
+            .add(new CoreValue(createFromSource(source, valueOf(4), valueOf(6)).get(), enc()));
+        final ConcatenatedValueSource concatenated = ConcatenatedValueSource.create(list).orElseThrow();
+        assertEquals(valueOf(15), concatenated.length);
+        assertArrayEquals(new byte[] { 0, 1, 2, 3, 4, 5, 6, 2, 3, 4, 5, 6, 7, 8, 9 }, concatenated.getData(ZERO, valueOf(15)));
+        // The first three values are coalesced, as are the last two.
+        assertEquals(2, reads[0]);
+        assertArrayEquals(new byte[] { 5, 6, 2, 3, 4 }, concatenated.getData(valueOf(5), valueOf(5)));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, concatenated.getData(1L, 5L));
+        assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 }), concatenated.getBuffer(ONE, valueOf(5)));
+        assertEquals(ByteBuffer.wrap(new byte[] { 6, 2 }), concatenated.getBuffer(6L, 2L));
+        assertEquals(ByteBuffer.wrap(new byte[0]), concatenated.getBuffer(15L, 0L));
+    }
+
+    @Test
+    @Timeout(value=2)
+    public void manyFragmentsRandomRead() {
+        final int fragments = 20_000;
+        final byte[] bytes = new byte[fragments * 2];
+        new Random().nextBytes(bytes);
+        ImmutableList<Value> values = new ImmutableList<>();
+        for (int fragment = 0; fragment < fragments; fragment++) {
+            // Alternate sources so the fragments cannot be coalesced.
+            values = values.add(new CoreValue(Slice.createFromBytes(Arrays.copyOfRange(bytes, fragment * 2, fragment * 2 + 2)), Encoding.DEFAULT_ENCODING));
+        }
+        final ConcatenatedValueSource source = ConcatenatedValueSource.create(values).get();
+        final Random random = new Random(0);
+        for (int read = 0; read < 100_000; read++) {
+            final int offset = random.nextInt(bytes.length - 3);
+            assertArrayEquals(Arrays.copyOfRange(bytes, offset, offset + 3), source.getData(valueOf(offset), valueOf(3)));
+        }
+    }
+
     @Test
     @Timeout(value=1)
     public void concatenatedValueSourceRead() {
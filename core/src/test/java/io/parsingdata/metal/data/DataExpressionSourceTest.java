@@ -30,9 +30,11 @@ import static io.parsingdata.metal.Shorthand.con;
 import static io.parsingdata.metal.Shorthand.def;
 import static io.parsingdata.metal.Shorthand.div;
 import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
 import static io.parsingdata.metal.Shorthand.seq;
 import static io.parsingdata.metal.Shorthand.tie;
 import static io.parsingdata.metal.data.Slice.createFromSource;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
 import static io.parsingdata.metal.data.selection.ByName.getValue;
 import static io.parsingdata.metal.expression.value.BytesTest.EMPTY_PARSE_STATE;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
@@ -52,6 +54,7 @@ import org.junit.jupiter.api.Timeout;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.value.CoreValue;
 import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.expression.value.ValueExpression;
 import io.parsingdata.metal.token.Token;
 import io.parsingdata.metal.util.ParseStateFactory;
 
@@ -60,7 +63,7 @@ public class DataExpressionSourceTest {
     public ParseValue setupValue() {
         final Optional<ParseState> result = setupResult();
         assertTrue(result.isPresent());
-        return getValue(result.get().order, "b");
+        return getValue(result.get().order(), "b");
     }
 
     private Optional<ParseState> setupResult() {
@@ -92,6 +95,36 @@ public class DataExpressionSourceTest {
         assertEquals("ValueExpression dataExpression yields NOT_A_VALUE at index 0.", e.getMessage());
     }
 
+    @Test
+    public void evaluatedOncePerTie() {
+        final int[] evaluations = { 0 };
+        final ValueExpression countingRef = new ValueExpression() {
+            @Override
+            public ImmutableList<Value> eval(final ParseState parseState, final Encoding encoding) {
+                evaluations[0]++;
+                return ref("a").eval(parseState, encoding);
+            }
+        };
+        final Optional<ParseState> result =
+            seq(rep(def("a", con(2))),
+                tie(def("b", con(1)), countingRef)).parse(env(stream(1, 2, 3, 4, 5, 6, 7, 8)));
+        assertTrue(result.isPresent());
+        assertEquals(4, getAllValues(result.get().order(), "b").size);
+        assertEquals(1, evaluations[0]);
+    }
+
+    @Test
+    public void sharedEvaluation() {
+        final Optional<ParseState> result = setupResult();
+        final DataExpressionEvaluation evaluation = new DataExpressionEvaluation(ref("a"), result.get(), enc());
+        final DataExpressionSource source = new DataExpressionSource(evaluation, 0);
+        assertEquals(new DataExpressionSource(ref("a"), 0, result.get(), enc()), source);
+        assertArrayEquals(new byte[] { 2, 3 }, source.getData(BigInteger.ONE, BigInteger.TWO));
+        assertTrue(source.getBuffer(BigInteger.ONE, BigInteger.TWO).isReadOnly());
+        final Exception e = Assertions.assertThrows(IllegalStateException.class, () -> new DataExpressionSource(evaluation, 1).getData(ZERO, BigInteger.ONE));
+        assertEquals("ValueExpression dataExpression yields 1 result(s) (expected at least 2).", e.getMessage());
+    }
+
     @Test
     @Timeout(value=1)
     public void dataExpressionSourceRead() {
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.repn;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.sub;
+import static io.parsingdata.metal.Shorthand.token;
+import static io.parsingdata.metal.data.FrozenParseGraph.NO_ITEM;
+import static io.parsingdata.metal.data.Selection.getAllValues;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.token.Token;
+
+public class FrozenParseGraphTest {
+
+    private static final Token HEADER = def("header", con(1));
+    private static final Token ITEM = seq("item", def("type", con(1)), def("value", con(2)));
+    private static final Token FORMAT = seq("format", HEADER, repn(ITEM, last(ref("header"))), rep(def("footer", con(1))));
+
+    private final ParseGraph graph = FORMAT.parse(env(stream(3, 1, 0, 10, 2, 0, 20, 3, 0, 30, 9, 9))).get().order();
+    private final FrozenParseGraph frozen = FrozenParseGraph.freeze(graph);
+
+    @Test
+    public void valuesInOrderOfAddition() {
+        final List<ParseValue> values = new ArrayList<>();
+        for (int item = 0; item < frozen.size; item++) {
+            if (frozen.isValue(item)) {
+                values.add(frozen.value(item));
+            }
+        }
+        final List<ParseValue> expected = new ArrayList<>();
+        for (ImmutableList<ParseValue> current = getAllValues(graph, value -> true); !current.isEmpty(); current = current.tail) {
+            expected.add(current.head);
+        }
+        assertEquals(expected, values);
+        assertEquals(List.of("format.header", "format.item.type", "format.item.value"), List.of(frozen.name(2), frozen.name(5), frozen.name(6)));
+    }
+
+    @Test
+    public void structure() {
+        // format graph: root > format > header, repn > 3 items, rep > 2 footers
+        assertTrue(frozen.isGraph(0));
+        assertEquals(NO_ITEM, frozen.parent(0));
+        assertEquals(NO_ITEM, frozen.nextSibling(0));
+        final int format = frozen.firstChild(0);
+        assertEquals(FORMAT, frozen.definition(format));
+        final int header = frozen.firstChild(format);
+        assertTrue(frozen.isValue(header));
+        assertEquals(NO_ITEM, frozen.firstChild(header));
+        assertEquals(0L, frozen.offset(header));
+        assertEquals(1L, frozen.length(header));
+        final int items = frozen.nextSibling(header);
+        final int footers = frozen.nextSibling(items);
+        assertEquals(NO_ITEM, frozen.nextSibling(footers));
+        assertEquals(3, children(items).size());
+        for (final int item : children(items)) {
+            assertEquals(ITEM, frozen.definition(item));
+            assertEquals(items, frozen.parent(item));
+            assertEquals(2, children(item).size());
+        }
+        assertEquals(2, children(footers).size());
+        assertEquals(11L, frozen.offset(children(footers).get(1)));
+    }
+
+    @Test
+    public void selectValues() {
+        final int[] values = frozen.values("value");
+        assertEquals(3, values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals((i + 1) * 10, frozen.value(values[i]).asNumeric().intValueExact());
+        }
+        assertArrayEquals(values, frozen.values("item.value"));
+        assertArrayEquals(new int[0], frozen.values("alue"));
+        assertArrayEquals(frozen.values("header"), frozen.values(HEADER));
+        assertArrayEquals(new int[0], frozen.values(def("other", con(1))));
+    }
+
+    @Test
+    public void references() {
+        final Token nested = seq("nested", def("size", con(1)), repn(sub(token("nested"), con(0)), last(ref("size"))));
+        final ParseGraph cyclic = nested.parse(env(stream(1))).get().order();
+        final FrozenParseGraph frozenCyclic = FrozenParseGraph.freeze(cyclic);
+        int references = 0;
+        for (int item = 0; item < frozenCyclic.size; item++) {
+            if (frozenCyclic.isReference(item)) {
+                references++;
+                assertEquals(0L, frozenCyclic.offset(item));
+                assertEquals(nested, frozenCyclic.definition(item));
+                assertFalse(frozenCyclic.isValue(item));
+            }
+        }
+        assertEquals(1, references);
+    }
+
+    @Test
+    public void invalidAccess() {
+        assertEquals("Item 0 is not a value.", assertThrows(IllegalArgumentException.class, () -> frozen.name(0)).getMessage());
+        assertEquals("Item 0 is a graph and has no offset.", assertThrows(IllegalArgumentException.class, () -> frozen.offset(0)).getMessage());
+        assertEquals("Item -1 out of range for " + frozen.size + " item(s).", assertThrows(IndexOutOfBoundsException.class, () -> frozen.isGraph(-1)).getMessage());
+        assertThrows(IndexOutOfBoundsException.class, () -> frozen.parent(frozen.size));
+    }
+
+    private List<Integer> children(final int graph) {
+        final List<Integer> children = new ArrayList<>();
+        for (int child = frozen.firstChild(graph); child != NO_ITEM; child = frozen.nextSibling(child)) {
+            children.add(child);
+        }
+        return children;
+    }
+
+}
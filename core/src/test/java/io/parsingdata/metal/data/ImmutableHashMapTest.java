@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class ImmutableHashMapTest {
+
+    @Test
+    public void putAndGet() {
+        final Random random = new Random(0);
+        final Map<Integer, Integer> expected = new HashMap<>();
+        ImmutableHashMap<Integer, Integer> map = new ImmutableHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            final int key = random.nextInt(5_000) * (random.nextBoolean() ? 1 : -1);
+            expected.put(key, i);
+            map = map.put(key, i);
+        }
+        assertEquals(expected.size(), map.size);
+        for (final Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertNull(map.get(5_000));
+        final Map<Integer, Integer> iterated = new HashMap<>();
+        map.forEach(iterated::put);
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void previousVersionsUnchanged() {
+        final ImmutableHashMap<String, Integer> first = new ImmutableHashMap<String, Integer>().put("a", 1);
+        final ImmutableHashMap<String, Integer> second = first.put("a", 2).put("b", 3);
+        assertEquals(1, first.size);
+        assertEquals(1, first.get("a"));
+        assertNull(first.get("b"));
+        assertEquals(2, second.size);
+        assertEquals(2, second.get("a"));
+        assertEquals(3, second.get("b"));
+    }
+
+    @Test
+    public void hashCollisions() {
+        // "Aa", "BB" and "C#" all have the same hash code, "AaAa" and "BBBB" too.
+        final ImmutableHashMap<String, Integer> map = new ImmutableHashMap<String, Integer>()
+            .put("Aa", 1).put("BB", 2).put("AaAa", 3).put("C#", 4).put("BBBB", 5).put("BB", 6).put("x", 7);
+        assertEquals(6, map.size);
+        assertEquals(1, map.get("Aa"));
+        assertEquals(6, map.get("BB"));
+        assertEquals(4, map.get("C#"));
+        assertEquals(3, map.get("AaAa"));
+        assertEquals(5, map.get("BBBB"));
+        assertEquals(7, map.get("x"));
+        assertNull(map.get("D\u0004"));
+    }
+
+    @Test
+    public void collisionNodeSplit() {
+        // Hash 0x40 shares its lowest 5 bits with 0x20, so it splits the collision node that holds the keys with hash 0x20.
+        final ImmutableHashMap<Object, Integer> map = new ImmutableHashMap<Object, Integer>()
+            .put(new FixedHash(0x20, "a"), 1).put(new FixedHash(0x20, "b"), 2).put(new FixedHash(0x40, "c"), 3).put(0x20, 4);
+        assertEquals(4, map.size);
+        assertEquals(1, map.get(new FixedHash(0x20, "a")));
+        assertEquals(2, map.get(new FixedHash(0x20, "b")));
+        assertEquals(3, map.get(new FixedHash(0x40, "c")));
+        assertEquals(4, map.get(0x20));
+    }
+
+    @Test
+    public void equality() {
+        final ImmutableHashMap<String, Integer> map = new ImmutableHashMap<String, Integer>().put("a", 1).put("b", 2).put("Aa", 3).put("BB", 4);
+        final ImmutableHashMap<String, Integer> reordered = new ImmutableHashMap<String, Integer>().put("BB", 4).put("b", 2).put("a", 0).put("Aa", 3).put("a", 1);
+        assertEquals(map, reordered);
+        assertEquals(map.hashCode(), reordered.hashCode());
+        assertNotEquals(map, reordered.put("a", 5));
+        assertNotEquals(map, reordered.put("c", 1));
+        assertNotEquals(map, null);
+        assertEquals("{}", new ImmutableHashMap<>().toString());
+        assertEquals("{a=1}", new ImmutableHashMap<String, Integer>().put("a", 1).toString());
+    }
+
+    @Test
+    public void nullKeyOrValue() {
+        assertThrows(IllegalArgumentException.class, () -> new ImmutableHashMap<String, Integer>().put(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ImmutableHashMap<String, Integer>().put("a", null));
+    }
+
+    private static class FixedHash {
+
+        final int hash;
+        final String name;
+
+        FixedHash(final int hash, final String name) {
+            this.hash = hash;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof FixedHash && hash == ((FixedHash) obj).hash && name.equals(((FixedHash) obj).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ImmutableVectorTest {
+
+    @Test
+    public void addAndGet() {
+        // Enough elements to require three levels in the tree.
+        ImmutableVector<Integer> vector = new ImmutableVector<>();
+        for (int i = 0; i < 40_000; i++) {
+            vector = vector.add(i);
+            assertEquals(i + 1, vector.size);
+        }
+        for (int i = 0; i < 40_000; i++) {
+            assertEquals(i, vector.get(i));
+        }
+        final List<Integer> iterated = new ArrayList<>();
+        vector.forEach(iterated::add);
+        assertEquals(40_000, iterated.size());
+        for (int i = 0; i < iterated.size(); i++) {
+            assertEquals(i, iterated.get(i));
+        }
+    }
+
+    @Test
+    public void previousVersionsUnchanged() {
+        ImmutableVector<Integer> vector = new ImmutableVector<>();
+        final List<ImmutableVector<Integer>> versions = new ArrayList<>();
+        for (int i = 0; i < 1_100; i++) {
+            versions.add(vector);
+            vector = vector.add(i);
+        }
+        for (int size = 0; size < versions.size(); size++) {
+            final ImmutableVector<Integer> version = versions.get(size);
+            assertEquals(size, version.size);
+            for (int i = 0; i < size; i++) {
+                assertEquals(i, version.get(i));
+            }
+        }
+        final ImmutableVector<Integer> branched = versions.get(32).add(-1);
+        assertEquals(-1, branched.get(32));
+        assertEquals(32, vector.get(32));
+    }
+
+    @Test
+    public void createFromList() {
+        for (final int size : new int[] { 0, 1, 31, 32, 33, 64, 1_024, 1_056, 1_057, 33_824 }) {
+            ImmutableList<Integer> list = new ImmutableList<>();
+            ImmutableVector<Integer> added = new ImmutableVector<>();
+            for (int i = 0; i < size; i++) {
+                list = list.add(i);
+                added = added.add(i);
+            }
+            final ImmutableVector<Integer> created = ImmutableVector.create(list);
+            assertEquals(added, created);
+            assertEquals(list.size, created.toList().size);
+            assertEquals(list.head, created.toList().head);
+            assertEquals(created, ImmutableVector.create(created.toList()));
+            // Both must be able to grow further in the same way.
+            assertEquals(added.add(size), created.add(size));
+        }
+    }
+
+    @Test
+    public void concatenate() {
+        ImmutableVector<Integer> left = new ImmutableVector<>();
+        ImmutableVector<Integer> right = new ImmutableVector<>();
+        ImmutableVector<Integer> all = new ImmutableVector<>();
+        for (int i = 0; i < 100; i++) {
+            left = left.add(i);
+            all = all.add(i);
+        }
+        for (int i = 100; i < 150; i++) {
+            right = right.add(i);
+            all = all.add(i);
+        }
+        assertEquals(all, left.add(right));
+        assertEquals(right, new ImmutableVector<Integer>().add(right));
+        assertEquals(left, left.add(new ImmutableVector<>()));
+    }
+
+    @Test
+    public void outOfBounds() {
+        final ImmutableVector<Integer> vector = new ImmutableVector<Integer>().add(1);
+        assertEquals("Index 1 out of range for 1 element(s).", assertThrows(IndexOutOfBoundsException.class, () -> vector.get(1)).getMessage());
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> new ImmutableVector<>().get(0));
+    }
+
+    @Test
+    public void nullElement() {
+        assertThrows(IllegalArgumentException.class, () -> new ImmutableVector<>().add((Object) null));
+    }
+
+    @Test
+    public void equality() {
+        final ImmutableVector<String> vector = new ImmutableVector<String>().add("a").add("b");
+        assertEquals(vector, new ImmutableVector<String>().add("a").add("b"));
+        assertEquals(vector.hashCode(), new ImmutableVector<String>().add("a").add("b").hashCode());
+        assertNotEquals(vector, new ImmutableVector<String>().add("b").add("a"));
+        assertNotEquals(vector, new ImmutableVector<String>().add("a"));
+        assertNotEquals(vector, null);
+        assertNotEquals(vector, "a");
+        assertEquals("[a,b]", vector.toString());
+        assertTrue(new ImmutableVector<>().isEmpty());
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ZERO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class InflatedSourceTest {
+
+    private static final byte[] RANDOM = random(300_000);
+    private static final byte[] TEXT = text(1_000_000);
+
+    public static Collection<Object[]> data() {
+        return List.of(new Object[][] {
+            { "empty", new byte[0], Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY },
+            { "short fixed", "metal".getBytes(StandardCharsets.US_ASCII), Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY },
+            { "random stored", RANDOM, Deflater.NO_COMPRESSION, Deflater.DEFAULT_STRATEGY },
+            { "random default", RANDOM, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY },
+            { "text default", TEXT, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY },
+            { "text best", TEXT, Deflater.BEST_COMPRESSION, Deflater.DEFAULT_STRATEGY },
+            { "text huffman only", TEXT, Deflater.DEFAULT_COMPRESSION, Deflater.HUFFMAN_ONLY },
+            { "text filtered", TEXT, Deflater.BEST_SPEED, Deflater.FILTERED }
+        });
+    }
+
+    @ParameterizedTest(name="{0}")
+    @MethodSource("data")
+    public void inflateSequentially(final String name, final byte[] data, final int level, final int strategy) {
+        final InflatedSource source = new InflatedSource(slice(deflate(data, level, strategy)));
+        assertEquals(Optional.of(BigInteger.valueOf(data.length)), source.size());
+        assertArrayEquals(data, source.getData(ZERO, BigInteger.valueOf(data.length)));
+        assertFalse(source.isAvailable(BigInteger.valueOf(data.length), BigInteger.ONE));
+    }
+
+    @ParameterizedTest(name="{0}")
+    @MethodSource("data")
+    public void inflateRandomAccess(final String name, final byte[] data, final int level, final int strategy) {
+        final InflatedSource source = new InflatedSource(slice(deflate(data, level, strategy)), 4096);
+        final Random random = new Random(data.length);
+        for (int i = 0; i < 200 && data.length > 0; i++) {
+            final int offset = random.nextInt(data.length);
+            final int length = random.nextInt(Math.min(100_000, data.length - offset) + 1);
+            assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length), source.getData(offset, length));
+        }
+    }
+
+    @Test
+    public void checkpointsLimitDecoding() {
+        final CountingSource input = new CountingSource(deflate(TEXT, Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY));
+        final InflatedSource source = new InflatedSource(Slice.createFromSource(input, ZERO, BigInteger.valueOf(input.length)).get(), 0);
+        assertEquals(Optional.of(BigInteger.valueOf(TEXT.length)), source.size());
+        final long fullPass = input.bytesRead;
+        assertArrayEquals(Arrays.copyOfRange(TEXT, 10, 20), source.getData(10, 10));
+        assertArrayEquals(Arrays.copyOfRange(TEXT, TEXT.length - 10, TEXT.length), source.getData(TEXT.length - 10, 10));
+        assertTrue(input.bytesRead - fullPass < fullPass / 2);
+    }
+
+    @Test
+    public void invalidData() {
+        final byte[] data = deflate(TEXT, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+        for (int i = data.length / 2; i < data.length; i++) {
+            data[i] = (byte) 0xff;
+        }
+        final InflatedSource source = new InflatedSource(slice(data));
+        // Reads preceding the discovery of the error succeed.
+        assertArrayEquals(Arrays.copyOfRange(TEXT, 0, 10), source.getData(ZERO, BigInteger.TEN));
+        assertEquals(Optional.empty(), source.size());
+        assertFalse(source.isAvailable(ZERO, BigInteger.TEN));
+        final IllegalStateException e = assertThrows(IllegalStateException.class, () -> source.getData(ZERO, BigInteger.TEN));
+        assertTrue(e.getMessage().startsWith("Data to read is not available"));
+    }
+
+    @Test
+    public void inputErrorPropagates() {
+        final byte[] data = deflate(TEXT, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+        final InflatedSource source = new InflatedSource(Slice.createFromSource(new FailingSource(data), ZERO, BigInteger.valueOf(data.length)).get());
+        final IllegalStateException e = assertThrows(IllegalStateException.class, source::size);
+        assertEquals("Input failure.", e.getMessage());
+    }
+
+    @Test
+    public void truncatedData() {
+        final byte[] data = deflate(TEXT, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+        final InflatedSource source = new InflatedSource(slice(Arrays.copyOf(data, data.length - 100)));
+        assertEquals(Optional.empty(), source.size());
+        assertFalse(source.isAvailable(ZERO, BigInteger.valueOf(TEXT.length)));
+    }
+
+    @Test
+    public void invalidBlockType() {
+        assertEquals(Optional.empty(), new InflatedSource(slice(new byte[] { (byte) 0xff })).size());
+    }
+
+    @Test
+    public void unavailableBeyondLongRange() {
+        final InflatedSource source = new InflatedSource(slice(deflate(TEXT, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY)));
+        final BigInteger large = BigInteger.valueOf(Long.MAX_VALUE);
+        assertFalse(source.isAvailable(large, BigInteger.ONE));
+        assertThrows(IllegalStateException.class, () -> source.getData(large, BigInteger.ONE));
+    }
+
+    @Test
+    public void negativeCheckpointInterval() {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new InflatedSource(slice(new byte[0]), -1));
+        assertEquals("Argument checkpointInterval may not be negative.", e.getMessage());
+    }
+
+    private static Slice slice(final byte[] data) {
+        return Slice.createFromBytes(data);
+    }
+
+    private static byte[] deflate(final byte[] data, final int level, final int strategy) {
+        final Deflater deflater = new Deflater(level, true);
+        deflater.setStrategy(strategy);
+        deflater.setInput(data);
+        deflater.finish();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] random(final int length) {
+        final byte[] data = new byte[length];
+        new Random(0).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] text(final int length) {
+        final String[] words = { "metal", "parse", "token", "value", "slice", "source", "stream", "def", "seq", "rep" };
+        final Random random = new Random(1);
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append(words[random.nextInt(words.length)]).append(random.nextInt(3) == 0 ? '\n' : ' ');
+        }
+        return builder.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static class CountingSource extends ConstantSource {
+
+        final int length;
+        long bytesRead;
+
+        CountingSource(final byte[] data) {
+            super(data);
+            length = data.length;
+        }
+
+        @Override
+        protected byte[] getData(final long offset, final long length) {
+            bytesRead += length;
+            return super.getData(offset, length);
+        }
+
+    }
+
+    private static class FailingSource extends ConstantSource {
+
+        FailingSource(final byte[] data) {
+            super(data);
+        }
+
+        @Override
+        protected byte[] getData(final BigInteger offset, final BigInteger length) {
+            throw new IllegalStateException("Input failure.");
+        }
+
+        @Override
+        protected byte[] getData(final long offset, final long length) {
+            throw new IllegalStateException("Input failure.");
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedFileByteStreamTest {
+
+    private static final byte[] DATA = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+    @TempDir
+    public Path directory;
+
+    private Path file;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        file = Files.write(directory.resolve("data.bin"), DATA);
+    }
+
+    @Test
+    public void readWithinSegment() throws IOException {
+        final MappedFileByteStream stream = new MappedFileByteStream(file);
+        assertEquals(DATA.length, stream.size);
+        assertArrayEquals(DATA, stream.read(ZERO, DATA.length));
+        assertArrayEquals(new byte[] { 3, 4, 5 }, stream.read(BigInteger.valueOf(3), 3));
+    }
+
+    @Test
+    public void readAcrossSegments() throws IOException {
+        final MappedFileByteStream stream = new MappedFileByteStream(file, 3);
+        assertArrayEquals(DATA, stream.read(ZERO, DATA.length));
+        assertArrayEquals(new byte[] { 2, 3, 4, 5, 6, 7 }, stream.read(BigInteger.valueOf(2), 6));
+        assertArrayEquals(new byte[] { 9 }, stream.read(BigInteger.valueOf(9), 1));
+        assertArrayEquals(new byte[0], stream.read(BigInteger.valueOf(10), 0));
+    }
+
+    @Test
+    public void readBuffer() throws IOException {
+        final MappedFileByteStream stream = new MappedFileByteStream(file, 4);
+        assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), stream.readBuffer(ONE, 3));
+        assertTrue(stream.readBuffer(ONE, 3).isReadOnly());
+        assertEquals(ByteBuffer.wrap(new byte[] { 3, 4, 5 }), stream.readBuffer(BigInteger.valueOf(3), 3));
+        assertThrows(IOException.class, () -> stream.readBuffer(BigInteger.valueOf(9), 2));
+    }
+
+    @Test
+    public void availability() throws IOException {
+        final MappedFileByteStream stream = new MappedFileByteStream(file, 4);
+        assertTrue(stream.isAvailable(ZERO, BigInteger.TEN));
+        assertTrue(stream.isAvailable(BigInteger.TEN, ZERO));
+        assertFalse(stream.isAvailable(ZERO, BigInteger.valueOf(11)));
+        assertFalse(stream.isAvailable(BigInteger.TEN, ONE));
+        assertFalse(stream.isAvailable(ONE.negate(), ONE));
+    }
+
+    @Test
+    public void readBeyondEnd() throws IOException {
+        final MappedFileByteStream stream = new MappedFileByteStream(file, 4);
+        final IOException e = assertThrows(IOException.class, () -> stream.read(BigInteger.valueOf(8), 3));
+        assertEquals("Data to read is not available (offset=8;length=3;size=10).", e.getMessage());
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        final MappedFileByteStream stream = new MappedFileByteStream(Files.write(directory.resolve("empty.bin"), new byte[0]));
+        assertEquals(0, stream.size);
+        assertTrue(stream.isAvailable(ZERO, ZERO));
+        assertFalse(stream.isAvailable(ZERO, ONE));
+    }
+
+    @Test
+    public void invalidSegmentSize() {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new MappedFileByteStream(file, 0));
+        assertEquals("Argument segmentSize must be positive, but is 0.", e.getMessage());
+    }
+
+    @Test
+    public void parse() throws IOException {
+        final Optional<ParseState> result =
+            seq(def("a", con(3)),
+                def("b", con(4), eq(con(3, 4, 5, 6))),
+                def("c", con(3), eq(con(7, 8, 9)))).parse(env(createFromByteStream(new MappedFileByteStream(file, 2)), enc()));
+        assertTrue(result.isPresent());
+        assertEquals(BigInteger.TEN, result.get().offset);
+    }
+
+    @Test
+    public void equality() throws IOException {
+        final MappedFileByteStream stream = new MappedFileByteStream(file, 4);
+        assertEquals(stream, new MappedFileByteStream(file, 4));
+        assertEquals(stream.hashCode(), new MappedFileByteStream(file, 4).hashCode());
+        assertNotEquals(stream, new MappedFileByteStream(file, 5));
+        assertNotEquals(stream, new MappedFileByteStream(Files.write(directory.resolve("other.bin"), DATA), 4));
+        assertNotEquals(null, stream);
+        assertTrue(stream.toString().startsWith("MappedFileByteStream("));
+    }
+
+}
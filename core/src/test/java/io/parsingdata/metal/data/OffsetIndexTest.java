@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ZERO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.opt;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.sub;
+import static io.parsingdata.metal.Shorthand.token;
+import static io.parsingdata.metal.data.Selection.getAllValues;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.token.Token;
+
+public class OffsetIndexTest {
+
+    // A linked list in which every node has a one byte value and points to the next node with the second byte.
+    private static final Token NODE = seq("node", def("value", con(1)), def("next", con(1)), opt(sub(token("node"), last(ref("next")))));
+
+    @Test
+    public void resolveLikeGraph() {
+        final ParseGraph graph = NODE.parse(env(stream(10, 2, 11, 4, 12, 6, 13, 2))).get().order();
+        final OffsetIndex index = OffsetIndex.create(graph);
+        final List<ParseReference> references = getReferences(graph, new ArrayList<>());
+        assertEquals(1, references.size());
+        for (final ParseReference reference : references) {
+            final Optional<ParseItem> resolved = reference.resolve(graph);
+            assertTrue(resolved.isPresent());
+            assertEquals(resolved, reference.resolve(index));
+        }
+        assertEquals(Optional.empty(), index.resolve(new ParseReference(BigInteger.ONE, references.get(0).source, NODE)));
+        assertEquals(Optional.empty(), index.resolve(new ParseReference(ZERO, references.get(0).source, def("other", con(1)))));
+    }
+
+    @Test
+    public void resolveValues() {
+        final Token value = def("value", con(1));
+        final Token twice = seq(value, sub(value, con(0)));
+        final ParseGraph graph = twice.parse(env(stream(1))).get().order();
+        final ParseReference reference = new ParseReference(ZERO, getAllValues(graph, parseValue -> true).head.slice().source, value);
+        assertEquals(reference.resolve(graph), reference.resolve(OffsetIndex.create(graph)));
+        assertTrue(reference.resolve(graph).get().isValue());
+    }
+
+    @Test
+    public void covering() {
+        final Token format = seq(def("a", con(2)), sub(def("b", con(3)), con(1)), def("c", con(4)), sub(def("d", con(1)), con(5)));
+        final ParseGraph graph = format.parse(env(stream(0, 1, 2, 3, 4, 5, 6, 7))).get().order();
+        final OffsetIndex index = OffsetIndex.create(graph);
+        final ImmutableList<ParseValue> values = getAllValues(graph, parseValue -> true);
+        final Source source = values.head.slice().source;
+        for (int offset = 0; offset < 10; offset++) {
+            final List<ParseValue> expected = new ArrayList<>();
+            for (ImmutableList<ParseValue> current = values; !current.isEmpty(); current = current.tail) {
+                final BigInteger start = current.head.slice().offset;
+                if (start.intValueExact() <= offset && start.add(current.head.slice().length).intValueExact() > offset) {
+                    expected.add(current.head);
+                }
+            }
+            expected.sort((left, right) -> left.slice().offset.compareTo(right.slice().offset));
+            final List<ParseValue> actual = new ArrayList<>();
+            for (ImmutableList<ParseValue> current = index.getCovering(source, BigInteger.valueOf(offset)); !current.isEmpty(); current = current.tail) {
+                actual.add(current.head);
+            }
+            assertEquals(expected, actual, "offset " + offset);
+        }
+        assertEquals(2, index.getCovering(source, BigInteger.valueOf(5)).size);
+        assertTrue(index.getCovering(new ConstantSource(new byte[0]), ZERO).isEmpty());
+    }
+
+    private static List<ParseReference> getReferences(final ParseGraph graph, final List<ParseReference> references) {
+        for (ParseGraph current = graph; !current.isEmpty(); current = current.tail) {
+            if (current.head.isReference()) {
+                references.add(current.head.asReference());
+            } else if (current.head.isGraph()) {
+                getReferences(current.head.asGraph(), references);
+            }
+        }
+        return references;
+    }
+
+}
@@ -71,14 +71,14 @@ public class ParseGraphTest {
                 any("h"), any("empty")
             );
        Optional<ParseState> result = token.parse(env(stream(97, 0, 98, 0, 99, 0, 100, 0, 101, 0, 102, 0, 103, 0, 104, 0)));
-        a = getValue(result.get().order, "a");
-        b = getValue(result.get().order, "b");
-        c = getValue(result.get().order, "c");
-        d = getValue(result.get().order, "d");
-        e = getValue(result.get().order, "e");
-        f = getValue(result.get().order, "f");
-        g = getValue(result.get().order, "g");
-        h = getValue(result.get().order, "h");
+        a = getValue(result.get().order(), "a");
+        b = getValue(result.get().order(), "b");
+        c = getValue(result.get().order(), "c");
+        d = getValue(result.get().order(), "d");
+        e = getValue(result.get().order(), "e");
+        f = getValue(result.get().order(), "f");
+        g = getValue(result.get().order(), "g");
+        h = getValue(result.get().order(), "h");
         pg = makeSimpleGraph();
         pgc = makeCycleGraph();
         pgl = makeLongGraph();
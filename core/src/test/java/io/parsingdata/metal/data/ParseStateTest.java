@@ -18,11 +18,16 @@
 package io.parsingdata.metal.data;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.data.Slice.createFromBytes;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
 import static io.parsingdata.metal.util.TokenDefinitions.any;
 
+import java.util.Optional;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -38,4 +43,41 @@ public class ParseStateTest {
         assertEquals("Cannot close branch for iterable token closeName. Current iteration state is for token openName.", e.getMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void deeplyNestedBranches() {
+        final Token t = any("t");
+        ParseState parseState = stream();
+        ParseGraph graph = ParseGraph.EMPTY;
+        for (int i = 0; i < 100; i++) {
+            final ParseValue value = new ParseValue("v" + i, t, createFromBytes(new byte[] { (byte) i }), enc());
+            parseState = parseState.add(value).addBranch(t);
+            graph = graph.add(value).addBranch(t);
+            assertEquals(graph, parseState.order());
+            assertEquals(Optional.of(value), parseState.current());
+        }
+        for (int i = 0; i < 100; i++) {
+            parseState = parseState.closeBranch(t);
+            graph = graph.closeBranch();
+            assertEquals(graph, parseState.order());
+            assertEquals(graph.current(), parseState.current());
+        }
+        assertEquals(Optional.empty(), stream().addBranch(t).addBranch(t).current());
+    }
+
+    @Test
+    public void createFromOpenGraph() {
+        final Token t = any("t");
+        final ParseState parseState = stream().addBranch(t).add(new ParseValue("a", t, createFromBytes(new byte[] { 1 }), enc())).addBranch(t).closeBranch(t).addBranch(t);
+        final ParseState copy = new ParseState(parseState.order(), parseState.cache, parseState.source, parseState.offset, parseState.iterations, parseState.references, parseState.scopeDepth);
+        assertEquals(parseState, copy);
+        assertEquals(parseState.hashCode(), copy.hashCode());
+        assertEquals(parseState.closeBranch(t).closeBranch(t), copy.closeBranch(t).closeBranch(t));
+    }
+
+    @Test
+    public void closeBranchThatIsNotOpen() {
+        final Exception e = assertThrows(IllegalStateException.class, () -> stream().closeBranch(any("a")));
+        assertEquals("Cannot close branch that is not open.", e.getMessage());
+    }
+
+}
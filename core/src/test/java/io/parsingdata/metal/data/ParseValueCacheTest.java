@@ -8,15 +8,22 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import static io.parsingdata.metal.Shorthand.cho;
 import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.count;
 import static io.parsingdata.metal.Shorthand.def;
 import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
 import static io.parsingdata.metal.Shorthand.scope;
+import static io.parsingdata.metal.Shorthand.seq;
 import static io.parsingdata.metal.data.ParseGraph.NONE;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
 import static io.parsingdata.metal.data.ParseValueCache.NO_CACHE;
 import static io.parsingdata.metal.data.Selection.NO_LIMIT;
 import static io.parsingdata.metal.data.Slice.createFromBytes;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EncodingFactory.signed;
+import static io.parsingdata.metal.util.TokenDefinitions.any;
 
 import java.util.List;
 import java.util.Optional;
@@ -31,7 +38,9 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import io.parsingdata.metal.expression.value.Value;
 import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.expression.value.reference.Ref;
 import io.parsingdata.metal.token.Token;
+import io.parsingdata.metal.util.InMemoryByteStream;
 
 class ParseValueCacheTest {
 
@@ -96,6 +105,19 @@ class ParseValueCacheTest {
         });
     }
 
+    @ParameterizedTest
+    @ValueSource(ints={-1, -2, -100})
+    public void negativeLimitReturnsAll(final int limit) {
+        assertEquals(3, parseValueCache.find("name", limit).orElseThrow().size);
+        assertEquals(3, parseValueCache.indexByName("name", limit, 0, 0).orElseThrow().size());
+        final ParseState cached = createFromByteStream(new InMemoryByteStream(new byte[0])).add(pv1).add(pv2).add(pv3);
+        final ParseState uncached = cached.withOrder(cached.order());
+        for (final ParseState parseState : List.of(cached, uncached)) {
+            assertEquals(3, ref(con(limit, signed()), "name").eval(parseState, enc()).size);
+            assertEquals(3, count(ref(con(limit, signed()), "name")).eval(parseState, enc()).head.asNumeric().intValueExact());
+        }
+    }
+
     private static ParseValue parseValue(final String name) {
         return parseValue(name, NONE);
     }
@@ -143,14 +165,14 @@ class ParseValueCacheTest {
             arguments("nameRef", ref("second.name"), true),
             arguments("nameRef with limit", ref(con(1), "second.name"), true),
 
-            arguments("multi nameRef", ref("second.name", "first.name"), false),
-            arguments("multi nameRef with limit", ref(con(1), "second.name", "first.name"), false),
-            arguments("definitionRef", ref(pv2Definition), false),
-            arguments("definitionRef with limit", ref(con(1), pv2Definition), false),
-            arguments("multi definitionRef", ref(pv2Definition, pv3Definition), false),
-            arguments("multi definitionRef with limit", ref(con(1), pv2Definition, pv3Definition), false),
+            arguments("multi nameRef", ref("second.name", "first.name"), true),
+            arguments("multi nameRef with limit", ref(con(1), "second.name", "first.name"), true),
+            arguments("definitionRef", ref(pv2Definition), true),
+            arguments("definitionRef with limit", ref(con(1), pv2Definition), true),
+            arguments("multi definitionRef", ref(pv2Definition, pv3Definition), true),
+            arguments("multi definitionRef with limit", ref(con(1), pv2Definition, pv3Definition), true),
 
-            // Requested scope is smaller than the scopeDepth of the ParseState.
+            // Requested scope is smaller than the scopeDepth of the ParseState, which is not tracked by the cache.
             arguments("scoped nameRef", scope(ref("second.name"), con(1)), false),
             arguments("scoped nameRef with limit", scope(ref(con(1), "second.name"), con(1)), false),
             arguments("scoped multi nameRef", scope(ref("second.name", "first.name"), con(1)), false),
@@ -163,12 +185,12 @@ class ParseValueCacheTest {
             // Requested scope matches or exceeds the scopeDepth of the ParseState.
             arguments("matching scoped nameRef", scope(ref("second.name"), con(2)), true),
             arguments("matching scoped nameRef with limit", scope(ref(con(1), "second.name"), con(2)), true),
-            arguments("matching scoped multi nameRef", scope(ref("second.name", "first.name"), con(2)), false),
-            arguments("matching scoped multi nameRef with limit", scope(ref(con(1), "second.name", "first.name"), con(2)), false),
-            arguments("matching scoped definitionRef", scope(ref(pv2Definition), con(2)), false),
-            arguments("matching scoped definitionRef with limit", scope(ref(con(1), pv2Definition), con(2)), false),
-            arguments("matching scoped multi definitionRef", scope(ref(pv2Definition, pv3Definition), con(2)), false),
-            arguments("matching scoped multi definitionRef with limit", scope(ref(con(1), pv2Definition, pv3Definition), con(2)), false)
+            arguments("matching scoped multi nameRef", scope(ref("second.name", "first.name"), con(2)), true),
+            arguments("matching scoped multi nameRef with limit", scope(ref(con(1), "second.name", "first.name"), con(2)), true),
+            arguments("matching scoped definitionRef", scope(ref(pv2Definition), con(2)), true),
+            arguments("matching scoped definitionRef with limit", scope(ref(con(1), pv2Definition), con(2)), true),
+            arguments("matching scoped multi definitionRef", scope(ref(pv2Definition, pv3Definition), con(2)), true),
+            arguments("matching scoped multi definitionRef with limit", scope(ref(con(1), pv2Definition, pv3Definition), con(2)), true)
         );
     }
 
@@ -181,4 +203,56 @@ class ParseValueCacheTest {
         // That means, if result is not empty, the cache was used.
         assertEquals(shouldUseCache, !eval.isEmpty());
     }
+
+    @Test
+    public void findByMultipleNames() {
+        final Optional<ImmutableList<Value>> values = parseValueCache.findByName(ImmutableList.create(ScopeName.of("name")).add(ScopeName.of("second.name")).add(ScopeName.of("first.name")), NO_LIMIT, 0, 0);
+        assertEquals(Optional.of(ImmutableList.create((Value) pv1).add(pv2).add(pv3)), values);
+        final Optional<ImmutableList<Value>> limited = parseValueCache.findByName(ImmutableList.create(ScopeName.of("first.name")).add(ScopeName.of("second.name")), 2, 0, 0);
+        assertEquals(Optional.of(ImmutableList.create((Value) pv2).add(pv3)), limited);
+    }
+
+    @Test
+    public void findByDefinition() {
+        assertEquals(Optional.of(ImmutableList.create((Value) pv2)), parseValueCache.findByDefinition(ImmutableList.create(pv2Definition), NO_LIMIT, 0, 0));
+        assertEquals(Optional.of(ImmutableList.create((Value) pv2).add(pv3)), parseValueCache.findByDefinition(ImmutableList.create(pv2Definition).add(pv3Definition), NO_LIMIT, 0, 0));
+        assertEquals(Optional.of(new ImmutableList<>()), parseValueCache.findByDefinition(ImmutableList.create(def("other", 1)), NO_LIMIT, 0, 0));
+        assertFalse(NO_CACHE.findByDefinition(ImmutableList.create(pv2Definition), NO_LIMIT, 0, 0).isPresent());
+    }
+
+    @Test
+    public void findInScope() {
+        final Token outer = seq(any("a"), any("b"));
+        final Token inner = seq(any("c"), any("d"));
+        final ParseValueCache cache = new ParseValueCache().add(pv1).addBranch(outer).add(pv2).addBranch(inner).add(pv3);
+        final ImmutableList<ScopeName> names = ImmutableList.create(ScopeName.of("name"));
+        assertEquals(Optional.of(ImmutableList.create((Value) pv3)), cache.findByName(names, NO_LIMIT, 0, 2));
+        assertEquals(Optional.of(ImmutableList.create((Value) pv2).add(pv3)), cache.findByName(names, NO_LIMIT, 1, 2));
+        assertEquals(Optional.of(ImmutableList.create((Value) pv1).add(pv2).add(pv3)), cache.findByName(names, NO_LIMIT, 2, 2));
+        assertEquals(Optional.of(ImmutableList.create((Value) pv2).add(pv3)), cache.closeBranch(inner).findByName(names, NO_LIMIT, 0, 1));
+        assertEquals(Optional.of(new ImmutableList<>()), cache.closeBranch(inner).closeBranch(outer).addBranch(outer).findByName(names, NO_LIMIT, 0, 1));
+        // A branch of a token that does not delimit a scope leaves the scopes unchanged.
+        assertEquals(Optional.of(ImmutableList.create((Value) pv3)), cache.addBranch(cho(any("e"), any("f"))).findByName(names, NO_LIMIT, 0, 2));
+        // The scopeDepth of the ParseState does not match the scopes tracked by the cache.
+        assertFalse(cache.findByName(names, NO_LIMIT, 0, 3).isPresent());
+        assertEquals(new ParseValueCache(), new ParseValueCache().closeBranch(outer));
+    }
+
+    @Test
+    public void scopedReferencesMatchParseGraph() {
+        final Token outer = seq(any("a"), any("b"));
+        final Token inner = rep(any("c"));
+        final Token other = def("name", 1);
+        ParseState parseState = createFromByteStream(new InMemoryByteStream(new byte[0]))
+            .add(pv1).addBranch(outer).add(pv2).addBranch(inner).add(pv3).addBranch(outer).add(parseValue("x.name", other));
+        parseState = parseState.closeBranch(outer).add(parseValue("y.name", other));
+        final ParseState withoutCache = parseState.withOrder(parseState.order());
+        for (int scope = 0; scope <= parseState.scopeDepth; scope++) {
+            for (final Ref<?> reference : List.of(ref("name"), ref("second.name", "y.name"), ref(con(2), "name"), ref(other), ref(pv2Definition, other), ref(con(1), other, pv3Definition))) {
+                final ValueExpression scoped = reference.withScope(con(scope));
+                assertEquals(scoped.eval(withoutCache, enc()), scoped.eval(parseState, enc()), scoped.toString());
+            }
+        }
+    }
+
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.ltNum;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class PrefetchingByteStreamTest {
+
+    private static final byte[] DATA = new byte[100];
+
+    static {
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = (byte) i;
+        }
+    }
+
+    private static class TrackingByteStream extends InMemoryByteStream {
+
+        final List<String> readThreads = Collections.synchronizedList(new ArrayList<>());
+
+        TrackingByteStream(final byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public byte[] read(final BigInteger offset, final int length) throws IOException {
+            readThreads.add(Thread.currentThread().getName());
+            return super.read(offset, length);
+        }
+
+    }
+
+    @Test
+    public void sequentialReadsArePrefetched() throws IOException {
+        final TrackingByteStream input = new TrackingByteStream(DATA);
+        try (final PrefetchingByteStream stream = new PrefetchingByteStream(input, 10, 4)) {
+            for (int i = 0; i < DATA.length; i += 2) {
+                assertArrayEquals(new byte[] { DATA[i], DATA[i + 1] }, stream.read(BigInteger.valueOf(i), 2));
+            }
+        }
+        assertEquals(10, input.readThreads.size());
+        assertTrue(input.readThreads.contains(PrefetchingByteStream.THREAD_NAME));
+    }
+
+    @Test
+    public void readAcrossWindows() throws IOException {
+        final TrackingByteStream input = new TrackingByteStream(DATA);
+        try (final PrefetchingByteStream stream = new PrefetchingByteStream(input, 10, 4)) {
+            assertArrayEquals(new byte[] { 8, 9, 10, 11, 12 }, stream.read(BigInteger.valueOf(8), 5));
+            assertArrayEquals(new byte[] { 13, 14 }, stream.read(13L, 2));
+        }
+    }
+
+    @Test
+    public void randomReadsAreNotPrefetched() throws IOException {
+        final TrackingByteStream input = new TrackingByteStream(DATA);
+        try (final PrefetchingByteStream stream = new PrefetchingByteStream(input, 10, 4)) {
+            assertArrayEquals(new byte[] { 55 }, stream.read(BigInteger.valueOf(55), 1));
+            assertArrayEquals(new byte[] { 5 }, stream.read(BigInteger.valueOf(5), 1));
+            assertArrayEquals(new byte[] { 75 }, stream.read(BigInteger.valueOf(75), 1));
+        }
+        assertEquals(List.of(Thread.currentThread().getName(), Thread.currentThread().getName(), Thread.currentThread().getName()), input.readThreads);
+    }
+
+    @Test
+    public void partialWindowAndLargeReadsPassThrough() throws IOException {
+        try (final PrefetchingByteStream stream = new PrefetchingByteStream(new InMemoryByteStream(new byte[] { 1, 2, 3, 4, 5 }), 4, 2)) {
+            assertArrayEquals(new byte[] { 4, 5 }, stream.read(BigInteger.valueOf(3), 2));
+            assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, stream.read(ZERO, 5));
+            assertArrayEquals(new byte[0], stream.read(ZERO, 0));
+            assertThrows(IOException.class, () -> stream.read(BigInteger.valueOf(4), 2));
+        }
+    }
+
+    @Test
+    public void availability() {
+        try (final PrefetchingByteStream stream = new PrefetchingByteStream(new InMemoryByteStream(DATA), 10, 4)) {
+            assertTrue(stream.isAvailable(ZERO, BigInteger.valueOf(100)));
+            assertTrue(stream.isAvailable(99L, 1L));
+            assertFalse(stream.isAvailable(BigInteger.valueOf(100), ONE));
+            assertFalse(stream.isAvailable(BigInteger.valueOf(Long.MAX_VALUE), ONE));
+        }
+    }
+
+    @Test
+    public void parse() {
+        final TrackingByteStream input = new TrackingByteStream(DATA);
+        try (final PrefetchingByteStream stream = new PrefetchingByteStream(input, 10, 4)) {
+            final Optional<ParseState> result = rep(def("a", con(1), ltNum(con(100)))).parse(env(createFromByteStream(stream), enc()));
+            assertTrue(result.isPresent());
+            assertEquals(BigInteger.valueOf(100), result.get().offset);
+        }
+        assertEquals(10, input.readThreads.size());
+    }
+
+    @Test
+    public void closeDoesNotInterruptReads() throws IOException {
+        final List<Boolean> interrupted = Collections.synchronizedList(new ArrayList<>());
+        final InMemoryByteStream input = new InMemoryByteStream(DATA) {
+            @Override
+            public byte[] read(final BigInteger offset, final int length) throws IOException {
+                try {
+                    Thread.sleep(20);
+                    interrupted.add(false);
+                } catch (final InterruptedException exception) {
+                    interrupted.add(true);
+                }
+                return super.read(offset, length);
+            }
+        };
+        final PrefetchingByteStream stream = new PrefetchingByteStream(input, 10, 4);
+        stream.read(0L, 2);
+        stream.read(2L, 2);
+        stream.close();
+        assertFalse(interrupted.contains(true));
+        assertArrayEquals(new byte[] { 50, 51 }, stream.read(50L, 2));
+    }
+
+    @Test
+    public void invalidArguments() {
+        final IllegalArgumentException windowSize = assertThrows(IllegalArgumentException.class, () -> new PrefetchingByteStream(new InMemoryByteStream(DATA), 0, 2));
+        assertEquals("Argument windowSize must be positive, but is 0.", windowSize.getMessage());
+        final IllegalArgumentException maxWindows = assertThrows(IllegalArgumentException.class, () -> new PrefetchingByteStream(new InMemoryByteStream(DATA), 1, 1));
+        assertEquals("Argument maxWindows must be at least 2, but is 1.", maxWindows.getMessage());
+    }
+
+    @Test
+    public void equality() {
+        final InMemoryByteStream input = new InMemoryByteStream(DATA);
+        try (final PrefetchingByteStream stream = new PrefetchingByteStream(input);
+             final PrefetchingByteStream same = new PrefetchingByteStream(input);
+             final PrefetchingByteStream other = new PrefetchingByteStream(input, 1, 2)) {
+            assertEquals(stream, same);
+            assertEquals(stream.hashCode(), same.hashCode());
+            assertNotEquals(stream, other);
+            assertNotEquals(null, stream);
+            assertEquals("PrefetchingByteStream(InMemoryByteStream(100);262144;8)", stream.toString());
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.Selection.NO_LIMIT;
+import static io.parsingdata.metal.data.Selection.getAllValues;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.callback.Callbacks;
+import io.parsingdata.metal.expression.value.Value;
+import io.parsingdata.metal.token.Token;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class RetentionTest {
+
+    private static final Token RECORD = seq("record", def("a", 1), def("b", 1));
+    private static final Token RECORDS_REP = rep("records", RECORD);
+    private static final Token RECORDS = seq(def("header", 1), RECORDS_REP);
+
+    @Test
+    public void streamIterations() {
+        for (int keep = 0; keep < 5; keep++) {
+            final List<ParseGraph> consumed = new ArrayList<>();
+            final ParseState result = parse(200, Callbacks.create().retain(RECORDS_REP, keep, consumed::add));
+            assertEquals(100, consumed.size());
+            for (int i = 0; i < consumed.size(); i++) {
+                final ImmutableList<ParseValue> values = getAllValues(consumed.get(i), value -> true);
+                assertEquals(2, values.size);
+                assertEquals(2 * i + 1, values.head.value()[0] & 0xff);
+                assertEquals(2 * i + 2, values.tail.head.value()[0] & 0xff);
+            }
+            final ImmutableList<ParseValue> retained = getAllValues(result.order(), value -> value.matches("a"));
+            assertTrue(retained.size >= keep && retained.size <= Math.max(2L * keep - 1, 0), "keep " + keep + ": " + retained.size);
+            // The most recent iterations are retained, both in the graph and in the cache.
+            long expected = 199 - 2 * (retained.size - 1);
+            for (ImmutableList<ParseValue> current = retained; !current.isEmpty(); current = current.tail) {
+                assertEquals(expected, current.head.value()[0] & 0xff);
+                expected += 2;
+            }
+            assertEquals(1, getAllValues(result.order(), value -> value.matches("header")).size);
+            final ImmutableList<Value> cached = result.cache.find("a", NO_LIMIT).get();
+            assertEquals(retained.size, cached.size);
+            // The cache returns the most recently added value first.
+            ImmutableList<Value> fromGraph = new ImmutableList<>();
+            for (ImmutableList<ParseValue> current = retained; !current.isEmpty(); current = current.tail) {
+                fromGraph = fromGraph.add(current.head);
+            }
+            assertEquals(fromGraph, cached);
+            assertEquals(1, result.cache.find("header", NO_LIMIT).get().size);
+        }
+    }
+
+    @Test
+    public void sameGraphWithoutRetention() {
+        final List<ParseGraph> consumed = new ArrayList<>();
+        parse(50, Callbacks.create().retain(RECORDS_REP, 0, consumed::add));
+        final ParseGraph full = parse(50, Callbacks.NONE).order();
+        final ImmutableList<ParseValue> expected = getAllValues(full, value -> value.matches("a"));
+        ImmutableList<ParseValue> current = expected;
+        for (final ParseGraph iteration : consumed) {
+            assertEquals(current.head, getAllValues(iteration, value -> value.matches("a")).head);
+            current = current.tail;
+        }
+        assertTrue(current.isEmpty());
+    }
+
+    @Test
+    public void retainNonIterableToken() {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Callbacks.create().retain(RECORD, 1, graph -> {}));
+        assertEquals("Token record is not iterable.", e.getMessage());
+    }
+
+    private static ParseState parse(final int size, final Callbacks callbacks) {
+        final byte[] data = new byte[size + 1];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return RECORDS.parse(env(createFromByteStream(new InMemoryByteStream(data)), callbacks, enc())).get();
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.token.Token;
+
+public class ScopeNameTest {
+
+    @Test
+    public void interned() {
+        final ScopeName name = ScopeName.ROOT.extend("a").extend("b.c");
+        assertSame(name, ScopeName.of("a.b.c"));
+        assertSame(name.parent, ScopeName.of("a.b"));
+        assertSame(ScopeName.ROOT, ScopeName.of(""));
+        assertSame(name, name.extend(""));
+        assertEquals("a.b.c", name.toString());
+        assertEquals("c", name.segment);
+        assertEquals(3, name.depth);
+    }
+
+    @Test
+    public void emptySegments() {
+        assertEquals(".a", ScopeName.of(".a").toString());
+        assertEquals("a.", ScopeName.of("a.").toString());
+        assertEquals("a..b", ScopeName.of("a..b").toString());
+        assertEquals(".", ScopeName.of(".").toString());
+    }
+
+    @Test
+    public void matchesAsDottedString() {
+        // Matching segments must give the same results as matching the dotted names as strings.
+        final Random random = new Random(19);
+        final String[] parts = { "a", "b", "ab", "" };
+        for (int i = 0; i < 10_000; i++) {
+            final String name = randomName(random, parts);
+            final String suffix = randomName(random, parts);
+            final boolean expected = name.equals(suffix) || name.endsWith(Token.SEPARATOR + suffix);
+            assertEquals(expected, ScopeName.of(name).matches(ScopeName.of(suffix)), name + " matches " + suffix);
+            assertEquals(name, ScopeName.of(name).toString());
+        }
+    }
+
+    @Test
+    public void extendAsConcatenation() {
+        final Random random = new Random(20);
+        final String[] parts = { "a", "b", "" };
+        for (int i = 0; i < 1_000; i++) {
+            final String scope = randomName(random, parts);
+            final String name = randomName(random, parts);
+            final String expected = scope + (scope.isEmpty() || name.isEmpty() ? Token.NO_NAME : Token.SEPARATOR) + name;
+            assertSame(ScopeName.of(expected), ScopeName.of(scope).extend(name), scope + " extended with " + name);
+        }
+    }
+
+    @Test
+    public void matchesIsNotPartial() {
+        assertTrue(ScopeName.of("x.ab").matches(ScopeName.of("ab")));
+        assertFalse(ScopeName.of("x.ab").matches(ScopeName.of("b")));
+        assertFalse(ScopeName.of("b").matches(ScopeName.of("a.b")));
+    }
+
+    private static String randomName(final Random random, final String[] parts) {
+        final StringBuilder builder = new StringBuilder(parts[random.nextInt(parts.length)]);
+        final int segments = random.nextInt(4);
+        for (int i = 0; i < segments; i++) {
+            builder.append(Token.SEPARATOR).append(parts[random.nextInt(parts.length)]);
+        }
+        return random.nextInt(5) == 0 ? "" : builder.toString();
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.data;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentedByteStreamTest {
+
+    private static final byte[] DATA = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+    @TempDir
+    public Path directory;
+
+    private Path[] files;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        files = new Path[] {
+            Files.write(directory.resolve("image.001"), Arrays.copyOfRange(DATA, 0, 4)),
+            Files.write(directory.resolve("image.002"), new byte[0]),
+            Files.write(directory.resolve("image.003"), Arrays.copyOfRange(DATA, 4, 5)),
+            Files.write(directory.resolve("image.004"), Arrays.copyOfRange(DATA, 5, 10))
+        };
+    }
+
+    @Test
+    public void readWithinSegment() throws IOException {
+        final SegmentedByteStream stream = SegmentedByteStream.open(files);
+        assertEquals(DATA.length, stream.size);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, stream.read(ONE, 3));
+        assertArrayEquals(new byte[] { 4 }, stream.read(BigInteger.valueOf(4), 1));
+        assertArrayEquals(new byte[] { 6, 7, 8, 9 }, stream.read(BigInteger.valueOf(6), 4));
+    }
+
+    @Test
+    public void readAcrossSegments() throws IOException {
+        final SegmentedByteStream stream = SegmentedByteStream.open(files);
+        assertArrayEquals(DATA, stream.read(ZERO, DATA.length));
+        assertArrayEquals(new byte[] { 3, 4, 5 }, stream.read(BigInteger.valueOf(3), 3));
+        assertArrayEquals(new byte[0], stream.read(BigInteger.TEN, 0));
+        for (int offset = 0; offset < DATA.length; offset++) {
+            for (int length = 0; length <= DATA.length - offset; length++) {
+                assertArrayEquals(Arrays.copyOfRange(DATA, offset, offset + length), stream.read(offset, length));
+            }
+        }
+    }
+
+    @Test
+    public void readBuffer() throws IOException {
+        final SegmentedByteStream stream = SegmentedByteStream.open(files);
+        assertEquals(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), stream.readBuffer(ONE, 3));
+        assertEquals(ByteBuffer.wrap(new byte[] { 2, 3, 4, 5, 6 }), stream.readBuffer(BigInteger.TWO, 5));
+        assertTrue(stream.readBuffer(BigInteger.TWO, 5).isReadOnly());
+        assertEquals(ByteBuffer.allocate(0), stream.readBuffer(BigInteger.TEN, 0));
+        assertThrows(IOException.class, () -> stream.readBuffer(BigInteger.valueOf(9), 2));
+    }
+
+    @Test
+    public void availability() throws IOException {
+        final SegmentedByteStream stream = SegmentedByteStream.open(files);
+        assertTrue(stream.isAvailable(ZERO, BigInteger.TEN));
+        assertTrue(stream.isAvailable(BigInteger.TEN, ZERO));
+        assertFalse(stream.isAvailable(ZERO, BigInteger.valueOf(11)));
+        assertFalse(stream.isAvailable(BigInteger.TEN, ONE));
+        final IOException e = assertThrows(IOException.class, () -> stream.read(BigInteger.valueOf(8), 3));
+        assertEquals("Data to read is not available (offset=8;length=3;size=10).", e.getMessage());
+    }
+
+    @Test
+    public void noSegments() throws IOException {
+        final SegmentedByteStream stream = new SegmentedByteStream();
+        assertEquals(0, stream.size());
+        assertArrayEquals(new byte[0], stream.read(ZERO, 0));
+        assertFalse(stream.isAvailable(ZERO, ONE));
+    }
+
+    @Test
+    public void nestedSegments() throws IOException {
+        final SegmentedByteStream stream = new SegmentedByteStream(
+            new SegmentedByteStream(new MappedFileByteStream(files[0]), new MappedFileByteStream(files[2])),
+            new MappedFileByteStream(files[3], 2));
+        assertArrayEquals(DATA, stream.read(ZERO, DATA.length));
+    }
+
+    @Test
+    public void parse() throws IOException {
+        final Optional<ParseState> result =
+            seq(def("a", con(3)),
+                def("b", con(4), eq(con(3, 4, 5, 6))),
+                def("c", con(3), eq(con(7, 8, 9)))).parse(env(createFromByteStream(SegmentedByteStream.open(files)), enc()));
+        assertTrue(result.isPresent());
+        assertEquals(BigInteger.TEN, result.get().offset);
+    }
+
+    @Test
+    public void equality() throws IOException {
+        final SegmentedByteStream stream = SegmentedByteStream.open(files);
+        assertEquals(stream, SegmentedByteStream.open(files));
+        assertEquals(stream.hashCode(), SegmentedByteStream.open(files).hashCode());
+        assertNotEquals(stream, SegmentedByteStream.open(files[0], files[2], files[3]));
+        assertTrue(stream.toString().startsWith("SegmentedByteStream([MappedFileByteStream("));
+    }
+
+}
@@ -68,7 +68,7 @@ public class SelectionTest {
         Optional<ParseState> parseState = rep(any("a")).parse(env(stream(1, 2, 3, 4, 5)));
         assertTrue(parseState.isPresent());
         for (int i = 0; i < 7; i++) {
-            assertEquals(Math.min(5, i), getAllValues(parseState.get().order, (value) -> value.matches("a"), i).size);
+            assertEquals(Math.min(5, i), getAllValues(parseState.get().order(), (value) -> value.matches("a"), i).size);
         }
     }
 
@@ -50,6 +50,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import io.parsingdata.metal.Util;
 import io.parsingdata.metal.util.InMemoryByteStream;
 import io.parsingdata.metal.util.ReadTrackingByteStream;
 
@@ -131,13 +132,52 @@ public class SliceTest {
         assertArrayEquals(new byte[] { 1, 2, 3 }, slice.getData(ONE, TEN));
     }
 
+    @Test
+    public void retrieveDataBeyondLongRange() {
+        final BigInteger largeOffset = BigInteger.valueOf(Long.MAX_VALUE).add(TEN);
+        final Source source = new Source() {
+            @Override
+            protected byte[] getData(final BigInteger offset, final BigInteger length) {
+                assertEquals(largeOffset.add(ONE), offset);
+                return new byte[length.intValueExact()];
+            }
+
+            @Override
+            protected boolean isAvailable(final BigInteger offset, final BigInteger length) {
+                return offset.compareTo(largeOffset) >= 0 && length.compareTo(TEN) <= 0;
+            }
+
+            @Override
+            public boolean equals(final Object obj) {
+                return obj == this;
+            }
+
+            @Override
+            public int immutableHashCode() {
+                return 0;
+            }
+        };
+        final Slice largeSlice = Slice.createFromSource(source, largeOffset, TWO).get();
+        assertArrayEquals(new byte[1], largeSlice.getData(ONE, TEN));
+        assertEquals(1, largeSlice.getBuffer(ONE, TEN).remaining());
+    }
+
+    @Test
+    public void toSafeLong() {
+        assertEquals(0, Util.toSafeLong(ZERO));
+        assertEquals((1L << 61) - 1, Util.toSafeLong(BigInteger.valueOf((1L << 61) - 1)));
+        assertEquals(-1, Util.toSafeLong(BigInteger.valueOf(1L << 61)));
+        assertEquals(-1, Util.toSafeLong(BigInteger.valueOf(Long.MAX_VALUE).add(ONE)));
+        assertEquals(-1, Util.toSafeLong(ONE.negate()));
+    }
+
     @Test
     public void sliceToString() {
         final ParseValue pv1 = new ParseValue("name", NONE, createFromBytes(new byte[]{1, 2}), enc());
         assertEquals("Slice(ConstantSource(0x0102)@0:2)", pv1.slice().toString());
         final ParseState oneValueParseState = stream().add(pv1);
         final ParseState twoValueParseState = oneValueParseState.add(new ParseValue("name2", NONE, Slice.createFromSource(new DataExpressionSource(ref("name"), 0, oneValueParseState, enc()), ZERO, BigInteger.valueOf(2)).get(), enc()));
-        final String dataExpressionSliceString = getValue(twoValueParseState.order, "name2").slice().toString();
+        final String dataExpressionSliceString = getValue(twoValueParseState.order(), "name2").slice().toString();
         assertTrue(dataExpressionSliceString.startsWith("Slice(DataExpressionSource(NameRef(>name)[0]("));
         assertTrue(dataExpressionSliceString.endsWith(")@0:2)"));
     }
@@ -20,6 +20,7 @@ package io.parsingdata.metal.data;
 import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.ZERO;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -30,6 +31,8 @@ import static io.parsingdata.metal.expression.value.BytesTest.EMPTY_PARSE_STATE;
 import static io.parsingdata.metal.util.EncodingFactory.enc;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -81,6 +84,31 @@ public class SourceAndSliceTest {
         assertTrue(compareDataSlices(createFromSource(source, offset, BigInteger.valueOf(length)).get().getData(), offset.intValueExact()));
     }
 
+    @ParameterizedTest
+    @MethodSource("data")
+    public void validBuffer(final Source source) {
+        assertBuffer(ZERO, 2, source);
+        assertBuffer(ZERO, 4, source);
+        assertBuffer(ONE, 3, source);
+        assertBuffer(BigInteger.valueOf(2), 1, source);
+        assertBuffer(BigInteger.valueOf(2), 2, source);
+        assertBuffer(BigInteger.valueOf(4), 0, source);
+    }
+
+    private void assertBuffer(final BigInteger offset, final int length, final Source source) {
+        final ByteBuffer buffer = createFromSource(source, offset, BigInteger.valueOf(length)).get().getBuffer();
+        assertTrue(buffer.isReadOnly());
+        final byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        assertArrayEquals(Arrays.copyOfRange(DATA, offset.intValueExact(), offset.intValueExact() + length), data);
+    }
+
+    @ParameterizedTest
+    @MethodSource("data")
+    public void readBufferBeyondEndOfSource(final Source source) {
+        assertThrows(IllegalStateException.class, () -> source.getBuffer(ONE, BigInteger.valueOf(4)));
+    }
+
     private boolean compareDataSlices(byte[] data, int offset) {
         for(int i = 0; i < data.length; i++) {
             if (data[i] != DATA[offset+i]) {
@@ -93,7 +93,7 @@ public class CallbackTest {
 
             @Override
             public void handleSuccess(Token token, ParseState before, ParseState after) {
-                final ImmutableList<ParseItem> roots = getAllRoots(after.order, token);
+                final ImmutableList<ParseItem> roots = getAllRoots(after.order(), token);
                 assertEquals(offsets[count++], roots.head.asGraph().tail.head.asValue().slice().offset.longValueExact());
             }
 
@@ -123,11 +123,11 @@ public class CallbackTest {
                 .add(repeatingSeq, new Callback() {
                     @Override
                     public void handleSuccess(Token token, ParseState before, ParseState after) {
-                        final ImmutableList<ParseItem> repRoots = getAllRoots(after.order, token);
+                        final ImmutableList<ParseItem> repRoots = getAllRoots(after.order(), token);
                         assertEquals(1, repRoots.size);
 
                         // verify that two Seq tokens were parsed:
-                        final ImmutableList<ParseItem> seqRoots = getAllRoots(after.order, SIMPLE_SEQ);
+                        final ImmutableList<ParseItem> seqRoots = getAllRoots(after.order(), SIMPLE_SEQ);
                         assertEquals(2, seqRoots.size);
 
                         // verify order of the two Seq graphs:
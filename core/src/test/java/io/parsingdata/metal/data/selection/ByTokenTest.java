@@ -221,7 +221,7 @@ public class ByTokenTest {
     }
 
     private ParseGraph parseResultGraph(final ParseState parseState, final Token def) {
-        return def.parse(env(parseState, enc())).get().order;
+        return def.parse(env(parseState, enc())).get().order();
     }
 
     @Test
@@ -231,7 +231,7 @@ public class ByTokenTest {
         final Token composition = seq(DEF1, smallSub, extraSub, smallSub, extraSub);
         final Optional<ParseState> result = composition.parse(env(stream(0)));
         assertTrue(result.isPresent());
-        final ImmutableList<ParseItem> items = getAll(result.get().order, DEF2);
+        final ImmutableList<ParseItem> items = getAll(result.get().order(), DEF2);
         // should return two values created by the Sub, no ParseReference because a Def cannot create a cycle
         assertEquals(2, items.size);
         assertTrue(items.head.isValue());
@@ -243,7 +243,7 @@ public class ByTokenTest {
         final Token topSeq = seq(any("a"), SMALL_SEQ);
         final Optional<ParseState> result = topSeq.parse(env(stream(1, 2, 3)));
         assertTrue(result.isPresent());
-        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order, SMALL_SEQ);
+        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order(), SMALL_SEQ);
         assertEquals(1, seqItems.size);
         assertEquals(SMALL_SEQ, seqItems.head.getDefinition());
         final ParseValue c = seqItems.head.asGraph().head.asValue();
@@ -256,7 +256,7 @@ public class ByTokenTest {
         final Token topSeq = seq(any("a"), SMALL_SEQ, SMALL_SEQ);
         final Optional<ParseState> result = topSeq.parse(env(stream(1, 2, 3, 2, 3)));
         assertTrue(result.isPresent());
-        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order, SMALL_SEQ);
+        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order(), SMALL_SEQ);
         assertEquals(2, seqItems.size);
         assertEquals(SMALL_SEQ, seqItems.head.getDefinition());
         assertEquals(SMALL_SEQ, seqItems.tail.head.getDefinition());
@@ -282,7 +282,7 @@ public class ByTokenTest {
                                                                                            /* 2:       +--------+
                                                                                            /* 3:             +--------+ */
         assertTrue(result.isPresent());
-        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order, SMALL_SEQ);
+        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order(), SMALL_SEQ);
         assertEquals(6, seqItems.size); // Three regular and three subs.
         final Set<ParseItem> items = makeSet(seqItems);
         assertEquals(4, items.size()); // Check that there are two duplicates.
@@ -313,7 +313,7 @@ public class ByTokenTest {
         final CustomToken customToken = new CustomToken();
         final Optional<ParseState> result = customToken.parse(env(stream(1, 2, 3)));
         assertTrue(result.isPresent());
-        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order, customToken.token);
+        final ImmutableList<ParseItem> seqItems = getAllRoots(result.get().order(), customToken.token);
         assertEquals(3, seqItems.size);
         final Set<ParseItem> items = makeSet(seqItems);
         assertEquals(seqItems.size, items.size()); // Check that there are no duplicate results.
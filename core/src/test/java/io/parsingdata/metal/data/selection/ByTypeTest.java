@@ -47,7 +47,7 @@ public class ByTypeTest {
     @Test
     public void unresolvableRef() {
         final Exception e = Assertions.assertThrows(IllegalStateException.class, () ->
-            getReferences(createFromByteStream(DUMMY_STREAM).createCycle(new ParseReference(ZERO, EMPTY_SOURCE, NONE)).order)
+            getReferences(createFromByteStream(DUMMY_STREAM).createCycle(new ParseReference(ZERO, EMPTY_SOURCE, NONE)).order())
         );
         assertEquals("A ParseReference must point to an existing graph.", e.getMessage());
     }
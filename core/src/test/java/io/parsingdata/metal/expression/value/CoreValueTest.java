@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.expression.value;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import static io.parsingdata.metal.data.Slice.createFromBytes;
+import static io.parsingdata.metal.encoding.Encoding.DEFAULT_CHARSET;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.parsingdata.metal.encoding.ByteOrder;
+import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.encoding.Sign;
+
+public class CoreValueTest {
+
+    public static Collection<Object[]> arguments() {
+        final List<Object[]> arguments = new ArrayList<>();
+        for (int size = 1; size <= 10; size++) {
+            for (final int fill : new int[] { 0x00, 0x01, 0x7f, 0x80, 0xff }) {
+                final byte[] data = new byte[size];
+                for (int i = 0; i < size; i++) {
+                    data[i] = (byte) (i == 0 ? fill : fill + i);
+                }
+                for (final Sign sign : Sign.values()) {
+                    for (final ByteOrder byteOrder : ByteOrder.values()) {
+                        arguments.add(new Object[] { data, new Encoding(sign, DEFAULT_CHARSET, byteOrder) });
+                    }
+                }
+            }
+        }
+        return arguments;
+    }
+
+    @ParameterizedTest
+    @MethodSource("arguments")
+    public void asNumeric(final byte[] data, final Encoding encoding) {
+        final BigInteger expected = encoding.sign == Sign.SIGNED ? new BigInteger(encoding.byteOrder.apply(data))
+                                                                 : new BigInteger(1, encoding.byteOrder.apply(data));
+        assertEquals(expected, new CoreValue(createFromBytes(data), encoding).asNumeric());
+    }
+
+}
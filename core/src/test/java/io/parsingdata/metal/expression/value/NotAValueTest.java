@@ -44,6 +44,12 @@ public class NotAValueTest {
         assertEquals("NOT_A_VALUE does not support any Value operation.", e.getMessage());
     }
 
+    @Test
+    public void getBuffer() {
+        final Exception e = Assertions.assertThrows(UnsupportedOperationException.class, NOT_A_VALUE::buffer);
+        assertEquals("NOT_A_VALUE does not support any Value operation.", e.getMessage());
+    }
+
     @Test
     public void getLength() {
         final Exception e = Assertions.assertThrows(UnsupportedOperationException.class, NOT_A_VALUE::length);
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.expression.value.reference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.count;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.first;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.nth;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.scope;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.expression.value.ValueExpression;
+import io.parsingdata.metal.token.Token;
+
+class IndexedRefTest {
+
+    private static final Token A = def("a", 1);
+    private static final Token B = def("b", 1);
+    private static ParseState parseState;
+
+    @BeforeAll
+    public static void setup() {
+        final Optional<ParseState> parse = rep(seq("s", A, B)).parse(new Environment(stream(10, 0, 11, 3, 12, 1, 13, 9, 14, 4), enc()));
+        assertTrue(parse.isPresent());
+        parseState = parse.get();
+    }
+
+    public static Stream<Arguments> sameResultWithoutCache() {
+        return Stream.of(
+            arguments(count(ref("a"))),
+            arguments(count(ref(A))),
+            arguments(count(ref(con(2), "a"))),
+            arguments(count(ref(con(9), A))),
+            arguments(count(ref(con(0), "a"))),
+            arguments(count(ref("c"))),
+            arguments(count(ref("s.a"))),
+            arguments(count(ref("a", "b"))),
+            arguments(first(ref("a"))),
+            arguments(first(ref(B))),
+            arguments(first(ref(con(3), "a"))),
+            arguments(first(ref("c"))),
+            arguments(first(ref(con(0), B))),
+            arguments(last(ref("b"))),
+            arguments(last(ref(A))),
+            arguments(last(ref("c"))),
+            arguments(new Last(ref(con(2), "a"))),
+            arguments(nth(ref("a"), ref("b"))),
+            arguments(nth(ref(A), ref(B))),
+            arguments(nth(ref(con(3), "a"), ref("b"))),
+            arguments(nth(ref("c"), ref("b"))),
+            arguments(nth(ref("a"), ref("c"))),
+            arguments(count(scope(ref("a"), con(0))))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void sameResultWithoutCache(final ValueExpression expression) {
+        final ParseState withoutCache = parseState.withOrder(parseState.order());
+        assertEquals(expression.eval(withoutCache, enc()), expression.eval(parseState, enc()));
+    }
+
+    @Test
+    public void indexedOnlyWhenCacheable() {
+        assertTrue(ref("a").evalIndexed(parseState, enc()).isPresent());
+        assertTrue(ref(con(1), A).evalIndexed(parseState, enc()).isPresent());
+        assertEquals(5, ref("a").evalIndexed(parseState, enc()).get().size());
+        assertEquals(2, ref(con(2), "a").evalIndexed(parseState, enc()).get().size());
+        assertEquals(0, ref("c").evalIndexed(parseState, enc()).get().size());
+        assertFalse(ref("s.a").evalIndexed(parseState, enc()).isPresent());
+        assertFalse(ref("a", "b").evalIndexed(parseState, enc()).isPresent());
+        assertFalse(ref("a").evalIndexed(parseState.withOrder(parseState.order()), enc()).isPresent());
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.last;
+import static io.parsingdata.metal.Shorthand.ltNum;
+import static io.parsingdata.metal.Shorthand.post;
+import static io.parsingdata.metal.Shorthand.ref;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.repn;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.token;
+import static io.parsingdata.metal.Shorthand.whl;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EncodingFactory.le;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.ParseGraph;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.callback.Callback;
+import io.parsingdata.metal.data.callback.Callbacks;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class CompiledParserTest {
+
+    private static final Token VALUE = def("value", con(1));
+    private static final Token MARKED = seq("marked", def("marker", con(1), eq(con(0xff))), VALUE);
+    private static final Token ENTRY = cho("entry", MARKED, post(VALUE, ltNum(con(0x80))));
+    private static final Token LIST = seq("list", def("count", con(1)), repn("entries", ENTRY, last(ref("count"))));
+    private static final Token TREE = seq("tree",
+        LIST,
+        whl("pairs", seq(def("a", con(1)), def("b", con(1))), ltNum(last(ref("a")), con(0x10))),
+        rep("tail", token("list")));
+
+    private static final byte[] DATA = { 3, (byte) 0xff, 0x7f, 0x01, 0x02, 1, 2, 3, 4, 0x20, 0x21, 1, 5, 0, 2, (byte) 0xff, 9, 8 };
+
+    @Test
+    public void sameResult() {
+        for (int length = 0; length <= DATA.length; length++) {
+            final byte[] data = new byte[length];
+            System.arraycopy(DATA, 0, data, 0, length);
+            final ParseState parseState = createFromByteStream(new InMemoryByteStream(data));
+            final Optional<ParseState> expected = TREE.parse(env(parseState, enc()));
+            assertEquals(expected, CompiledParser.compile(TREE).parse(env(parseState, enc())), "length " + length);
+            assertEquals(TREE.parse(env(parseState, le())), CompiledParser.compile(TREE).parse(env(parseState, le())), "length " + length);
+        }
+    }
+
+    @Test
+    public void sameCallbacks() {
+        final List<String> expected = new ArrayList<>();
+        final List<String> actual = new ArrayList<>();
+        final ParseState parseState = createFromByteStream(new InMemoryByteStream(DATA));
+        TREE.parse(env(parseState, Callbacks.create().add(recorder(expected)).add(ENTRY, recorder(expected)), enc()));
+        CompiledParser.compile(TREE).parse(env(parseState, Callbacks.create().add(recorder(actual)).add(ENTRY, recorder(actual)), enc()));
+        assertTrue(expected.size() > 20);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void sameRetention() {
+        final Token records = rep("records", seq("record", def("a", 1), def("b", 1)));
+        final ParseState parseState = createFromByteStream(new InMemoryByteStream(DATA));
+        final List<ParseGraph> expected = new ArrayList<>();
+        final List<ParseGraph> actual = new ArrayList<>();
+        final Optional<ParseState> expectedState = records.parse(env(parseState, Callbacks.create().retain(records, 2, expected::add), enc()));
+        final Optional<ParseState> actualState = CompiledParser.compile(records).parse(env(parseState, Callbacks.create().retain(records, 2, actual::add), enc()));
+        assertEquals(DATA.length / 2, expected.size());
+        assertEquals(expected, actual);
+        assertEquals(expectedState, actualState);
+    }
+
+    @Test
+    public void sharedTokens() {
+        final Token shared = seq(VALUE, VALUE);
+        final Token twice = seq("twice", shared, shared);
+        final CompiledParser parser = CompiledParser.compile(twice);
+        final ParseState parseState = createFromByteStream(new InMemoryByteStream(new byte[] { 1, 2, 3, 4 }));
+        assertEquals(twice.parse(env(parseState, enc())), parser.parse(env(parseState, enc())));
+        assertEquals("CompiledParser(" + twice + ")", parser.toString());
+    }
+
+    private static Callback recorder(final List<String> events) {
+        return new Callback() {
+            @Override
+            public void handleSuccess(final Token token, final ParseState before, final ParseState after) {
+                events.add("success " + token.name + " " + before.offset + " " + after.offset);
+            }
+
+            @Override
+            public void handleFailure(final Token token, final ParseState before) {
+                events.add("failure " + token.name + " " + before.offset);
+            }
+        };
+    }
+
+}
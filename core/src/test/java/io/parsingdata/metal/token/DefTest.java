@@ -46,12 +46,12 @@ public class DefTest {
 
     @Test
     public void scopeWithoutEncoding() {
-        assertEquals(1, getValue(def("a", 1).parse(env("scope", stream(1), enc())).get().order, "scope.a").asNumeric().intValueExact());
+        assertEquals(1, getValue(def("a", 1).parse(env("scope", stream(1), enc())).get().order(), "scope.a").asNumeric().intValueExact());
     }
 
     @Test
     public void scopeWithEncoding() {
-        assertEquals(1, getValue(def("a", 1, signed()).parse(env("scope", stream(1), enc())).get().order, "scope.a").asNumeric().intValueExact());
+        assertEquals(1, getValue(def("a", 1, signed()).parse(env("scope", stream(1), enc())).get().order(), "scope.a").asNumeric().intValueExact());
     }
 
     @Test
@@ -80,7 +80,7 @@ public class DefTest {
         final Environment environment = new Environment(state, enc());
 
         final ParseState result = def.parse(environment).get();
-        final ParseValue data = Selection.getAllValues(result.order, any -> true, 1).head;
+        final ParseValue data = Selection.getAllValues(result.order(), any -> true, 1).head;
 
         assertThat(data.slice().offset, is(equalTo(BigInteger.ONE)));
         assertThat(data.slice().length, is(equalTo(BigInteger.valueOf(Long.MAX_VALUE))));
@@ -25,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static io.parsingdata.metal.Shorthand.CURRENT_OFFSET;
 import static io.parsingdata.metal.Shorthand.EMPTY;
+import static io.parsingdata.metal.Shorthand.cho;
 import static io.parsingdata.metal.Shorthand.con;
 import static io.parsingdata.metal.Shorthand.def;
 import static io.parsingdata.metal.Shorthand.eq;
@@ -36,11 +37,15 @@ import static io.parsingdata.metal.Shorthand.rep;
 import static io.parsingdata.metal.Shorthand.seq;
 import static io.parsingdata.metal.Shorthand.sub;
 import static io.parsingdata.metal.Shorthand.until;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
 import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
 import static io.parsingdata.metal.util.EncodingFactory.signed;
 import static io.parsingdata.metal.util.EnvironmentFactory.env;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
 
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -53,8 +58,11 @@ import org.junit.jupiter.params.provider.MethodSource;
 import io.parsingdata.metal.data.ImmutableList;
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.data.callback.Callback;
+import io.parsingdata.metal.data.callback.Callbacks;
 import io.parsingdata.metal.encoding.Encoding;
 import io.parsingdata.metal.expression.Expression;
+import io.parsingdata.metal.util.InMemoryByteStream;
 
 class DefUntilTest {
 
@@ -94,13 +102,13 @@ class DefUntilTest {
         final Optional<ParseState> parseState = rep(token).parse(env(stream(INPUT, US_ASCII)));
         assertTrue(parseState.isPresent());
 
-        ImmutableList<ParseValue> values = getAllValues(parseState.get().order, "line");
+        ImmutableList<ParseValue> values = getAllValues(parseState.get().order(), "line");
         assertEquals(lineCount, values.size);
         assertEquals(line1, values.tail.tail.head.asString());
         assertEquals(line2, values.tail.head.asString());
         assertEquals(line3, values.head.asString());
 
-        ImmutableList<ParseValue> newLines = getAllValues(parseState.get().order, "newline");
+        ImmutableList<ParseValue> newLines = getAllValues(parseState.get().order(), "newline");
         assertEquals(newlineCount, newLines.size);
     }
 
@@ -122,13 +130,13 @@ class DefUntilTest {
         final Optional<ParseState> parseState = rep(seq(token, NEWLINE)).parse(env(stream(INPUT, US_ASCII)));
         assertTrue(parseState.isPresent());
 
-        ImmutableList<ParseValue> values = getAllValues(parseState.get().order, "line");
+        ImmutableList<ParseValue> values = getAllValues(parseState.get().order(), "line");
         assertEquals(3, values.size);
         assertEquals(INPUT_1, values.tail.tail.head.asString());
         assertEquals(INPUT_2, values.tail.head.asString());
         assertEquals(INPUT_3, values.head.asString());
 
-        ImmutableList<ParseValue> newLines = getAllValues(parseState.get().order, "newline");
+        ImmutableList<ParseValue> newLines = getAllValues(parseState.get().order(), "newline");
         assertEquals(3, newLines.size);
     }
 
@@ -146,16 +154,59 @@ class DefUntilTest {
         final Optional<ParseState> parseState = rep(token).parse(env(stream(INPUT, US_ASCII)));
         assertTrue(parseState.isPresent());
 
-        ImmutableList<ParseValue> values = getAllValues(parseState.get().order, "line");
+        ImmutableList<ParseValue> values = getAllValues(parseState.get().order(), "line");
         assertEquals(3, values.size);
         assertEquals(INPUT_1 + "\n", values.tail.tail.head.asString());
         assertEquals(INPUT_2 + "\n", values.tail.head.asString());
         assertEquals(INPUT_3 + "\n", values.head.asString());
 
-        ImmutableList<ParseValue> newLines = getAllValues(parseState.get().order, "newline");
+        ImmutableList<ParseValue> newLines = getAllValues(parseState.get().order(), "newline");
         assertEquals(0, newLines.size);
     }
 
+    static Collection<Object[]> scanTest() {
+        return List.of(new Object[][] {
+            { "exact terminator",               def("line", NEWLINE) },
+            { "exact terminator, step size",    def("line", con(0), con(3), NEWLINE) },
+            { "exact terminator, max size",     def("line", con(1), con(1), con(4150), NEWLINE) },
+            { "exact sequence",                 def("line", seq(NEWLINE, def("x", con(1), eq(con('a'))))) },
+            { "exact choice",                   def("line", cho(seq(NEWLINE, def("x", con(1), eq(con('a')))), def("y", con(2), eq(con('\n', 'a'))))) },
+            { "leading bytes only",             def("line", seq(NEWLINE, def("x", con(1), eq(con('b'))))) },
+            { "leading bytes only, step size",  def("line", con(1), con(2), seq(NEWLINE, def("x", con(1)))) }
+        });
+    }
+
+    @ParameterizedTest(name="{0}")
+    @MethodSource
+    void scanTest(final String name, final Token token) {
+        final Callbacks callbacks = Callbacks.create().add(new Callback() {
+            @Override public void handleSuccess(final Token token, final ParseState before, final ParseState after) {}
+            @Override public void handleFailure(final Token token, final ParseState before) {}
+        });
+        for (final int position : new int[] { 0, 1, 4094, 4095, 4096, 4150, 4198, 4199, 4200 }) {
+            final byte[] data = new byte[4200];
+            Arrays.fill(data, (byte) 'a');
+            if (position < data.length) {
+                data[position] = '\n';
+            }
+            if (position == 4150) {
+                data[4151] = 'b';
+            }
+            final ParseState parseState = createFromByteStream(new InMemoryByteStream(data));
+            // With callbacks registered, the terminator is parsed at every size.
+            assertEquals(token.parse(env(parseState, callbacks, enc())), token.parse(env(parseState, enc())), "position " + position);
+        }
+    }
+
+    @Test
+    void farTerminator() {
+        final byte[] data = new byte[1 << 20];
+        data[data.length - 1] = '\n';
+        final Optional<ParseState> result = def("line", NEWLINE).parse(env(createFromByteStream(new InMemoryByteStream(data)), enc()));
+        assertEquals(BigInteger.valueOf(data.length - 1), result.get().offset);
+        assertEquals(1, result.get().order().size);
+    }
+
     @Test
     void allDefaultValueExpressions() {
         assertTrue(until("value", def("terminator", 1, eq(con(0)))).parse(env(stream(1, 2, 3, 0))).isPresent());
@@ -181,9 +232,9 @@ class DefUntilTest {
         final Token token = seq("struct", tokenProvider.apply(terminator), terminator);
         final Optional<ParseState> parse = token.parse(env(stream('d', 'a', 't', 'a', 0, 0)));
         assertTrue(parse.isPresent());
-        assertEquals(terminatorCount, getAllValues(parse.get().order, "struct.terminator").size);
-        assertEquals(1, getAllValues(parse.get().order, "struct.value").size);
-        assertEquals("data", getAllValues(parse.get().order, "struct.value").head.asString());
+        assertEquals(terminatorCount, getAllValues(parse.get().order(), "struct.terminator").size);
+        assertEquals(1, getAllValues(parse.get().order(), "struct.value").size);
+        assertEquals("data", getAllValues(parse.get().order(), "struct.value").head.asString());
     }
 
 }
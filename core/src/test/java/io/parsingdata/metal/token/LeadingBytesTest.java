@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.eqNum;
+import static io.parsingdata.metal.Shorthand.not;
+import static io.parsingdata.metal.Shorthand.post;
+import static io.parsingdata.metal.Shorthand.pre;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.sub;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.Environment;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.callback.Callback;
+import io.parsingdata.metal.data.callback.Callbacks;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class LeadingBytesTest {
+
+    private static final Token ONE = def("one", con(1), eq(con(1)));
+    private static final Token TWO_THREE = def("twoThree", con(2), eq(con(2, 3)));
+    private static final Token ANY = def("any", con(1));
+    private static final Token CHOICE = cho(seq(ONE, ANY), seq(TWO_THREE, ANY));
+
+    @Test
+    public void derived() {
+        assertArrayEquals(new byte[] { 1 }, LeadingBytes.of(ONE));
+        assertArrayEquals(new byte[] { 2, 3 }, LeadingBytes.of(TWO_THREE));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, LeadingBytes.of(seq(ONE, TWO_THREE, ANY, ONE)));
+        assertArrayEquals(new byte[] { 1 }, LeadingBytes.of(pre(seq(ONE, ANY), not(eq(con(0))))));
+        assertArrayEquals(new byte[] { 2 }, LeadingBytes.of(cho(TWO_THREE, def("twoFour", con(2), eq(con(2, 4))))));
+        assertArrayEquals(new byte[] { 2, 3, 1 }, LeadingBytes.of(seq(cho(TWO_THREE, TWO_THREE), ONE)));
+    }
+
+    @Test
+    public void notDerived() {
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(ANY));
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(def("numeric", con(1), eqNum(con(1)))));
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(def("longer", con(2), eq(con(1)))));
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(seq(ANY, ONE)));
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(cho(ONE, TWO_THREE)));
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(cho(ONE, ANY)));
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(rep(ONE)));
+        assertArrayEquals(LeadingBytes.NONE, LeadingBytes.of(sub(ONE, con(0))));
+    }
+
+    @Test
+    public void exact() {
+        assertTrue(LeadingBytes.isExact(ONE));
+        assertTrue(LeadingBytes.isExact(seq(ONE, TWO_THREE)));
+        assertTrue(LeadingBytes.isExact(cho(seq(ONE, TWO_THREE), seq(ONE, TWO_THREE))));
+        assertFalse(LeadingBytes.isExact(seq(ONE, ANY)));
+        assertFalse(LeadingBytes.isExact(cho(ONE, TWO_THREE)));
+        assertFalse(LeadingBytes.isExact(pre(ONE, not(eq(con(0))))));
+        assertFalse(LeadingBytes.isExact(post(ONE, not(eq(con(0))))));
+    }
+
+    @Test
+    public void alternativeSkipped() {
+        final Environment environment = env(createFromByteStream(new InMemoryByteStream(new byte[] { 2, 3, 4 })), enc());
+        final byte[] input = ((Cho) CHOICE).peek(environment);
+        assertFalse(((Cho) CHOICE).mayMatch(environment, 0, input));
+        assertTrue(((Cho) CHOICE).mayMatch(environment, 1, input));
+        assertEquals(BigInteger.valueOf(3), CHOICE.parse(environment).get().offset);
+    }
+
+    @Test
+    public void noAlternativeMatches() {
+        final Environment environment = env(createFromByteStream(new InMemoryByteStream(new byte[] { 2, 4, 1 })), enc());
+        final byte[] input = ((Cho) CHOICE).peek(environment);
+        assertFalse(((Cho) CHOICE).mayMatch(environment, 0, input));
+        assertFalse(((Cho) CHOICE).mayMatch(environment, 1, input));
+        assertTrue(CHOICE.parse(environment).isEmpty());
+    }
+
+    @Test
+    public void endOfInput() {
+        // Not all peeked bytes are available, but those of the first alternative are.
+        final ParseState parseState = createFromByteStream(new InMemoryByteStream(new byte[] { 1 }));
+        assertEquals(BigInteger.ONE, cho(ONE, TWO_THREE).parse(env(parseState, enc())).get().offset);
+        assertTrue(cho(TWO_THREE, TWO_THREE).parse(env(parseState, enc())).isEmpty());
+    }
+
+    @Test
+    public void failuresReportedToCallbacks() {
+        final int[] failures = { 0 };
+        final Callbacks callbacks = Callbacks.create().add(ONE, new Callback() {
+            @Override public void handleSuccess(final Token token, final ParseState before, final ParseState after) {}
+            @Override public void handleFailure(final Token token, final ParseState before) { failures[0]++; }
+        });
+        CHOICE.parse(env(createFromByteStream(new InMemoryByteStream(new byte[] { 2, 3, 4 })), callbacks, enc()));
+        assertEquals(1, failures[0]);
+    }
+
+}
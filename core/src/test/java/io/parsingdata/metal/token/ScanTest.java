@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2024 Netherlands Forensic Institute
+ * Copyright 2021-2024 Infix Technologies B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.parsingdata.metal.token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static io.parsingdata.metal.Shorthand.byteClass;
+import static io.parsingdata.metal.Shorthand.byteRange;
+import static io.parsingdata.metal.Shorthand.cho;
+import static io.parsingdata.metal.Shorthand.con;
+import static io.parsingdata.metal.Shorthand.def;
+import static io.parsingdata.metal.Shorthand.eq;
+import static io.parsingdata.metal.Shorthand.not;
+import static io.parsingdata.metal.Shorthand.or;
+import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.scan;
+import static io.parsingdata.metal.Shorthand.seq;
+import static io.parsingdata.metal.Shorthand.unit;
+import static io.parsingdata.metal.data.ParseState.createFromByteStream;
+import static io.parsingdata.metal.data.selection.ByName.getAllValues;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
+import static io.parsingdata.metal.util.EnvironmentFactory.env;
+import static io.parsingdata.metal.util.ParseStateFactory.stream;
+
+import java.math.BigInteger;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import io.parsingdata.metal.data.ImmutableList;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValue;
+import io.parsingdata.metal.util.InMemoryByteStream;
+
+public class ScanTest {
+
+    private static final Token ESCAPED = scan("data", unit(byteClass(0xff).not()), unit(byteClass(0xff), byteClass(0x00).or(byteRange(0xd0, 0xd7))));
+    private static final Token ESCAPED_REP = rep(cho(def("data", con(1), not(eq(con(0xff)))),
+                                                     def("data", con(2), or(eq(con(0xff, 0x00)), eq(con(0xff, 0xd3))))));
+
+    @Test
+    public void run() {
+        final Optional<ParseState> result = seq(ESCAPED, def("marker", con(2))).parse(env(stream(1, 2, 0xff, 0x00, 3, 0xff, 0xd3, 0xff, 0xd9)));
+        assertTrue(result.isPresent());
+        final ImmutableList<ParseValue> data = getAllValues(result.get().order(), "data");
+        assertEquals(1, data.size);
+        assertEquals(BigInteger.valueOf(7), data.head.slice().length);
+        assertEquals(0xd9, getAllValues(result.get().order(), "marker").head.value()[1] & 0xff);
+    }
+
+    @Test
+    public void emptyRun() {
+        final ParseState parseState = createFromByteStream(new InMemoryByteStream(new byte[] { (byte) 0xff, (byte) 0xd9 }));
+        final Optional<ParseState> result = ESCAPED.parse(env(parseState, enc()));
+        assertEquals(Optional.of(parseState), result);
+    }
+
+    @Test
+    public void sameEndAsRep() {
+        // Runs that end before, at and after chunk boundaries, and units that cross them.
+        for (final int length : new int[] { 0, 1, 2, 4095, 4096, 4097, 12289 }) {
+            for (final int escape : new int[] { -1, 0, 4094, 4095, 4096 }) {
+                final byte[] data = new byte[length];
+                if (escape >= 0 && escape + 1 < length) {
+                    data[escape] = (byte) 0xff;
+                    data[escape + 1] = (byte) 0xd3;
+                }
+                if (length > 0) {
+                    data[length - 1] = (byte) 0xff;
+                }
+                final ParseState parseState = createFromByteStream(new InMemoryByteStream(data));
+                final BigInteger expected = ESCAPED_REP.parse(env(parseState, enc())).get().offset;
+                assertEquals(expected, ESCAPED.parse(env(parseState, enc())).get().offset, "length " + length + ", escape " + escape);
+            }
+        }
+    }
+
+    @Test
+    public void byteClasses() {
+        assertTrue(ByteClass.ANY.contains((byte) 0x00));
+        assertTrue(ByteClass.ANY.contains((byte) 0xff));
+        assertFalse(ByteClass.ANY.not().contains((byte) 0x80));
+        assertTrue(ByteClass.of(0x01, 0x80).contains((byte) 0x80));
+        assertFalse(ByteClass.of(0x01, 0x80).contains((byte) 0x81));
+        assertEquals(ByteClass.range(0x3f, 0x41), ByteClass.of(0x3f).or(ByteClass.of(0x40, 0x41)));
+        assertEquals("ByteClass(3f,40,41)", ByteClass.range(0x3f, 0x41).toString());
+    }
+
+    @Test
+    public void invalidArguments() {
+        assertEquals("Argument values contains value 256, which is not a byte value.", assertThrows(IllegalArgumentException.class, () -> ByteClass.of(0x100)).getMessage());
+        assertEquals("Argument from (2) may not be larger than argument to (1).", assertThrows(IllegalArgumentException.class, () -> ByteClass.range(2, 1)).getMessage());
+        assertEquals("Argument units may not be empty.", assertThrows(IllegalArgumentException.class, () -> scan("a")).getMessage());
+        assertEquals("Unit 1 may not be empty.", assertThrows(IllegalArgumentException.class, () -> scan("a", unit(ByteClass.ANY), unit())).getMessage());
+    }
+
+}
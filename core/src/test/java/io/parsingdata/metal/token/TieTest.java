@@ -79,7 +79,7 @@ public class TieTest {
     public void smallContainer() {
         final Optional<ParseState> result = parseContainer();
         assertEquals(5, result.get().offset.intValueExact());
-        assertEquals(6, getAllValues(result.get().order, "value").size);
+        assertEquals(6, getAllValues(result.get().order(), "value").size);
     }
 
     private Optional<ParseState> parseContainer() {
@@ -132,7 +132,7 @@ public class TieTest {
                 def("data", last(ref("size"))),
                 tie(l2Token, inflate(last(ref("data")))));
         final Optional<ParseState> result = checkFullParse(l1Token, l1Data);
-        assertEquals(80, result.get().order.head.asGraph().head.asGraph().head.asGraph().head.asGraph().head.asGraph().head.asGraph().head.asValue().asNumeric().intValueExact());
+        assertEquals(80, result.get().order().head.asGraph().head.asGraph().head.asGraph().head.asGraph().head.asGraph().head.asGraph().head.asValue().asNumeric().intValueExact());
     }
 
     private byte[] flipBlocks(byte[] input, int blockSize) {
@@ -177,7 +177,7 @@ public class TieTest {
                 sub(SIMPLE_SEQ, con(0)));
         final Optional<ParseState> result = nestedSeq.parse(env(stream(1, 2, 3)));
         assertTrue(result.isPresent());
-        assertEquals(0, getReferences(result.get().order).size);
+        assertEquals(0, getReferences(result.get().order()).size);
     }
 
     @Test
@@ -188,10 +188,10 @@ public class TieTest {
                 tie(SIMPLE_SEQ, ref("d")));
         final Optional<ParseState> result = multiTie.parse(env(stream(1, 2, 3, 1, 2, 3)));
         assertTrue(result.isPresent());
-        assertEquals(0, getReferences(result.get().order).size);
+        assertEquals(0, getReferences(result.get().order()).size);
         final String[] names = { "a", "b", "c", "d" };
         for (String name : names) {
-            ImmutableList<ParseValue> values = getAllValues(result.get().order, name);
+            ImmutableList<ParseValue> values = getAllValues(result.get().order(), name);
             assertEquals(2, values.size);
         }
     }
@@ -205,11 +205,11 @@ public class TieTest {
                 tie(SIMPLE_SEQ, refD));
         final Optional<ParseState> result = duplicateTie.parse(env(stream(1, 2, 3)));
         assertTrue(result.isPresent());
-        assertEquals(0, getReferences(result.get().order).size);
-        assertEquals(1, getAllValues(result.get().order, "d").size);
+        assertEquals(0, getReferences(result.get().order()).size);
+        assertEquals(1, getAllValues(result.get().order(), "d").size);
         final String[] names = { "a", "b", "c" };
         for (String name : names) {
-            ImmutableList<ParseValue> values = getAllValues(result.get().order, name);
+            ImmutableList<ParseValue> values = getAllValues(result.get().order(), name);
             assertEquals(2, values.size);
         }
     }
@@ -219,7 +219,7 @@ public class TieTest {
         final Token token = seq(any("a"), tie(any("b"), last(ref("c"))));
         final Optional<ParseState> result = token.parse(env(stream(0)));
         assertTrue(result.isPresent());
-        assertTrue(result.get().order.head.asGraph().head.asGraph().isEmpty());
+        assertTrue(result.get().order().head.asGraph().head.asGraph().isEmpty());
     }
 
     @Test
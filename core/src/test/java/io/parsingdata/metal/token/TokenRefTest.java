@@ -17,6 +17,7 @@
 
 package io.parsingdata.metal.token;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -27,12 +28,20 @@ import static io.parsingdata.metal.Shorthand.opt;
 import static io.parsingdata.metal.Shorthand.seq;
 import static io.parsingdata.metal.Shorthand.sub;
 import static io.parsingdata.metal.Shorthand.token;
+import static io.parsingdata.metal.data.Slice.createFromBytes;
+import static io.parsingdata.metal.util.EncodingFactory.enc;
 import static io.parsingdata.metal.util.EnvironmentFactory.env;
 import static io.parsingdata.metal.util.ParseStateFactory.stream;
 import static io.parsingdata.metal.util.TokenDefinitions.any;
 
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
+import io.parsingdata.metal.data.ParseReference;
+import io.parsingdata.metal.data.ParseState;
+import io.parsingdata.metal.data.ParseValue;
+
 public class TokenRefTest {
 
     @Test
@@ -69,4 +78,33 @@ public class TokenRefTest {
             );
     }
 
+    @Test
+    public void cachedLookupMatchesGraphTraversal() {
+        final Token[] tokens = { seq("a", any("x"), any("y")), seq("a", any("y"), any("x")), seq("b", any("x"), any("y")), def("a", 1), def("b", 1), seq(any("x"), any("y")) };
+        final TokenRef[] references = { new TokenRef("", "a", null), new TokenRef("", "b", null), new TokenRef("", "c", null) };
+        final Random random = new Random(0);
+        for (int run = 0; run < 20; run++) {
+            ParseState parseState = stream(0);
+            int depth = 0;
+            for (int step = 0; step < 100; step++) {
+                final Token token = tokens[random.nextInt(tokens.length)];
+                final int operation = random.nextInt(4);
+                if (operation == 0 && depth > 0) {
+                    parseState = parseState.closeBranch(any("x"));
+                    depth--;
+                } else if (operation == 1) {
+                    parseState = parseState.addBranch(token);
+                    depth++;
+                } else if (operation == 2) {
+                    parseState = parseState.add(new ParseValue(token.name.isEmpty() ? "v" : token.name, token, createFromBytes(new byte[] { 0 }), enc()));
+                } else {
+                    parseState = parseState.createCycle(new ParseReference(parseState.offset, parseState.source, token));
+                }
+                for (final TokenRef reference : references) {
+                    assertEquals(reference.getCanonical(parseState.withOrder(parseState.order())), reference.getCanonical(parseState));
+                }
+            }
+        }
+    }
+
 }
@@ -33,6 +33,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import io.parsingdata.metal.data.ParseState;
 import io.parsingdata.metal.encoding.Encoding;
+import io.parsingdata.metal.token.CompiledParser;
 import io.parsingdata.metal.token.Token;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -64,4 +65,10 @@ public abstract class ParameterizedParse {
         });
     }
 
+    @ParameterizedTest(name="{0} ({4}, compiled)")
+    @MethodSource("data")
+    public void compiled(final String description, final Token token, final ParseState parseState, final Encoding encoding, final boolean result) {
+        assertEquals(token.parse(env(parseState, encoding)), CompiledParser.compile(token).parse(env(parseState, encoding)));
+    }
+
 }
@@ -17,7 +17,8 @@
 
 package io.parsingdata.metal.format;
 
-import static io.parsingdata.metal.Shorthand.and;
+import static io.parsingdata.metal.Shorthand.byteClass;
+import static io.parsingdata.metal.Shorthand.byteRange;
 import static io.parsingdata.metal.Shorthand.cho;
 import static io.parsingdata.metal.Shorthand.con;
 import static io.parsingdata.metal.Shorthand.def;
@@ -25,18 +26,20 @@ import static io.parsingdata.metal.Shorthand.eq;
 import static io.parsingdata.metal.Shorthand.gtNum;
 import static io.parsingdata.metal.Shorthand.last;
 import static io.parsingdata.metal.Shorthand.ltNum;
-import static io.parsingdata.metal.Shorthand.not;
 import static io.parsingdata.metal.Shorthand.or;
 import static io.parsingdata.metal.Shorthand.ref;
 import static io.parsingdata.metal.Shorthand.rep;
+import static io.parsingdata.metal.Shorthand.scan;
 import static io.parsingdata.metal.Shorthand.seq;
 import static io.parsingdata.metal.Shorthand.sub;
+import static io.parsingdata.metal.Shorthand.unit;
 
 import io.parsingdata.metal.token.Token;
 
 /*
- * Since nearly every byte of the scan data is individually matched, this
- * approach will lead to stack overflow on files of realistic size.
+ * The entropy-coded data after a scan segment consists of any byte except
+ * 0xff, 0xff followed by 0x00 (an escaped 0xff) and restart markers. It is
+ * parsed as a single value.
  */
 public final class JPEG {
 
@@ -70,8 +73,9 @@ public final class JPEG {
                 def(IDENTIFIER, con(1), eq(con(0xda))),
                 def(LENGTH, con(2)),
                 def(PAYLOAD, last(sub(last(ref(LENGTH)), con(2)))),
-                rep(cho(def("scandata", con(1), not(eq(con(0xff)))),
-                        def("escape", con(2), or(eq(con(0xff00)), and(gtNum(con(0xffcf)), ltNum(con(0xffd8))))))));
+                scan("scandata",
+                     unit(byteClass(0xff).not()),
+                     unit(byteClass(0xff), byteClass(0x00).or(byteRange(0xd0, 0xd7)))));
 
     public static final Token FORMAT =
             seq("JPEG",